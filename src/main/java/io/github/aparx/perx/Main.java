@@ -44,6 +44,11 @@ public final class Main extends JavaPlugin implements Listener {
     if (!perx.load(this, database, styleExecutor, PERMISSION_ADAPTER_FACTORY))
       throw new IllegalStateException("Could not load Perx");
     connectDatabase(database).exceptionally((ex) -> {
+      if (database.isDegraded()) {
+        // reconnects in the background, while players are served from cache
+        Perx.getLogger().log(Level.SEVERE, "Error with database, running in degraded mode", ex);
+        return null;
+      }
       Perx.getLogger().log(Level.SEVERE, "Error with database (forgot setup?)", ex);
       BukkitThreads.runOnPrimaryThread(() -> Bukkit.getPluginManager().disablePlugin(this));
       return null;
@@ -68,7 +73,7 @@ public final class Main extends JavaPlugin implements Listener {
   private CompletableFuture<?> connectDatabase(Database database) {
     ConfigManager configManager = Perx.getInstance().getConfigManager();
     DatabaseConfig config = configManager.getDatabaseConfig();
-    return database.connect(config.getURL(), config.getUsername(), config.getPassword())
+    return database.connect(config.getSettings())
         .thenRun(() -> Perx.getLogger().info("Finished loading database"));
   }
 
@@ -4,15 +4,21 @@ import com.google.common.base.Preconditions;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import io.github.aparx.perx.config.ConfigManager;
 import io.github.aparx.perx.database.Database;
+import io.github.aparx.perx.database.migration.SchemaMigrator;
+import io.github.aparx.perx.database.metrics.DatabaseMetricsDumpTask;
 import io.github.aparx.perx.group.PerxGroupUpdateTask;
 import io.github.aparx.perx.group.intersection.PerxUserGroup;
+import io.github.aparx.perx.group.intersection.PerxUserGroupJournal;
 import io.github.aparx.perx.group.intersection.PerxUserGroupManager;
+import io.github.aparx.perx.group.intersection.PerxUserGroupPurgeTask;
 import io.github.aparx.perx.group.PerxGroup;
 import io.github.aparx.perx.group.PerxGroupService;
 import io.github.aparx.perx.group.PerxGroupHandler;
 import io.github.aparx.perx.group.PerxGroupManager;
 import io.github.aparx.perx.group.style.GroupStyleExecutor;
 import io.github.aparx.perx.group.intersection.PerxUserGroupService;
+import io.github.aparx.perx.group.intersection.PerxUserGroupWriteQueue;
+import io.github.aparx.perx.group.intersection.WriteBehindSettings;
 import io.github.aparx.perx.listeners.DefaultListener;
 import io.github.aparx.perx.message.MessageMap;
 import io.github.aparx.perx.message.MessageRepository;
@@ -20,6 +26,9 @@ import io.github.aparx.perx.permission.PermissionAdapterFactory;
 import io.github.aparx.perx.sign.PerxSignFile;
 import io.github.aparx.perx.sign.PerxSignHandler;
 import io.github.aparx.perx.sign.PerxSignStorage;
+import io.github.aparx.perx.snapshot.PerxSnapshotFile;
+import io.github.aparx.perx.snapshot.PerxWarmStart;
+import io.github.aparx.perx.sync.PerxChangeLog;
 import io.github.aparx.perx.user.PerxUser;
 import io.github.aparx.perx.user.PerxUserManager;
 import io.github.aparx.perx.user.PerxUserService;
@@ -35,6 +44,9 @@ import java.io.File;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -64,8 +76,14 @@ public final class Perx {
   private @Nullable Database database;
   private @Nullable PerxUserGroupService userGroupService;
   private @Nullable PerxGroupUpdateTask groupUpdateTask;
+  private @Nullable PerxUserGroupPurgeTask purgeTask;
+  private @Nullable DatabaseMetricsDumpTask metricsDumpTask;
   private @Nullable ConfigManager configManager;
   private @Nullable PerxSignHandler signManager;
+  private @Nullable PerxChangeLog changeLog;
+  private @Nullable PerxWarmStart warmStart;
+  private @Nullable PerxUserGroupJournal userGroupJournal;
+  private @Nullable SchemaMigrator schemaMigrator;
 
   private Logger logger = Bukkit.getLogger();
 
@@ -120,6 +138,10 @@ public final class Perx {
     return Preconditions.checkNotNull(groupUpdateTask);
   }
 
+  public PerxUserGroupPurgeTask getPurgeTask() {
+    return Preconditions.checkNotNull(purgeTask);
+  }
+
   public ConfigManager getConfigManager() {
     return Preconditions.checkNotNull(configManager);
   }
@@ -128,6 +150,22 @@ public final class Perx {
     return Preconditions.checkNotNull(signManager);
   }
 
+  public PerxChangeLog getChangeLog() {
+    return Preconditions.checkNotNull(changeLog);
+  }
+
+  public PerxWarmStart getWarmStart() {
+    return Preconditions.checkNotNull(warmStart);
+  }
+
+  public PerxUserGroupJournal getUserGroupJournal() {
+    return Preconditions.checkNotNull(userGroupJournal);
+  }
+
+  public SchemaMigrator getSchemaMigrator() {
+    return Preconditions.checkNotNull(schemaMigrator);
+  }
+
   public MessageRepository getMessages() {
     return messages;
   }
@@ -156,12 +194,49 @@ public final class Perx {
         listeners.forEach((x) -> Bukkit.getPluginManager().registerEvents(x, plugin));
         // service & manager allocation
         (this.configManager = new ConfigManager(plugin.getDataFolder())).load();
-        (this.groupService = new PerxGroupManager(database)).load();
-        (this.userGroupService = new PerxUserGroupManager(database)).load();
-        this.userService = new PerxUserManager(database, userGroupService);
+        this.changeLog = new PerxChangeLog(database,
+            configManager.getDatabaseConfig().getSyncSettings());
+        this.groupService = new PerxGroupManager(database);
+        this.userGroupService = new PerxUserGroupManager(database,
+            configManager.getDatabaseConfig().getMemberSettings());
+        this.warmStart = new PerxWarmStart(database, new PerxSnapshotFile(
+            new File(plugin.getDataFolder(), ".storage/snapshot.dat")
+        ), configManager.getDatabaseConfig().getSnapshotSettings());
+        // serve groups from the snapshot, until they are fetched from the database
+        boolean restored =
+            warmStart.restore(groupService.getRepository(), userGroupService.getRepository());
+        // groups are only fetched once the schema is up-to-date, even if migrating failed
+        CompletableFuture<?> migration =
+            (this.schemaMigrator = new SchemaMigrator()).migrateAsync(database);
+        // any other database operation waits for the migration, as it creates the tables
+        database.holdUntil(migration);
+        migration.whenComplete((__, ex) -> getGroupService().load());
+        userGroupService.load();
+        this.userService = new PerxUserManager(database, userGroupService,
+            configManager.getDatabaseConfig().getUserLoaderSettings(),
+            configManager.getDatabaseConfig().getOfflineUserCacheSettings(),
+            configManager.getDatabaseConfig().getUserGraceSettings());
+        WriteBehindSettings writeBehind =
+            configManager.getDatabaseConfig().getWriteBehindSettings();
         this.groupHandler = new PerxGroupHandler(
-            database, styleExecutor, userService, groupService, userGroupService);
+            database, styleExecutor, userService, groupService, userGroupService,
+            writeBehind.enabled()
+                ? new PerxUserGroupWriteQueue(database, userGroupService, writeBehind)
+                : null);
+        if (restored) groupHandler.reinitializeAllPlayers();
+        this.userGroupJournal = new PerxUserGroupJournal(database, userGroupService,
+            groupService.getRepository(), new File(plugin.getDataFolder(), ".storage/journal.log"));
+        if (userGroupJournal.hasPending())
+          // replay changes journaled while the database was unavailable on a previous run
+          database.queue((db) -> userGroupJournal.replay());
+        database.addRecoveryListener(this::recoverDatabase);
         (this.groupUpdateTask = new PerxGroupUpdateTask(plugin)).start();
+        (this.purgeTask = new PerxUserGroupPurgeTask(database, userGroupService,
+            configManager.getDatabaseConfig().getPurgeSettings())).start(plugin);
+        (this.metricsDumpTask = new DatabaseMetricsDumpTask(database.getMetrics(),
+            new File(plugin.getDataFolder(), "metrics.prom"),
+            configManager.getDatabaseConfig().getMetricsSettings())).start(plugin);
+        changeLog.load(plugin);
         (this.signManager = new PerxSignHandler(new PerxSignFile(
             new File(plugin.getDataFolder(), ".storage/signs.dat")
         ))).load();
@@ -176,6 +251,24 @@ public final class Perx {
     }
   }
 
+  /**
+   * Replays the journaled membership changes and reloads all cached users, as their memberships
+   * may have been changed by other servers while the database was unavailable.
+   */
+  private void recoverDatabase() {
+    @Nullable PerxUserGroupJournal journal = this.userGroupJournal;
+    @Nullable PerxUserService userService = this.userService;
+    @Nullable Database database = this.database;
+    if (journal == null || userService == null || database == null) return;
+    journal.replay().whenComplete((__, ex) -> {
+      Set<UUID> userIds = new HashSet<>();
+      userService.getRepository().forEach((user) -> userIds.add(user.getId()));
+      if (!userIds.isEmpty())
+        database.executeAsync("change_log.reload_users",
+            () -> getChangeLog().reload(Set.of(), userIds));
+    });
+  }
+
   @CanIgnoreReturnValue
   public boolean unload() {
     synchronized (lock) {
@@ -183,6 +276,14 @@ public final class Perx {
       try {
         if (groupUpdateTask != null)
           groupUpdateTask.stop();
+        if (changeLog != null)
+          changeLog.stop();
+        if (purgeTask != null)
+          purgeTask.stop();
+        if (metricsDumpTask != null)
+          metricsDumpTask.stop();
+        if (warmStart != null && groupService != null && userService != null)
+          warmStart.save(groupService.getRepository(), userService.getRepository());
         if (groupHandler != null && userService != null)
           // reset all players within cache due to unknown next load
           Bukkit.getOnlinePlayers().forEach((player) -> {
@@ -194,6 +295,11 @@ public final class Perx {
               if (group != null) groupHandler.resetGroupFromPlayer(player, group);
             }
           });
+        if (groupHandler != null && groupHandler.writeQueue() != null)
+          groupHandler.writeQueue().flush();
+        if (database != null)
+          // awaits pending operations and releases all connections
+          database.close();
         this.plugin = null;
       } finally {
         loaded = false;
@@ -4,6 +4,7 @@ import io.github.aparx.perx.command.args.CommandArgumentList;
 import io.github.aparx.perx.command.commands.GroupCommand;
 import io.github.aparx.perx.command.commands.HelpCommand;
 import io.github.aparx.perx.command.commands.InfoCommand;
+import io.github.aparx.perx.command.commands.StatsCommand;
 import io.github.aparx.perx.command.errors.CommandError;
 import io.github.aparx.perx.command.node.CommandNode;
 import io.github.aparx.perx.command.node.CommandNodeInfo;
@@ -34,6 +35,7 @@ public class PerxCommand implements CommandExecutor, TabCompleter {
     root.addChild(HelpCommand::new);
     root.addChild(InfoCommand::new);
     root.addChild(GroupCommand::new);
+    root.addChild(StatsCommand::new);
   }
 
   public static PerxCommand getInstance() {
@@ -57,7 +57,7 @@ public class InfoCommand extends CommandNode {
     context.respond(StringUtils.SPACE);
     if (!userService.getRepository().contains(targetPlayer))
       context.respond(Message.GENERIC_LOADING);
-    userService.getOrFetch(targetPlayer, UserCacheStrategy.TEMPORARY).thenAccept((user) -> {
+    userService.getOrFetch(targetPlayer, UserCacheStrategy.BOUNDED).thenAccept((user) -> {
       OfflinePlayer offline = user.getOffline();
       Collection<PerxUserGroup> subscribed = new ArrayList<>(user.getSubscribed());
       if (!offline.isOnline())
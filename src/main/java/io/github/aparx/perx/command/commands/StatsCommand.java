@@ -0,0 +1,22 @@
+package io.github.aparx.perx.command.commands;
+
+import io.github.aparx.perx.PerxPermissions;
+import io.github.aparx.perx.command.commands.stats.StatsDatabaseCommand;
+import io.github.aparx.perx.command.node.CommandNode;
+import io.github.aparx.perx.command.node.CommandNodeInfo;
+
+/**
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 12:50
+ * @since 1.0
+ */
+public class StatsCommand extends CommandNode {
+
+  public StatsCommand(CommandNode parent) {
+    super(parent, CommandNodeInfo.builder("stats")
+        .permission(PerxPermissions.PERMISSION_MANAGE)
+        .build());
+    addChild(StatsDatabaseCommand::new);
+  }
+
+}
@@ -1,5 +1,6 @@
 package io.github.aparx.perx.command.commands.group;
 
+import io.github.aparx.perx.Perx;
 import io.github.aparx.perx.PerxPermissions;
 import io.github.aparx.perx.command.CommandAssertion;
 import io.github.aparx.perx.command.CommandContext;
@@ -45,16 +46,22 @@ public class GroupInfoCommand extends AbstractGroupCommand {
   protected void execute(CommandContext context, CommandArgumentList args, PerxGroup group) throws CommandError {
     if (args.length() > 1) throw createSyntaxError(context);
     int pageIndex = (!args.isEmpty() ? args.get(0).getInt() - 1 : 0);
-    PageContainerDecorator<String, List<String>> pages = createPages(group);
-    BasicPageContainer<List<String>> pageContainer = pages.getContainer();
-    CommandAssertion.checkInRange(1 + pageIndex, 1, pageContainer.size());
-    String line = ChatColor.GRAY + "-".repeat(10) + ChatColor.YELLOW;
-    context.respond(String.format("%s %s Group: %s %s/%s %s", Message.PREFIX, line,
-        group.getName(), 1 + pageIndex, pageContainer.size(), line));
-    pageContainer.getPage(pageIndex).forEach(context::respond);
+    // the amount of lines does not depend on the member count, thus it is checked beforehand
+    CommandAssertion.checkInRange(1 + pageIndex, 1, createPages(group, null).getContainer().size());
+    Perx.getInstance().getUserGroupService().countByGroup(group.getName())
+        .exceptionally((__) -> null)
+        .thenAccept((members) -> {
+          BasicPageContainer<List<String>> pageContainer =
+              createPages(group, members).getContainer();
+          String line = ChatColor.GRAY + "-".repeat(10) + ChatColor.YELLOW;
+          context.respond(String.format("%s %s Group: %s %s/%s %s", Message.PREFIX, line,
+              group.getName(), 1 + pageIndex, pageContainer.size(), line));
+          pageContainer.getPage(pageIndex).forEach(context::respond);
+        });
   }
 
-  private PageContainerDecorator<String, List<String>> createPages(PerxGroup group) {
+  private PageContainerDecorator<String, List<String>> createPages(
+      PerxGroup group, @Nullable Long members) {
     PageContainerDecorator<String, List<String>> pages =
         PageContainerDecorator.of(MAX_LINES_PER_PAGE);
     for (GroupStyleKey key : GroupStyleKey.values())
@@ -65,6 +72,7 @@ public class GroupInfoCommand extends AbstractGroupCommand {
     int size = permissions.size();
     pages.addElement(createKeyValueLine("Default", group.isDefault()));
     pages.addElement(createKeyValueLine("Priority", group.getPriority()));
+    pages.addElement(createKeyValueLine("Members", members));
     pages.addElement(createKeyValueLine("Permissions (" + size + ")", StringUtils.EMPTY));
     for (PerxPermission permission : permissions)
       pages.addElement(createPermissionLine(permission));
@@ -16,9 +16,11 @@ import io.github.aparx.perx.utils.pagination.PageContainerDecorator;
 import org.apache.commons.lang3.StringUtils;
 import org.bukkit.ChatColor;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.framework.qual.DefaultQualifier;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author aparx (Vinzent Z.)
@@ -48,6 +50,14 @@ public class GroupListCommand extends CommandNode {
       throw new CommandError(Message.GENERIC_GROUP_NONE_EXISTING.substitute());
     CommandAssertion.checkInRange(1 + pageIndex, 1, pageContainer.size());
     List<PerxGroup> page = pageContainer.getPage(pageIndex);
+    Perx.getInstance().getUserGroupService().countAllGroups()
+        .exceptionally((__) -> null)
+        .thenAccept((counts) -> context.respond(createPage(
+            page, 1 + pageIndex, pageContainer.size(), counts)));
+  }
+
+  private String createPage(
+      List<PerxGroup> page, int pageNumber, int pageCount, @Nullable Map<String, Long> counts) {
     String line = ChatColor.GRAY + "-".repeat(3) + ChatColor.YELLOW;
     StringBuilder builder = new StringBuilder();
     String prefix = Message.PREFIX.toString();
@@ -55,9 +65,9 @@ public class GroupListCommand extends CommandNode {
         .append(' ')
         .append(line)
         .append(' ')
-        .append(1 + pageIndex)
+        .append(pageNumber)
         .append('/')
-        .append(pageContainer.size())
+        .append(pageCount)
         .append(' ')
         .append(line)
         .append('\n');
@@ -68,8 +78,11 @@ public class GroupListCommand extends CommandNode {
         .append("• ")
         .append(group.getName())
         .append(group.isDefault() ? " (default)" : StringUtils.EMPTY)
+        .append(counts != null
+            ? ChatColor.DARK_GRAY + " [" + counts.getOrDefault(group.getName(), 0L) + " members]"
+            : StringUtils.EMPTY)
         .append('\n'));
-    context.respond(builder.toString());
+    return builder.toString();
   }
 
   private PageContainerDecorator<PerxGroup, List<PerxGroup>> createPages() {
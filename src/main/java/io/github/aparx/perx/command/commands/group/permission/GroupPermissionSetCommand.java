@@ -1,5 +1,6 @@
 package io.github.aparx.perx.command.commands.group.permission;
 
+import io.github.aparx.perx.Perx;
 import io.github.aparx.perx.PerxPermissions;
 import io.github.aparx.perx.command.CommandContext;
 import io.github.aparx.perx.command.args.CommandArgumentList;
@@ -23,6 +24,7 @@ import org.checkerframework.framework.qual.DefaultQualifier;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -66,12 +68,14 @@ public class GroupPermissionSetCommand extends AbstractGroupCommand {
     @Nullable Boolean previousValue = (before != null ? before.getValue() : null);
     PerxPermission updated = group.getPermissionRepository().set(permission, value);
     context.respond(Message.GENERIC_LOADING);
-    group.update().exceptionally((__) -> 0).thenAccept((res) -> {
+    CompletableFuture<Boolean> future =
+        Perx.getInstance().getGroupService().setPermission(group, updated.getName(), value);
+    future.exceptionally((__) -> false).thenAccept((res) -> {
       StringLookup lookup = new LookupPopulator()
           .put(ArrayPath.of("group"), group)
           .put(ArrayPath.of("perm"), updated)
           .getLookup();
-      if (res <= 0) {
+      if (!res) {
         context.respond(Message.GROUP_PERM_SET_FAIL.substitute(lookup));
         // revert back changes made
         if (previousValue == null) permissionRegister.remove(arrayPath);
@@ -80,7 +84,6 @@ public class GroupPermissionSetCommand extends AbstractGroupCommand {
         context.respond(Message.GROUP_PERM_SET_SUCCESS.substitute(lookup));
       group.updatePlayers();
     });
-    group.push();
   }
 
   @Override
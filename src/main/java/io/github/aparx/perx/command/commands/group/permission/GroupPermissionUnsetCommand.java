@@ -1,5 +1,6 @@
 package io.github.aparx.perx.command.commands.group.permission;
 
+import io.github.aparx.perx.Perx;
 import io.github.aparx.perx.PerxPermissions;
 import io.github.aparx.perx.command.CommandAssertion;
 import io.github.aparx.perx.command.CommandContext;
@@ -21,6 +22,7 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.framework.qual.DefaultQualifier;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 /**
@@ -56,15 +58,16 @@ public class GroupPermissionUnsetCommand extends AbstractGroupCommand {
     });
     permissionRegister.remove(perm);
     context.respond(Message.GENERIC_LOADING);
-    group.update().exceptionally((__) -> 0).thenAccept((res) -> {
-      if (res <= 0) {
+    CompletableFuture<Boolean> future =
+        Perx.getInstance().getGroupService().unsetPermission(group, perm.getName());
+    future.exceptionally((__) -> false).thenAccept((res) -> {
+      if (!res) {
         context.respond(Message.GROUP_PERM_UNSET_FAIL.substitute(lookup));
         permissionRegister.register(perm); // revert back changes made
       } else
         context.respond(Message.GROUP_PERM_UNSET_SUCCESS.substitute(lookup));
       group.updatePlayers();
     });
-    group.push();
   }
 
   @Override
@@ -0,0 +1,123 @@
+package io.github.aparx.perx.command.commands.stats;
+
+import com.google.common.cache.CacheStats;
+import io.github.aparx.perx.Perx;
+import io.github.aparx.perx.PerxPermissions;
+import io.github.aparx.perx.command.CommandContext;
+import io.github.aparx.perx.command.args.CommandArgumentList;
+import io.github.aparx.perx.command.errors.CommandError;
+import io.github.aparx.perx.command.node.CommandNode;
+import io.github.aparx.perx.command.node.CommandNodeInfo;
+import io.github.aparx.perx.database.Database;
+import io.github.aparx.perx.database.executor.DatabaseExecutorStatistics;
+import io.github.aparx.perx.database.metrics.DatabaseOperationStatistics;
+import io.github.aparx.perx.message.Message;
+import io.github.aparx.perx.user.PerxOfflineUserCache;
+import io.github.aparx.perx.user.PerxUserGraceCache;
+import io.github.aparx.perx.user.UserFetchStatistics;
+import org.bukkit.ChatColor;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 16:24
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public class StatsDatabaseCommand extends CommandNode {
+
+  public StatsDatabaseCommand(CommandNode parent) {
+    super(parent, CommandNodeInfo.builder("db")
+        .permission(PerxPermissions.PERMISSION_MANAGE)
+        .description("Shows the latencies of database operations")
+        .build());
+  }
+
+  private static String formatMicros(long micros) {
+    if (micros < 1000) return micros + "µs";
+    return String.format("%.1fms", micros / 1000d);
+  }
+
+  @Override
+  public void execute(CommandContext context, CommandArgumentList args) throws CommandError {
+    if (!args.isEmpty()) throw createSyntaxError(context);
+    Database database = Perx.getInstance().getDatabase();
+    List<DatabaseOperationStatistics> statistics = database.getMetrics().getStatistics();
+    if (statistics.isEmpty())
+      throw new CommandError(Message.STATS_DB_EMPTY.substitute());
+    String prefix = Message.PREFIX.toString();
+    StringBuilder builder = new StringBuilder();
+    builder.append(prefix)
+        .append(' ')
+        .append(ChatColor.YELLOW)
+        .append("Database operations (p50 / p99 / max):")
+        .append('\n');
+    statistics.stream()
+        .sorted(Comparator.comparingLong(DatabaseOperationStatistics::count).reversed())
+        .forEach((stats) -> builder
+            .append(prefix)
+            .append(' ')
+            .append(ChatColor.GRAY)
+            .append("• ")
+            .append(ChatColor.WHITE)
+            .append(stats.operation())
+            .append(ChatColor.GRAY)
+            .append(' ')
+            .append(stats.count())
+            .append('x')
+            .append(stats.errors() != 0
+                ? " " + ChatColor.RED + stats.errors() + " failed" + ChatColor.GRAY
+                : "")
+            .append(' ')
+            .append(formatMicros(stats.p50()))
+            .append(" / ")
+            .append(formatMicros(stats.p99()))
+            .append(" / ")
+            .append(formatMicros(stats.max()))
+            .append('\n'));
+    @Nullable DatabaseExecutorStatistics executor = database.getExecutorStatistics();
+    if (executor != null)
+      builder.append(prefix)
+          .append(' ')
+          .append(ChatColor.GRAY)
+          .append(String.format("Executor: %s active, %s queued, %s rejected, "
+                  + "%s timed out, %s cancelled",
+              executor.active(), executor.queued(), executor.rejected(),
+              executor.timedOut(), executor.cancelled()))
+          .append('\n');
+    UserFetchStatistics users = Perx.getInstance().getUserService().getFetchStatistics();
+    builder.append(prefix)
+        .append(' ')
+        .append(ChatColor.GRAY)
+        .append(String.format("Users: %s cached, %s fetched, %s coalesced, %s in flight",
+            users.hits(), users.misses(), users.coalesced(), users.inFlight()))
+        .append('\n');
+    PerxOfflineUserCache offlineCache = Perx.getInstance().getUserService().getOfflineCache();
+    if (offlineCache.isEnabled()) {
+      CacheStats offline = offlineCache.getStats();
+      builder.append(prefix)
+          .append(' ')
+          .append(ChatColor.GRAY)
+          .append(String.format("Offline users: %s cached, %.1f%% hit rate, %s evicted",
+              offlineCache.size(), offline.hitRate() * 100, offline.evictionCount()))
+          .append('\n');
+    }
+    PerxUserGraceCache graceCache = Perx.getInstance().getUserService().getGraceCache();
+    if (graceCache.isEnabled()) {
+      CacheStats grace = graceCache.getStats();
+      builder.append(prefix)
+          .append(' ')
+          .append(ChatColor.GRAY)
+          .append(String.format("Reconnecting users: %s kept, %.1f%% hit rate, %s evicted",
+              graceCache.size(), grace.hitRate() * 100, grace.evictionCount()))
+          .append('\n');
+    }
+    context.respond(builder.toString());
+  }
+
+}
@@ -4,6 +4,7 @@ import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import io.github.aparx.perx.utils.ArrayPath;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.util.Locale;
 import java.util.Objects;
 
 /**
@@ -51,4 +52,26 @@ public interface ConfigFacade {
     return string;
   }
 
+  default int getInt(ArrayPath path, int defaultValue) {
+    return (get(path) instanceof Number number ? number.intValue() : defaultValue);
+  }
+
+  default long getLong(ArrayPath path, long defaultValue) {
+    return (get(path) instanceof Number number ? number.longValue() : defaultValue);
+  }
+
+  default boolean getBoolean(ArrayPath path, boolean defaultValue) {
+    return (get(path) instanceof Boolean bool ? bool : defaultValue);
+  }
+
+  default <E extends Enum<E>> E getEnum(ArrayPath path, Class<E> type, E defaultValue) {
+    @Nullable String string = getString(path);
+    if (string == null) return defaultValue;
+    try {
+      return Enum.valueOf(type, string.trim().toUpperCase(Locale.ENGLISH));
+    } catch (IllegalArgumentException e) {
+      return defaultValue;
+    }
+  }
+
 }
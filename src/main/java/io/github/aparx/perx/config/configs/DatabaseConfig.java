@@ -4,8 +4,28 @@ import io.github.aparx.perx.config.Config;
 import io.github.aparx.perx.config.ConfigHandle;
 import io.github.aparx.perx.config.ConfigHandleId;
 import io.github.aparx.perx.config.ConfigManager;
+import io.github.aparx.perx.database.DatabaseBackend;
+import io.github.aparx.perx.database.DatabaseSettings;
+import io.github.aparx.perx.database.breaker.CircuitBreakerSettings;
+import io.github.aparx.perx.database.executor.DatabaseExecutorMode;
+import io.github.aparx.perx.database.executor.DatabaseExecutorSettings;
+import io.github.aparx.perx.database.executor.DatabaseRejectionPolicy;
+import io.github.aparx.perx.database.metrics.MetricsSettings;
+import io.github.aparx.perx.database.pool.DatabasePoolSettings;
+import io.github.aparx.perx.database.replica.DatabaseReplicaSettings;
+import io.github.aparx.perx.group.intersection.MemberSettings;
+import io.github.aparx.perx.group.intersection.PurgeSettings;
+import io.github.aparx.perx.group.intersection.WriteBehindSettings;
+import io.github.aparx.perx.snapshot.SnapshotSettings;
+import io.github.aparx.perx.sync.SyncSettings;
+import io.github.aparx.perx.user.OfflineUserCacheSettings;
+import io.github.aparx.perx.user.UserGraceSettings;
+import io.github.aparx.perx.user.UserLoaderSettings;
 import io.github.aparx.perx.utils.ArrayPath;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.File;
 
 /**
  * @author aparx (Vinzent Z.)
@@ -15,23 +35,211 @@ import org.checkerframework.checker.nullness.qual.NonNull;
 @ConfigHandleId("database")
 public class DatabaseConfig extends ConfigHandle {
 
+  public static final ArrayPath DATABASE_TYPE = ArrayPath.of("database", "type");
   public static final ArrayPath DATABASE_URL = ArrayPath.of("database", "url");
   public static final ArrayPath DATABASE_USERNAME = ArrayPath.of("database", "username");
   public static final ArrayPath DATABASE_PASSWORD = ArrayPath.of("database", "password");
 
+  public static final ArrayPath REPLICA_URL = ArrayPath.of("replica", "url");
+  public static final ArrayPath REPLICA_CONSISTENCY_WINDOW =
+      ArrayPath.of("replica", "consistency-window");
+
+  public static final ArrayPath BREAKER_ENABLED = ArrayPath.of("breaker", "enabled");
+  public static final ArrayPath BREAKER_WINDOW_SIZE = ArrayPath.of("breaker", "window-size");
+  public static final ArrayPath BREAKER_MINIMUM_CALLS = ArrayPath.of("breaker", "minimum-calls");
+  public static final ArrayPath BREAKER_FAILURE_RATE =
+      ArrayPath.of("breaker", "failure-rate-threshold");
+  public static final ArrayPath BREAKER_OPEN_DURATION = ArrayPath.of("breaker", "open-duration");
+  public static final ArrayPath BREAKER_MAXIMUM_OPEN_DURATION =
+      ArrayPath.of("breaker", "maximum-open-duration");
+  public static final ArrayPath BREAKER_RETRIES = ArrayPath.of("breaker", "retries");
+  public static final ArrayPath BREAKER_RETRY_BACKOFF = ArrayPath.of("breaker", "retry-backoff");
+
+  public static final ArrayPath POOL_MINIMUM_SIZE = ArrayPath.of("pool", "minimum-size");
+  public static final ArrayPath POOL_MAXIMUM_SIZE = ArrayPath.of("pool", "maximum-size");
+  public static final ArrayPath POOL_ACQUIRE_TIMEOUT = ArrayPath.of("pool", "acquire-timeout");
+  public static final ArrayPath POOL_MAXIMUM_AGE = ArrayPath.of("pool", "maximum-age");
+  public static final ArrayPath POOL_CHECK_INTERVAL = ArrayPath.of("pool", "check-interval");
+  public static final ArrayPath POOL_TEST_ON_BORROW = ArrayPath.of("pool", "test-on-borrow");
+
+  public static final ArrayPath EXECUTOR_MODE = ArrayPath.of("executor", "mode");
+  public static final ArrayPath EXECUTOR_THREADS = ArrayPath.of("executor", "threads");
+  public static final ArrayPath EXECUTOR_QUEUE_CAPACITY =
+      ArrayPath.of("executor", "queue-capacity");
+  public static final ArrayPath EXECUTOR_REJECTION_POLICY =
+      ArrayPath.of("executor", "rejection-policy");
+  public static final ArrayPath EXECUTOR_SHUTDOWN_TIMEOUT =
+      ArrayPath.of("executor", "shutdown-timeout");
+  public static final ArrayPath EXECUTOR_OPERATION_TIMEOUT =
+      ArrayPath.of("executor", "operation-timeout");
+
+  public static final ArrayPath WRITE_BEHIND_ENABLED = ArrayPath.of("write-behind", "enabled");
+  public static final ArrayPath WRITE_BEHIND_WINDOW = ArrayPath.of("write-behind", "window");
+  public static final ArrayPath WRITE_BEHIND_BATCH_SIZE =
+      ArrayPath.of("write-behind", "maximum-batch-size");
+
+  public static final ArrayPath USER_LOADER_WINDOW = ArrayPath.of("user-loader", "window");
+  public static final ArrayPath USER_LOADER_BATCH_SIZE =
+      ArrayPath.of("user-loader", "maximum-batch-size");
+
+  public static final ArrayPath OFFLINE_CACHE_MAXIMUM_SIZE =
+      ArrayPath.of("offline-cache", "maximum-size");
+  public static final ArrayPath OFFLINE_CACHE_TTL = ArrayPath.of("offline-cache", "ttl");
+
+  public static final ArrayPath GRACE_PERIOD = ArrayPath.of("grace", "period");
+  public static final ArrayPath GRACE_MAXIMUM_WEIGHT = ArrayPath.of("grace", "maximum-weight");
+
+  public static final ArrayPath SYNC_ENABLED = ArrayPath.of("sync", "enabled");
+  public static final ArrayPath SYNC_INTERVAL = ArrayPath.of("sync", "interval");
+  public static final ArrayPath SYNC_RETENTION = ArrayPath.of("sync", "retention");
+  public static final ArrayPath SYNC_BATCH_SIZE = ArrayPath.of("sync", "batch-size");
+  public static final ArrayPath SYNC_GAP_TIMEOUT = ArrayPath.of("sync", "gap-timeout");
+
+  public static final ArrayPath PURGE_ENABLED = ArrayPath.of("purge", "enabled");
+  public static final ArrayPath PURGE_INTERVAL = ArrayPath.of("purge", "interval");
+  public static final ArrayPath PURGE_BATCH_SIZE = ArrayPath.of("purge", "batch-size");
+  public static final ArrayPath PURGE_ARCHIVE = ArrayPath.of("purge", "archive");
+
+  public static final ArrayPath SNAPSHOT_ENABLED = ArrayPath.of("snapshot", "enabled");
+  public static final ArrayPath SNAPSHOT_MAXIMUM_AGE = ArrayPath.of("snapshot", "maximum-age");
+  public static final ArrayPath SNAPSHOT_MAXIMUM_USERS = ArrayPath.of("snapshot", "maximum-users");
+
+  public static final ArrayPath MEMBERS_PAGE_SIZE = ArrayPath.of("members", "page-size");
+  public static final ArrayPath MEMBERS_COUNT_TTL = ArrayPath.of("members", "count-ttl");
+
+  public static final ArrayPath METRICS_DUMP = ArrayPath.of("metrics", "dump");
+  public static final ArrayPath METRICS_DUMP_INTERVAL = ArrayPath.of("metrics", "dump-interval");
+
+  private final File dataFolder;
+
   public DatabaseConfig(ConfigManager configManager) {
     super(configManager);
+    this.dataFolder = configManager.getDataFolder();
   }
 
   @Override
   public void init(@NonNull Config config) {
     config.load();
+    config.setIfAbsent(DATABASE_TYPE, DatabaseBackend.EXTERNAL.name().toLowerCase(),
+        "The database used: 'external', or 'h2' and 'sqlite' (stored in the plugin folder)");
     config.setIfAbsent(DATABASE_URL, "jdbc:<type>://<host>", "The JDBC connectivity string");
     config.setIfAbsent(DATABASE_USERNAME, "<username>", "The target username of the database");
     config.setIfAbsent(DATABASE_PASSWORD, "<password>", "The password of the database");
+    DatabaseReplicaSettings replica = DatabaseReplicaSettings.DEFAULT;
+    config.setIfAbsent(REPLICA_URL, "",
+        "The JDBC connectivity string of a read replica (empty to read from the primary)");
+    config.setIfAbsent(REPLICA_CONSISTENCY_WINDOW, replica.consistencyWindow(),
+        "Milliseconds a user is read from the primary after they were changed");
+    CircuitBreakerSettings breaker = CircuitBreakerSettings.DEFAULT;
+    config.setIfAbsent(BREAKER_ENABLED, breaker.enabled(),
+        "Whether Perx serves players from cache while the database is failing");
+    config.setIfAbsent(BREAKER_WINDOW_SIZE, breaker.windowSize(),
+        "Amount of recent database operations the failure rate is computed of");
+    config.setIfAbsent(BREAKER_MINIMUM_CALLS, breaker.minimumCalls(),
+        "Amount of recent operations required before the database is considered failing");
+    config.setIfAbsent(BREAKER_FAILURE_RATE, breaker.failureRateThreshold(),
+        "Percentage of failed operations at which the database is considered failing");
+    config.setIfAbsent(BREAKER_OPEN_DURATION, breaker.openDuration(),
+        "Milliseconds to wait before the failing database is probed again");
+    config.setIfAbsent(BREAKER_MAXIMUM_OPEN_DURATION, breaker.maximumOpenDuration(),
+        "Maximum milliseconds to wait before probing, as the wait doubles every failed probe");
+    config.setIfAbsent(BREAKER_RETRIES, breaker.retries(),
+        "Amount of times a failed read is retried");
+    config.setIfAbsent(BREAKER_RETRY_BACKOFF, breaker.retryBackoff(),
+        "Milliseconds before the first retry of a read, doubling with every retry");
+    DatabasePoolSettings pool = DatabasePoolSettings.DEFAULT;
+    config.setIfAbsent(POOL_MINIMUM_SIZE, pool.minimumSize(),
+        "Amount of connections that are opened on startup");
+    config.setIfAbsent(POOL_MAXIMUM_SIZE, pool.maximumSize(),
+        "Maximum amount of connections that are used at the same time");
+    config.setIfAbsent(POOL_ACQUIRE_TIMEOUT, pool.acquireTimeout(),
+        "Milliseconds to wait for a free connection before a query fails");
+    config.setIfAbsent(POOL_MAXIMUM_AGE, pool.maximumConnectionAge(),
+        "Maximum age in milliseconds of a pooled connection, after which it is closed");
+    config.setIfAbsent(POOL_CHECK_INTERVAL, pool.checkInterval(),
+        "Milliseconds between checks of idle connections (0 to disable)");
+    config.setIfAbsent(POOL_TEST_ON_BORROW, pool.testOnBorrow(),
+        "Whether a connection is validated every time before it is used");
+    DatabaseExecutorSettings executor = DatabaseExecutorSettings.DEFAULT;
+    config.setIfAbsent(EXECUTOR_MODE, executor.mode().name().toLowerCase(),
+        "Threads database operations run on: 'platform' or 'virtual' (requires Java 21)");
+    config.setIfAbsent(EXECUTOR_THREADS, executor.threads(),
+        "Amount of database operations that are executed concurrently");
+    config.setIfAbsent(EXECUTOR_QUEUE_CAPACITY, executor.queueCapacity(),
+        "Amount of database operations that may wait for execution");
+    config.setIfAbsent(EXECUTOR_REJECTION_POLICY,
+        executor.rejectionPolicy().name().toLowerCase(),
+        "What happens if the queue is full: 'abort' or 'caller_runs'");
+    config.setIfAbsent(EXECUTOR_SHUTDOWN_TIMEOUT, executor.shutdownTimeout(),
+        "Milliseconds to wait for pending database operations on shutdown");
+    config.setIfAbsent(EXECUTOR_OPERATION_TIMEOUT, executor.operationTimeout(),
+        "Milliseconds after which a database operation is cancelled (0 to disable)");
+    WriteBehindSettings writeBehind = WriteBehindSettings.DEFAULT;
+    config.setIfAbsent(WRITE_BEHIND_ENABLED, writeBehind.enabled(),
+        "Whether group subscriptions are written to the database in batches");
+    config.setIfAbsent(WRITE_BEHIND_WINDOW, writeBehind.window(),
+        "Milliseconds subscriptions are collected before they are written");
+    config.setIfAbsent(WRITE_BEHIND_BATCH_SIZE, writeBehind.maximumBatchSize(),
+        "Amount of collected subscriptions that are written without waiting");
+    UserLoaderSettings userLoader = UserLoaderSettings.DEFAULT;
+    config.setIfAbsent(USER_LOADER_WINDOW, userLoader.window(),
+        "Milliseconds joining users are gathered to be loaded at once (0 to disable)");
+    config.setIfAbsent(USER_LOADER_BATCH_SIZE, userLoader.maximumBatchSize(),
+        "Amount of gathered users that are loaded without waiting");
+    OfflineUserCacheSettings offlineCache = OfflineUserCacheSettings.DEFAULT;
+    config.setIfAbsent(OFFLINE_CACHE_MAXIMUM_SIZE, offlineCache.maximumSize(),
+        "Maximum amount of offline players kept in cache after a lookup (0 to disable)");
+    config.setIfAbsent(OFFLINE_CACHE_TTL, offlineCache.ttl(),
+        "Milliseconds an offline player is kept in cache after they were fetched");
+    UserGraceSettings grace = UserGraceSettings.DEFAULT;
+    config.setIfAbsent(GRACE_PERIOD, grace.period(),
+        "Milliseconds a quitting player is kept in cache for a reconnect (0 to disable)");
+    config.setIfAbsent(GRACE_MAXIMUM_WEIGHT, grace.maximumWeight(),
+        "Maximum amount of quitting players plus their groups kept in cache at once");
+    SyncSettings sync = SyncSettings.DEFAULT;
+    config.setIfAbsent(SYNC_ENABLED, sync.enabled(),
+        "Whether group changes are synchronized with other servers using this database");
+    config.setIfAbsent(SYNC_INTERVAL, sync.interval(),
+        "Milliseconds between two checks for changes made by other servers");
+    config.setIfAbsent(SYNC_RETENTION, sync.retention(),
+        "Milliseconds changes are kept before they are deleted");
+    config.setIfAbsent(SYNC_BATCH_SIZE, sync.batchSize(),
+        "Maximum amount of changes that are fetched per check");
+    config.setIfAbsent(SYNC_GAP_TIMEOUT, sync.gapTimeout(),
+        "Milliseconds a skipped change is still looked for, as it may be committed late");
+    PurgeSettings purge = PurgeSettings.DEFAULT;
+    config.setIfAbsent(PURGE_ENABLED, purge.enabled(),
+        "Whether expired memberships are deleted from the database in the background");
+    config.setIfAbsent(PURGE_INTERVAL, purge.interval(),
+        "Milliseconds between two deletions of expired memberships");
+    config.setIfAbsent(PURGE_BATCH_SIZE, purge.batchSize(),
+        "Maximum amount of expired memberships that are deleted at once");
+    config.setIfAbsent(PURGE_ARCHIVE, purge.archive(),
+        "Whether deleted memberships are kept in the 'user_group_history' table");
+    SnapshotSettings snapshot = SnapshotSettings.DEFAULT;
+    config.setIfAbsent(SNAPSHOT_ENABLED, snapshot.enabled(),
+        "Whether groups are served from a snapshot on startup, while the database loads");
+    config.setIfAbsent(SNAPSHOT_MAXIMUM_AGE, snapshot.maximumAge(),
+        "Milliseconds after which a snapshot is too old to be used");
+    config.setIfAbsent(SNAPSHOT_MAXIMUM_USERS, snapshot.maximumUsers(),
+        "Maximum amount of players whose groups are stored in the snapshot");
+    MemberSettings members = MemberSettings.DEFAULT;
+    config.setIfAbsent(MEMBERS_PAGE_SIZE, members.pageSize(),
+        "Amount of group members fetched at once when going through all members of a group");
+    config.setIfAbsent(MEMBERS_COUNT_TTL, members.countTtl(),
+        "Milliseconds the amount of members of a group is cached before it is counted again");
+    MetricsSettings metrics = MetricsSettings.DEFAULT;
+    config.setIfAbsent(METRICS_DUMP, metrics.dump(),
+        "Whether database operation metrics are periodically written to metrics.prom");
+    config.setIfAbsent(METRICS_DUMP_INTERVAL, metrics.dumpInterval(),
+        "Milliseconds between two writes of the database operation metrics");
     config.save();
   }
 
+  public DatabaseBackend getBackend() {
+    return getEnum(DATABASE_TYPE, DatabaseBackend.class, DatabaseBackend.EXTERNAL);
+  }
+
   public String getURL() {
     return getRequiredString(DATABASE_URL);
   }
@@ -44,4 +252,126 @@ public class DatabaseConfig extends ConfigHandle {
     return getRequiredString(DATABASE_PASSWORD);
   }
 
+  public DatabasePoolSettings getPoolSettings() {
+    DatabasePoolSettings def = DatabasePoolSettings.DEFAULT;
+    return new DatabasePoolSettings(
+        getInt(POOL_MINIMUM_SIZE, def.minimumSize()),
+        getInt(POOL_MAXIMUM_SIZE, def.maximumSize()),
+        getLong(POOL_ACQUIRE_TIMEOUT, def.acquireTimeout()),
+        getLong(POOL_MAXIMUM_AGE, def.maximumConnectionAge()),
+        getLong(POOL_CHECK_INTERVAL, def.checkInterval()),
+        getBoolean(POOL_TEST_ON_BORROW, def.testOnBorrow()));
+  }
+
+  public DatabaseExecutorSettings getExecutorSettings() {
+    DatabaseExecutorSettings def = DatabaseExecutorSettings.DEFAULT;
+    return new DatabaseExecutorSettings(
+        getEnum(EXECUTOR_MODE, DatabaseExecutorMode.class, def.mode()),
+        getInt(EXECUTOR_THREADS, def.threads()),
+        getInt(EXECUTOR_QUEUE_CAPACITY, def.queueCapacity()),
+        getEnum(EXECUTOR_REJECTION_POLICY, DatabaseRejectionPolicy.class, def.rejectionPolicy()),
+        getLong(EXECUTOR_SHUTDOWN_TIMEOUT, def.shutdownTimeout()),
+        getLong(EXECUTOR_OPERATION_TIMEOUT, def.operationTimeout()));
+  }
+
+  public WriteBehindSettings getWriteBehindSettings() {
+    WriteBehindSettings def = WriteBehindSettings.DEFAULT;
+    return new WriteBehindSettings(
+        getBoolean(WRITE_BEHIND_ENABLED, def.enabled()),
+        getLong(WRITE_BEHIND_WINDOW, def.window()),
+        getInt(WRITE_BEHIND_BATCH_SIZE, def.maximumBatchSize()));
+  }
+
+  public UserLoaderSettings getUserLoaderSettings() {
+    UserLoaderSettings def = UserLoaderSettings.DEFAULT;
+    return new UserLoaderSettings(
+        getLong(USER_LOADER_WINDOW, def.window()),
+        getInt(USER_LOADER_BATCH_SIZE, def.maximumBatchSize()));
+  }
+
+  public OfflineUserCacheSettings getOfflineUserCacheSettings() {
+    OfflineUserCacheSettings def = OfflineUserCacheSettings.DEFAULT;
+    return new OfflineUserCacheSettings(
+        getLong(OFFLINE_CACHE_MAXIMUM_SIZE, def.maximumSize()),
+        getLong(OFFLINE_CACHE_TTL, def.ttl()));
+  }
+
+  public UserGraceSettings getUserGraceSettings() {
+    UserGraceSettings def = UserGraceSettings.DEFAULT;
+    return new UserGraceSettings(
+        getLong(GRACE_PERIOD, def.period()),
+        getLong(GRACE_MAXIMUM_WEIGHT, def.maximumWeight()));
+  }
+
+  public DatabaseReplicaSettings getReplicaSettings() {
+    DatabaseReplicaSettings def = DatabaseReplicaSettings.DEFAULT;
+    return new DatabaseReplicaSettings(
+        getString(REPLICA_URL),
+        getLong(REPLICA_CONSISTENCY_WINDOW, def.consistencyWindow()));
+  }
+
+  public CircuitBreakerSettings getBreakerSettings() {
+    CircuitBreakerSettings def = CircuitBreakerSettings.DEFAULT;
+    return new CircuitBreakerSettings(
+        getBoolean(BREAKER_ENABLED, def.enabled()),
+        getInt(BREAKER_WINDOW_SIZE, def.windowSize()),
+        getInt(BREAKER_MINIMUM_CALLS, def.minimumCalls()),
+        getInt(BREAKER_FAILURE_RATE, def.failureRateThreshold()),
+        getLong(BREAKER_OPEN_DURATION, def.openDuration()),
+        getLong(BREAKER_MAXIMUM_OPEN_DURATION, def.maximumOpenDuration()),
+        getInt(BREAKER_RETRIES, def.retries()),
+        getLong(BREAKER_RETRY_BACKOFF, def.retryBackoff()));
+  }
+
+  public DatabaseSettings getSettings() {
+    @Nullable String embeddedUrl = getBackend().createUrl(dataFolder);
+    if (embeddedUrl != null)
+      // embedded databases require no authentication and are never replicated
+      return new DatabaseSettings(embeddedUrl, null, null, getPoolSettings(),
+          getExecutorSettings(), DatabaseReplicaSettings.DEFAULT, getBreakerSettings());
+    return new DatabaseSettings(getURL(), getUsername(), getPassword(), getPoolSettings(),
+        getExecutorSettings(), getReplicaSettings(), getBreakerSettings());
+  }
+
+  public PurgeSettings getPurgeSettings() {
+    PurgeSettings def = PurgeSettings.DEFAULT;
+    return new PurgeSettings(
+        getBoolean(PURGE_ENABLED, def.enabled()),
+        getLong(PURGE_INTERVAL, def.interval()),
+        getInt(PURGE_BATCH_SIZE, def.batchSize()),
+        getBoolean(PURGE_ARCHIVE, def.archive()));
+  }
+
+  public SyncSettings getSyncSettings() {
+    SyncSettings def = SyncSettings.DEFAULT;
+    return new SyncSettings(
+        getBoolean(SYNC_ENABLED, def.enabled()),
+        getLong(SYNC_INTERVAL, def.interval()),
+        getLong(SYNC_RETENTION, def.retention()),
+        getInt(SYNC_BATCH_SIZE, def.batchSize()),
+        getLong(SYNC_GAP_TIMEOUT, def.gapTimeout()));
+  }
+
+  public SnapshotSettings getSnapshotSettings() {
+    SnapshotSettings def = SnapshotSettings.DEFAULT;
+    return new SnapshotSettings(
+        getBoolean(SNAPSHOT_ENABLED, def.enabled()),
+        getLong(SNAPSHOT_MAXIMUM_AGE, def.maximumAge()),
+        getInt(SNAPSHOT_MAXIMUM_USERS, def.maximumUsers()));
+  }
+
+  public MemberSettings getMemberSettings() {
+    MemberSettings def = MemberSettings.DEFAULT;
+    return new MemberSettings(
+        getInt(MEMBERS_PAGE_SIZE, def.pageSize()),
+        getLong(MEMBERS_COUNT_TTL, def.countTtl()));
+  }
+
+  public MetricsSettings getMetricsSettings() {
+    MetricsSettings def = MetricsSettings.DEFAULT;
+    return new MetricsSettings(
+        getBoolean(METRICS_DUMP, def.dump()),
+        getLong(METRICS_DUMP_INTERVAL, def.dumpInterval()));
+  }
+
 }
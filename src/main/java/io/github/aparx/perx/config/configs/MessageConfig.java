@@ -118,6 +118,7 @@ public class MessageConfig extends ConfigHandle {
         .set(Message.GROUP_PERM_UNSET_FAIL, "{prefix.error} Could not unset {perm.name} in group {group.name}!")
         .set(Message.GROUP_PERM_UNSET_NOT_FOUND, "{prefix.error} Could not find {perm.name} in group {group.name}!")
         .set(Message.GROUP_PERM_UNSET_SUCCESS, "{prefix.success} Unset permission &7{perm.name}&a ({perm.value}) in group &7{group.name}&a!")
+        .set(Message.STATS_DB_EMPTY, "{prefix.error} No database operations were recorded yet!")
         .build(register);
   }
 
@@ -2,10 +2,16 @@ package io.github.aparx.perx.database;
 
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import com.j256.ormlite.support.ConnectionSource;
+import io.github.aparx.perx.database.executor.DatabaseExecutorStatistics;
+import io.github.aparx.perx.database.metrics.DatabaseMetrics;
+import io.github.aparx.perx.database.pool.DatabasePoolStatistics;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.framework.qual.DefaultQualifier;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -24,18 +30,240 @@ public interface Database {
 
   boolean isLoaded();
 
-  CompletableFuture<Void> connect(String url, String username, String password);
+  /**
+   * Returns the dialect of the database this database is connected to, or {@code OTHER} if it
+   * has not been connected yet.
+   *
+   * @return the SQL dialect of the connected database
+   */
+  DatabaseDialect getDialect();
 
+  /**
+   * Returns the occupancy and wait-time counters of the connection pool, or null if this
+   * database is not connected through a pool.
+   *
+   * @return the current pool statistics, or null
+   */
+  @Nullable DatabasePoolStatistics getPoolStatistics();
+
+  /**
+   * Returns the queue-depth and throughput counters of the executor that operations are
+   * executed on, or null if this database is not connected.
+   *
+   * @return the current executor statistics, or null
+   */
+  @Nullable DatabaseExecutorStatistics getExecutorStatistics();
+
+  /**
+   * Returns the counters and latency histograms of all operations executed, keyed by the name
+   * the operations are tagged with.
+   *
+   * @return the operation metrics of this database
+   */
+  DatabaseMetrics getMetrics();
+
+  default CompletableFuture<Void> connect(String url, String username, String password) {
+    return connect(DatabaseSettings.of(url, username, password));
+  }
+
+  CompletableFuture<Void> connect(DatabaseSettings settings);
+
+  /**
+   * Closes this database, waiting for pending operations to finish before the connection
+   * source is closed.
+   */
   void close();
 
+  /**
+   * Holds back all operations enqueued from now on until {@code barrier} completed, whether
+   * normally or exceptionally. Operations enqueued already, such as the one {@code barrier}
+   * represents, are not held back. This is used to only access tables once they are migrated.
+   *
+   * @param barrier the future to complete before further operations are executed
+   */
+  void holdUntil(CompletableFuture<?> barrier);
+
+  /**
+   * Executes {@code operation} immediately if this database is loaded, or once it is loaded
+   * otherwise, including after a reconnect.
+   *
+   * @param operation the operation to execute
+   * @return false if the operation could not be queued, as too many operations wait already
+   * or this database is closed
+   */
   @CanIgnoreReturnValue
   boolean queue(ThrowingConsumer<PerxDatabase> operation);
 
+  /**
+   * Executes {@code executor} asynchronously, recording it as an untagged operation.
+   *
+   * @see #executeAsync(String, ThrowingSupplier)
+   */
+  @CanIgnoreReturnValue
+  default <R> CompletableFuture<R> executeAsync(ThrowingSupplier<R> executor) {
+    return executeAsync(DatabaseMetrics.UNTAGGED, executor);
+  }
+
+  /** @see #executeAsync(String, ThrowingRunnable) */
+  @CanIgnoreReturnValue
+  default CompletableFuture<@Nullable Void> executeAsync(ThrowingRunnable executor) {
+    return executeAsync(DatabaseMetrics.UNTAGGED, executor);
+  }
+
+  /**
+   * Executes {@code executor} asynchronously within the configured operation timeout.
+   * Cancelling the returned future cancels the statements of {@code executor}.
+   * <p>Operations wait for the initial connect, but fail immediately with a
+   * {@code DatabaseUnavailableException} while the database cannot be connected to.
+   *
+   * @param operation the name the operation is recorded with in the metrics
+   * @param executor  the executor to execute
+   * @param <R>       the result type
+   * @return a future of the result, which cancels the operation when cancelled
+   * @see #executeAsync(String, ThrowingSupplier, long)
+   */
+  @CanIgnoreReturnValue
+  <R> CompletableFuture<R> executeAsync(String operation, ThrowingSupplier<R> executor);
+
+  /**
+   * Executes {@code executor} asynchronously. If it does not complete within {@code timeout}
+   * milliseconds, the returned future fails with a {@code SQLTimeoutException} and the
+   * statements of {@code executor} are cancelled. Statements are also given a JDBC query
+   * timeout of the time remaining.
+   *
+   * @param operation the name the operation is recorded with in the metrics
+   * @param executor  the executor to execute
+   * @param timeout   the milliseconds the operation may take, or zero if it is unbounded
+   * @param <R>       the result type
+   * @return a future of the result, which cancels the operation when cancelled
+   */
+  @CanIgnoreReturnValue
+  <R> CompletableFuture<R> executeAsync(
+      String operation, ThrowingSupplier<R> executor, long timeout);
+
+  /** @see #executeAsync(String, ThrowingSupplier) */
+  @CanIgnoreReturnValue
+  default CompletableFuture<@Nullable Void> executeAsync(
+      String operation, ThrowingRunnable executor) {
+    return executeAsync(operation, () -> {
+      executor.run();
+      return null;
+    });
+  }
+
+  /**
+   * Executes {@code executor} asynchronously within a single transaction and the configured
+   * operation timeout.
+   *
+   * @see #executeInTransaction(String, ThrowingSupplier, long)
+   */
+  @CanIgnoreReturnValue
+  <R> CompletableFuture<R> executeInTransaction(String operation, ThrowingSupplier<R> executor);
+
+  /**
+   * Executes {@code executor} asynchronously within a single transaction, such that all of its
+   * statements are executed on the same connection within one round trip to the executor, and
+   * are either all committed or all rolled back if {@code executor} fails or times out.
+   *
+   * @param operation the name the operation is recorded with in the metrics
+   * @param executor  the executor, whose statements to execute within one transaction
+   * @param timeout   the milliseconds the operation may take, or zero if it is unbounded
+   * @param <R>       the result type
+   * @return a future of the result, that is completed once the transaction is committed
+   * @see #executeAsync(String, ThrowingSupplier, long)
+   */
+  @CanIgnoreReturnValue
+  <R> CompletableFuture<R> executeInTransaction(
+      String operation, ThrowingSupplier<R> executor, long timeout);
+
+  /** @see #executeInTransaction(String, ThrowingSupplier) */
+  @CanIgnoreReturnValue
+  default CompletableFuture<@Nullable Void> executeInTransaction(
+      String operation, ThrowingRunnable executor) {
+    return executeInTransaction(operation, () -> {
+      executor.run();
+      return null;
+    });
+  }
+
+  /**
+   * Executes {@code executor} asynchronously, retrying it with an exponential backoff if it
+   * fails due to the database. Thus {@code executor} must be idempotent, such as a read.
+   *
+   * @param operation the name the operation is recorded with in the metrics
+   * @param executor  the idempotent executor to execute
+   * @param <R>       the result type
+   * @return a future of the result of the first successful execution
+   */
   @CanIgnoreReturnValue
-  <R> CompletableFuture<R> executeAsync(ThrowingSupplier<R> executor);
+  <R> CompletableFuture<R> executeIdempotentAsync(
+      String operation, ThrowingSupplier<R> executor);
 
+  /**
+   * Returns true if the database is failing, such that operations are rejected until it
+   * recovers. While degraded, players are served from cache and memberships are journaled.
+   *
+   * @return true if the database is unavailable or its circuit breaker is not closed
+   */
+  boolean isDegraded();
+
+  /**
+   * Adds {@code listener}, that is called whenever this database recovers from being degraded.
+   * The listener is called on an arbitrary thread.
+   *
+   * @param listener the listener to add
+   */
+  void addRecoveryListener(Runnable listener);
+
+  /**
+   * Marks {@code userId} as just mutated, such that reads of that user are routed to the
+   * primary for the consistency window, instead of to a replica that may still lag behind.
+   * <p>This has no effect if no read replica is configured.
+   *
+   * @param userId the user that was mutated
+   */
+  void markWritten(UUID userId);
+
+  /** Returns true if {@code userId} was mutated within the consistency window. */
+  boolean isRecentlyWritten(UUID userId);
+
+  /**
+   * Executes {@code executor} on the calling thread, while routing all of its reads to the
+   * primary. If no read replica is configured, {@code executor} is executed as is.
+   *
+   * @param executor the executor to execute
+   * @param <R>      the result type
+   * @return the result of {@code executor}
+   * @throws Exception if {@code executor} failed
+   */
+  <R> R readFromPrimary(ThrowingSupplier<R> executor) throws Exception;
+
+  /**
+   * Executes {@code executor} asynchronously, whose reads concern {@code userId}. The reads
+   * are routed to the primary if the user was mutated within the consistency window.
+   *
+   * @see #markWritten(UUID)
+   */
   @CanIgnoreReturnValue
-  CompletableFuture<@Nullable Void> executeAsync(ThrowingRunnable executor);
+  default <R> CompletableFuture<R> executeReadAsync(
+      String operation, UUID userId, ThrowingSupplier<R> executor) {
+    return executeReadAsync(operation, List.of(userId), executor);
+  }
+
+  /**
+   * Executes {@code executor} asynchronously, whose reads concern {@code userIds}. The reads
+   * are routed to the primary if any of the users was mutated within the consistency window.
+   *
+   * @see #markWritten(UUID)
+   */
+  @CanIgnoreReturnValue
+  default <R> CompletableFuture<R> executeReadAsync(
+      String operation, Collection<UUID> userIds, ThrowingSupplier<R> executor) {
+    return executeIdempotentAsync(operation, () ->
+        (userIds.stream().anyMatch(this::isRecentlyWritten)
+            ? readFromPrimary(executor)
+            : executor.execute()));
+  }
 
   interface ThrowingSupplier<R> {
     R execute() throws Exception;
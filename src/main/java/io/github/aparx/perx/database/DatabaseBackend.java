@@ -0,0 +1,50 @@
+package io.github.aparx.perx.database;
+
+import com.google.common.base.Preconditions;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import java.io.File;
+
+/**
+ * The kind of database Perx connects to. Embedded backends store their data within a file in
+ * the plugin's data folder and require no database server.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-22 20:11
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public enum DatabaseBackend {
+
+  /** A database server, reached through the configured JDBC connectivity string */
+  EXTERNAL,
+
+  /** An embedded H2 database, stored in {@code perx.mv.db} */
+  H2,
+
+  /** An embedded SQLite database, stored in {@code perx.db} */
+  SQLITE;
+
+  public boolean isEmbedded() {
+    return this != EXTERNAL;
+  }
+
+  /**
+   * Returns the JDBC connectivity string of this backend's database within {@code folder},
+   * or null if this backend is not embedded.
+   *
+   * @param folder the folder the database file is stored in
+   * @return the connectivity string, or null
+   */
+  public @Nullable String createUrl(File folder) {
+    Preconditions.checkNotNull(folder, "Folder must not be null");
+    return switch (this) {
+      case EXTERNAL -> null;
+      case H2 -> "jdbc:h2:file:" + new File(folder, "perx").getAbsolutePath();
+      case SQLITE -> "jdbc:sqlite:" + new File(folder, "perx.db").getAbsolutePath();
+    };
+  }
+
+}
@@ -0,0 +1,85 @@
+package io.github.aparx.perx.database;
+
+import com.google.common.base.Preconditions;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+/**
+ * The SQL dialect spoken by a database, determined by its JDBC connectivity string.
+ * <p>The dialect describes the differences in behaviour Perx has to take into account, in
+ * addition to what ORMLite already handles on its own.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 15:04
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public enum DatabaseDialect {
+
+  MYSQL("jdbc:mysql:", false, true, false, UpsertSyntax.ON_DUPLICATE_KEY, Integer.MAX_VALUE),
+  MARIADB("jdbc:mariadb:", false, true, true, UpsertSyntax.ON_DUPLICATE_KEY,
+      Integer.MAX_VALUE),
+  POSTGRES("jdbc:postgresql:", false, false, true, UpsertSyntax.ON_CONFLICT, Integer.MAX_VALUE),
+  H2("jdbc:h2:", true, true, true, UpsertSyntax.MERGE, Integer.MAX_VALUE),
+  /** SQLite locks the whole file on writes, thus only one connection is used */
+  SQLITE("jdbc:sqlite:", true, false, true, UpsertSyntax.ON_CONFLICT, 1),
+  OTHER(null, false, false, false, UpsertSyntax.NONE, Integer.MAX_VALUE);
+
+  private final @Nullable String prefix;
+  private final boolean embedded;
+  private final boolean deleteLimit;
+  private final boolean createIndexIfNotExists;
+  private final UpsertSyntax upsertSyntax;
+  private final int maximumConnections;
+
+  DatabaseDialect(
+      @Nullable String prefix,
+      boolean embedded,
+      boolean deleteLimit,
+      boolean createIndexIfNotExists,
+      UpsertSyntax upsertSyntax,
+      int maximumConnections) {
+    this.prefix = prefix;
+    this.embedded = embedded;
+    this.deleteLimit = deleteLimit;
+    this.createIndexIfNotExists = createIndexIfNotExists;
+    this.upsertSyntax = upsertSyntax;
+    this.maximumConnections = maximumConnections;
+  }
+
+  public static DatabaseDialect of(String url) {
+    Preconditions.checkNotNull(url, "URL must not be null");
+    for (DatabaseDialect dialect : values())
+      if (dialect.prefix != null && url.regionMatches(true, 0, dialect.prefix, 0,
+          dialect.prefix.length()))
+        return dialect;
+    return OTHER;
+  }
+
+  /** Returns true if the database runs within this process, using a local file. */
+  public boolean isEmbedded() {
+    return embedded;
+  }
+
+  /** Returns true if {@code DELETE} statements may be limited to a row count. */
+  public boolean supportsDeleteLimit() {
+    return deleteLimit;
+  }
+
+  /** Returns true if {@code CREATE INDEX IF NOT EXISTS} is understood. */
+  public boolean supportsCreateIndexIfNotExists() {
+    return createIndexIfNotExists;
+  }
+
+  /** Returns the syntax of native upserts, or {@code NONE} if they are not understood. */
+  public UpsertSyntax getUpsertSyntax() {
+    return upsertSyntax;
+  }
+
+  /** Returns the maximum amount of connections that should be used concurrently. */
+  public int getMaximumConnections() {
+    return maximumConnections;
+  }
+
+}
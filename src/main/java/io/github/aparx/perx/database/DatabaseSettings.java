@@ -0,0 +1,52 @@
+package io.github.aparx.perx.database;
+
+import com.google.common.base.Preconditions;
+import io.github.aparx.perx.database.breaker.CircuitBreakerSettings;
+import io.github.aparx.perx.database.executor.DatabaseExecutorSettings;
+import io.github.aparx.perx.database.pool.DatabasePoolSettings;
+import io.github.aparx.perx.database.replica.DatabaseReplicaSettings;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+/**
+ * Settings used to connect a {@code Database}.
+ *
+ * @param url      the JDBC connectivity string
+ * @param username the username used to authenticate, or null
+ * @param password the password used to authenticate, or null
+ * @param pool     the settings of the connection pool
+ * @param executor the settings of the executor that operations are executed on
+ * @param replica  the settings of the read replica, authenticating like the primary
+ * @param breaker  the settings of the circuit breaker guarding all operations
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-20 16:40
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public record DatabaseSettings(
+    String url,
+    @Nullable String username,
+    @Nullable String password,
+    DatabasePoolSettings pool,
+    DatabaseExecutorSettings executor,
+    DatabaseReplicaSettings replica,
+    CircuitBreakerSettings breaker
+) {
+
+  public DatabaseSettings {
+    Preconditions.checkNotNull(url, "URL must not be null");
+    Preconditions.checkNotNull(pool, "Pool settings must not be null");
+    Preconditions.checkNotNull(executor, "Executor settings must not be null");
+    Preconditions.checkNotNull(replica, "Replica settings must not be null");
+    Preconditions.checkNotNull(breaker, "Breaker settings must not be null");
+  }
+
+  public static DatabaseSettings of(
+      String url, @Nullable String username, @Nullable String password) {
+    return new DatabaseSettings(url, username, password,
+        DatabasePoolSettings.DEFAULT, DatabaseExecutorSettings.DEFAULT,
+        DatabaseReplicaSettings.DEFAULT, CircuitBreakerSettings.DEFAULT);
+  }
+
+}
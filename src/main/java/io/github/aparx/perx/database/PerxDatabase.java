@@ -1,19 +1,39 @@
 package io.github.aparx.perx.database;
 
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
-import com.j256.ormlite.jdbc.JdbcConnectionSource;
 import com.j256.ormlite.logger.Logger;
+import com.j256.ormlite.misc.TransactionManager;
 import com.j256.ormlite.support.ConnectionSource;
 import io.github.aparx.perx.Perx;
-import org.bukkit.Bukkit;
+import io.github.aparx.perx.database.breaker.CircuitBreaker;
+import io.github.aparx.perx.database.breaker.CircuitBreakerSettings;
+import io.github.aparx.perx.database.breaker.CircuitState;
+import io.github.aparx.perx.database.breaker.DatabaseUnavailableException;
+import io.github.aparx.perx.database.executor.DatabaseExecutor;
+import io.github.aparx.perx.database.executor.DatabaseExecutorStatistics;
+import io.github.aparx.perx.database.executor.DatabaseOperation;
+import io.github.aparx.perx.database.metrics.DatabaseMetrics;
+import io.github.aparx.perx.database.pool.DatabasePoolStatistics;
+import io.github.aparx.perx.database.pool.PerxPooledConnectionSource;
+import io.github.aparx.perx.database.replica.DatabaseReplicaSettings;
+import io.github.aparx.perx.database.replica.ReadWriteConnectionSource;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.framework.qual.DefaultQualifier;
 
-import java.util.LinkedList;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.List;
 import java.util.Queue;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 /**
@@ -31,10 +51,30 @@ public class PerxDatabase implements Database {
   private final transient Object lock = new Object();
 
   private volatile @Nullable ConnectionSource source;
+  private volatile @Nullable DatabaseExecutor executor;
+  /** Users mutated within the consistency window, null if no read replica is used */
+  private volatile @Nullable Cache<UUID, Boolean> recentlyWritten;
+  private volatile DatabaseDialect dialect = DatabaseDialect.OTHER;
+  private volatile @Nullable CircuitBreaker breaker;
+  /** True if connecting failed, while reconnects are attempted in the background */
+  private volatile boolean unavailable;
+  /** True if this database was closed, until it is connected again */
+  private boolean closed;
   private DatabaseState state = DatabaseState.DISABLED;
 
+  /** The maximum amount of operations that wait for the initial connect */
+  private static final int MAX_QUEUED = 10000;
+
   /** Queue defining consumers that are executed when the database is loaded */
-  private final Queue<ThrowingConsumer<PerxDatabase>> queue = new LinkedList<>();
+  private final Queue<ThrowingConsumer<PerxDatabase>> queue =
+      new LinkedBlockingQueue<>(MAX_QUEUED);
+
+  /** Completes once enqueued operations may be executed, such as after migrating the schema */
+  private volatile CompletableFuture<?> barrier = CompletableFuture.completedFuture(null);
+
+  private final List<Runnable> recoveryListeners = new CopyOnWriteArrayList<>();
+
+  private final DatabaseMetrics metrics = new DatabaseMetrics();
 
   public DatabaseState getState() {
     return state;
@@ -60,34 +100,201 @@ public class PerxDatabase implements Database {
   }
 
   @Override
-  public CompletableFuture<Void> connect(String url, String username, String password) {
+  public DatabaseDialect getDialect() {
+    return dialect;
+  }
+
+  @Override
+  public @Nullable DatabasePoolStatistics getPoolStatistics() {
+    @Nullable ConnectionSource source = getSource();
+    if (source instanceof ReadWriteConnectionSource routing)
+      source = routing.getPrimary();
+    if (source instanceof PerxPooledConnectionSource pool)
+      return pool.getStatistics();
+    return null;
+  }
+
+  @Override
+  public @Nullable DatabaseExecutorStatistics getExecutorStatistics() {
+    @Nullable DatabaseExecutor executor = this.executor;
+    return (executor != null ? executor.getStatistics() : null);
+  }
+
+  @Override
+  public DatabaseMetrics getMetrics() {
+    return metrics;
+  }
+
+  @Override
+  public CompletableFuture<Void> connect(DatabaseSettings settings) {
+    return connect(settings, 0);
+  }
+
+  private CompletableFuture<Void> connect(DatabaseSettings settings, int attempt) {
+    Preconditions.checkNotNull(settings, "Settings must not be null");
     setState(DatabaseState.LOADING);
+    DatabaseDialect dialect = DatabaseDialect.of(settings.url());
+    this.dialect = dialect;
+    synchronized (lock) {
+      closed = false;
+      if (executor == null || executor.isShutdown())
+        this.executor = new DatabaseExecutor(settings.executor());
+      if (breaker == null)
+        this.breaker = new CircuitBreaker(settings.breaker(), this::onCircuitTransition);
+    }
     CompletableFuture<@Nullable Void> future = new CompletableFuture<>();
-    createAsyncTask(future, () -> {
-      this.source = new JdbcConnectionSource(url, username, password);
+    // connecting bypasses the breaker and timeout, as failed connects are retried on their own
+    createAsyncTask(future, "connect", () -> {
+      PerxPooledConnectionSource source = createPool(settings, settings.url(), dialect);
+      DatabaseReplicaSettings replica = settings.replica();
+      @Nullable String replicaUrl = replica.url();
+      if (replicaUrl != null && dialect.isEmbedded()) {
+        Perx.getLogger().warning("Read replica is ignored, as the database is embedded");
+        replicaUrl = null;
+      }
+      if (replicaUrl == null) {
+        this.source = source;
+        this.recentlyWritten = null;
+        return null;
+      }
+      try {
+        this.source = new ReadWriteConnectionSource(source,
+            createPool(settings, replicaUrl, DatabaseDialect.of(replicaUrl)));
+      } catch (SQLException e) {
+        source.closeQuietly();
+        throw e;
+      }
+      this.recentlyWritten = CacheBuilder.newBuilder()
+          .expireAfterWrite(replica.consistencyWindow(), TimeUnit.MILLISECONDS)
+          .build();
       return null;
-    });
+    }, null, 0);
     return future.whenComplete((v, t) -> {
       setState(t != null ? DatabaseState.ERROR : DatabaseState.LOADED);
-      if (isLoaded()) executeQueue();
-      else queue.clear();
+      CircuitBreakerSettings breakerSettings = settings.breaker();
+      if (isLoaded()) {
+        executeQueue();
+        if (unavailable) {
+          unavailable = false;
+          Perx.getLogger().info("Reconnected to the database");
+          notifyRecovery();
+        }
+      } else if (breakerSettings.enabled()) {
+        // queued operations are kept, as they are executed once a reconnect succeeds, while
+        // operations enqueued from now on fail fast until then
+        synchronized (lock) {
+          unavailable = true;
+        }
+        long delay = Math.min(breakerSettings.openDuration() << Math.min(attempt, 16),
+            breakerSettings.maximumOpenDuration());
+        Perx.getLogger().log(Level.WARNING, "Database is unavailable, reconnecting in {0}ms",
+            delay);
+        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> {
+          synchronized (lock) {
+            if (state != DatabaseState.ERROR) return;
+          }
+          connect(settings, attempt + 1);
+        });
+      } else {
+        queue.clear();
+      }
     });
   }
 
+  private static PerxPooledConnectionSource createPool(
+      DatabaseSettings settings, String url, DatabaseDialect dialect) throws SQLException {
+    PerxPooledConnectionSource source = new PerxPooledConnectionSource(
+        url, settings.username(), settings.password(),
+        settings.pool().withMaximumSize(dialect.getMaximumConnections()));
+    try {
+      source.warmUp();
+    } catch (SQLException e) {
+      source.closeQuietly();
+      throw e;
+    }
+    return source;
+  }
+
+  @Override
+  public boolean isDegraded() {
+    if (unavailable) return true;
+    @Nullable CircuitBreaker breaker = this.breaker;
+    return breaker != null && breaker.getState() != CircuitState.CLOSED;
+  }
+
+  @Override
+  public void addRecoveryListener(Runnable listener) {
+    Preconditions.checkNotNull(listener, "Listener must not be null");
+    recoveryListeners.add(listener);
+  }
+
+  private void onCircuitTransition(CircuitState state) {
+    switch (state) {
+      case OPEN -> Perx.getLogger().warning("Database is failing, running in degraded mode");
+      case HALF_OPEN -> Perx.getLogger().info("Probing whether the database recovered");
+      case CLOSED -> {
+        Perx.getLogger().info("Database recovered from degraded mode");
+        notifyRecovery();
+      }
+    }
+  }
+
+  private void notifyRecovery() {
+    for (Runnable listener : recoveryListeners) {
+      try {
+        listener.run();
+      } catch (RuntimeException e) {
+        Perx.getLogger().log(Level.WARNING, "Error in database recovery listener", e);
+      }
+    }
+  }
+
+  @Override
+  public void markWritten(UUID userId) {
+    @Nullable Cache<UUID, Boolean> recentlyWritten = this.recentlyWritten;
+    if (recentlyWritten != null) recentlyWritten.put(userId, Boolean.TRUE);
+  }
+
+  @Override
+  public boolean isRecentlyWritten(UUID userId) {
+    @Nullable Cache<UUID, Boolean> recentlyWritten = this.recentlyWritten;
+    return recentlyWritten != null && recentlyWritten.getIfPresent(userId) != null;
+  }
+
+  @Override
+  public <R> R readFromPrimary(ThrowingSupplier<R> executor) throws Exception {
+    if (getSource() instanceof ReadWriteConnectionSource routing)
+      return routing.callOnPrimary(executor::execute);
+    return executor.execute();
+  }
+
   @Override
   public void close() {
+    @Nullable DatabaseExecutor executor;
     synchronized (lock) {
-      @Nullable ConnectionSource source = getSource();
-      if (source != null) source.closeQuietly();
+      executor = this.executor;
+      this.state = DatabaseState.DISABLED;
+      this.unavailable = false;
+      this.closed = true;
+      queue.clear();
     }
+    // awaited without holding the lock, as pending operations may enqueue further operations,
+    // which are rejected immediately instead of blocking their worker thread
+    if (executor != null) executor.shutdown();
+    // pending operations are awaited first, as they still require the source
+    @Nullable ConnectionSource source = getSource();
+    if (source != null) source.closeQuietly();
   }
 
   @Override
   @CanIgnoreReturnValue
   public boolean queue(ThrowingConsumer<PerxDatabase> operation) {
+    synchronized (lock) {
+      // checked along with the state, so that the queue cannot be drained in between
+      if (state != DatabaseState.LOADED) return !closed && queue.offer(operation);
+    }
     try {
-      if (isLoaded()) operation.accept(this);
-      else queue.add(operation);
+      operation.accept(this);
     } catch (Exception e) {
       Perx.getLogger().log(Level.WARNING, "Error in database queue", e);
       throw new RuntimeException(e);
@@ -97,33 +304,193 @@ public class PerxDatabase implements Database {
 
   @Override
   @CanIgnoreReturnValue
-  public <R> CompletableFuture<R> executeAsync(ThrowingSupplier<R> executor) {
+  public <R> CompletableFuture<R> executeAsync(String operation, ThrowingSupplier<R> executor) {
+    Preconditions.checkNotNull(operation, "Operation must not be null");
     Preconditions.checkNotNull(executor, "Executor must not be null");
     CompletableFuture<R> future = new CompletableFuture<>();
-    queue((__) -> createAsyncTask(future, executor));
+    enqueue(future, (__) -> createAsyncTask(future, operation, executor));
     return future;
   }
 
   @Override
   @CanIgnoreReturnValue
-  public CompletableFuture<@Nullable Void> executeAsync(ThrowingRunnable executor) {
+  public <R> CompletableFuture<R> executeAsync(
+      String operation, ThrowingSupplier<R> executor, long timeout) {
+    Preconditions.checkNotNull(operation, "Operation must not be null");
     Preconditions.checkNotNull(executor, "Executor must not be null");
-    return executeAsync(() -> {
-      executor.run();
-      return null;
-    });
+    Preconditions.checkArgument(timeout >= 0, "Timeout must not be negative");
+    CompletableFuture<R> future = new CompletableFuture<>();
+    enqueue(future, (__) -> createAsyncTask(future, operation, executor, this.breaker, timeout));
+    return future;
   }
 
-  protected <R> void createAsyncTask(CompletableFuture<R> future, ThrowingSupplier<R> executor) {
-    Bukkit.getScheduler().runTaskAsynchronously(Perx.getPlugin(), () -> {
-      try {
-        future.complete(executor.execute());
-      } catch (Exception ex) {
+  @Override
+  @CanIgnoreReturnValue
+  public <R> CompletableFuture<R> executeInTransaction(
+      String operation, ThrowingSupplier<R> executor) {
+    Preconditions.checkNotNull(executor, "Executor must not be null");
+    return executeAsync(operation, () -> callInTransaction(executor));
+  }
+
+  @Override
+  @CanIgnoreReturnValue
+  public <R> CompletableFuture<R> executeInTransaction(
+      String operation, ThrowingSupplier<R> executor, long timeout) {
+    Preconditions.checkNotNull(executor, "Executor must not be null");
+    return executeAsync(operation, () -> callInTransaction(executor), timeout);
+  }
+
+  private <R> R callInTransaction(ThrowingSupplier<R> executor) throws SQLException {
+    // while the transaction holds its connection, reads are routed to the primary as well
+    return TransactionManager.callInTransaction(getSourceLoudly(), executor::execute);
+  }
+
+  @Override
+  @CanIgnoreReturnValue
+  public <R> CompletableFuture<R> executeIdempotentAsync(
+      String operation, ThrowingSupplier<R> executor) {
+    Preconditions.checkNotNull(operation, "Operation must not be null");
+    Preconditions.checkNotNull(executor, "Executor must not be null");
+    CompletableFuture<R> future = new CompletableFuture<>();
+    enqueue(future, (__) -> executeWithRetries(future, operation, executor, 0));
+    return future;
+  }
+
+  @Override
+  public void holdUntil(CompletableFuture<?> barrier) {
+    Preconditions.checkNotNull(barrier, "Barrier must not be null");
+    // held back operations proceed even if the barrier failed
+    this.barrier = barrier.handle((__, ex) -> null);
+  }
+
+  /**
+   * Queues {@code task}, which executes the operation of {@code future}, until this database is
+   * loaded and the current barrier completed. If connecting failed and is being retried in the
+   * background, or too many operations wait already, {@code future} fails immediately instead of
+   * waiting for a reconnect.
+   */
+  private <R> void enqueue(CompletableFuture<R> future, ThrowingConsumer<PerxDatabase> task) {
+    CompletableFuture<?> barrier = this.barrier;
+    if (!barrier.isDone()) {
+      barrier.whenComplete((__, ex) -> enqueue(future, task));
+      return;
+    }
+    @Nullable String rejection = null;
+    synchronized (lock) {
+      if (state != DatabaseState.LOADED) {
+        if (closed)
+          rejection = "Database is closed";
+        else if (unavailable || state == DatabaseState.ERROR)
+          rejection = "Database is unavailable";
+        else if (!queue.offer(task))
+          rejection = "Too many operations are waiting for the database to connect";
+        else return;
+      }
+    }
+    if (rejection == null && queue(task)) return;
+    future.completeExceptionally(new DatabaseUnavailableException(
+        rejection != null ? rejection : "Database is unavailable"));
+  }
+
+  private <R> void executeWithRetries(
+      CompletableFuture<R> future, String operation, ThrowingSupplier<R> executor, int attempt) {
+    if (future.isDone()) return;
+    CompletableFuture<R> task = new CompletableFuture<>();
+    // propagate cancellation of the caller's future to the current attempt
+    future.whenComplete((__, ex) -> {
+      if (future.isCancelled()) task.cancel(false);
+    });
+    createAsyncTask(task, operation, executor);
+    task.whenComplete((result, ex) -> {
+      @Nullable CircuitBreaker breaker = this.breaker;
+      if (ex == null) {
+        future.complete(result);
+      } else if (breaker == null || attempt >= breaker.getSettings().retries()
+          || ex instanceof DatabaseUnavailableException
+          || ex instanceof SQLTimeoutException
+          || !CircuitBreaker.isDatabaseFailure(ex)) {
         future.completeExceptionally(ex);
+      } else {
+        long delay = breaker.getSettings().retryBackoff() << attempt;
+        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS)
+            .execute(() -> executeWithRetries(future, operation, executor, attempt + 1));
       }
     });
   }
 
+  protected <R> void createAsyncTask(
+      CompletableFuture<R> future, String operation, ThrowingSupplier<R> executor) {
+    @Nullable DatabaseExecutor service = this.executor;
+    createAsyncTask(future, operation, executor, this.breaker,
+        service != null ? service.getSettings().operationTimeout() : 0);
+  }
+
+  /**
+   * Executes {@code executor} on the database executor and completes {@code future} with its
+   * outcome. The operation fails with a {@code SQLTimeoutException} once it exceeds
+   * {@code timeout} milliseconds, upon which its statements are cancelled. If {@code future} is
+   * cancelled by the caller, the statements are cancelled likewise. The execution time and
+   * outcome are recorded in the metrics under {@code operation}.
+   */
+  private <R> void createAsyncTask(
+      CompletableFuture<R> future,
+      String operation,
+      ThrowingSupplier<R> executor,
+      @Nullable CircuitBreaker breaker,
+      long timeout) {
+    @Nullable DatabaseExecutor service = this.executor;
+    if (service == null) {
+      future.completeExceptionally(new IllegalStateException("Database is not connected"));
+      return;
+    }
+    if (breaker != null && !breaker.tryAcquire()) {
+      future.completeExceptionally(new DatabaseUnavailableException("Database is degraded"));
+      return;
+    }
+    DatabaseOperation context = DatabaseOperation.create(timeout);
+    if (timeout != 0)
+      CompletableFuture.delayedExecutor(timeout, TimeUnit.MILLISECONDS).execute(() -> {
+        if (!future.completeExceptionally(new SQLTimeoutException(
+            "Database operation exceeded " + timeout + "ms"))) return;
+        service.recordTimeout();
+        context.cancel();
+      });
+    future.whenComplete((__, ex) -> {
+      if (future.isCancelled() && context.cancel())
+        service.recordCancellation();
+    });
+    try {
+      service.execute(() -> {
+        if (future.isDone()) {
+          // timed out or cancelled while waiting for execution
+          if (breaker != null) breaker.onIgnored();
+          return;
+        }
+        context.bind();
+        long start = System.nanoTime();
+        try {
+          R result = executor.execute();
+          metrics.record(operation, System.nanoTime() - start, context.isCancelled());
+          if (breaker != null) breaker.onSuccess();
+          future.complete(result);
+        } catch (Exception ex) {
+          metrics.record(operation, System.nanoTime() - start, true);
+          if (breaker != null) {
+            if (future.isCancelled()) breaker.onIgnored();
+            else if (CircuitBreaker.isDatabaseFailure(ex)) breaker.onFailure();
+            else breaker.onSuccess();
+          }
+          future.completeExceptionally(ex);
+        } finally {
+          context.unbind();
+        }
+      });
+    } catch (RejectedExecutionException ex) {
+      if (breaker != null) breaker.onIgnored();
+      future.completeExceptionally(ex);
+    }
+  }
+
   protected void executeQueue() {
     for (@Nullable ThrowingConsumer<PerxDatabase> c; (c = queue.poll()) != null; ) {
       try {
@@ -0,0 +1,106 @@
+package io.github.aparx.perx.database;
+
+import com.google.common.base.Preconditions;
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.db.DatabaseType;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The syntax of a single statement, that inserts a row or updates the row that conflicts with
+ * it on a unique key, as understood by a dialect.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 15:04
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public enum UpsertSyntax {
+
+  /** {@code INSERT ... ON DUPLICATE KEY UPDATE}, as understood by MySQL and MariaDB */
+  ON_DUPLICATE_KEY,
+  /** {@code INSERT ... ON CONFLICT (...) DO UPDATE}, as understood by PostgreSQL and SQLite */
+  ON_CONFLICT,
+  /** {@code MERGE INTO ... KEY (...)}, as understood by H2 */
+  MERGE,
+  /** No native upsert, thus rows are looked up and then either inserted or updated */
+  NONE;
+
+  public boolean isSupported() {
+    return this != NONE;
+  }
+
+  /**
+   * Creates the upsert statement of this syntax, taking one argument for each of the
+   * {@code keyColumns} followed by one for each of the {@code updateColumns}.
+   *
+   * @param databaseType  the type used to escape the table and column names
+   * @param table         the table to upsert into
+   * @param keyColumns    the columns of the unique key, whose conflict results in an update
+   * @param updateColumns the columns to update on a conflict
+   * @return the upsert statement
+   * @throws UnsupportedOperationException if this syntax is {@code NONE}
+   */
+  public String createStatement(
+      DatabaseType databaseType,
+      String table,
+      List<String> keyColumns,
+      List<String> updateColumns) {
+    Preconditions.checkNotNull(databaseType, "Database type must not be null");
+    Preconditions.checkNotNull(table, "Table must not be null");
+    Preconditions.checkArgument(!keyColumns.isEmpty(), "Key columns must not be empty");
+    Preconditions.checkArgument(!updateColumns.isEmpty(), "Update columns must not be empty");
+    if (!isSupported())
+      throw new UnsupportedOperationException("Native upserts are not supported");
+    Function<String, String> escape = (name) -> {
+      StringBuilder builder = new StringBuilder();
+      databaseType.appendEscapedEntityName(builder, name);
+      return builder.toString();
+    };
+    List<String> columns = new ArrayList<>(keyColumns);
+    columns.addAll(updateColumns);
+    StringBuilder builder = new StringBuilder(this == MERGE ? "MERGE INTO " : "INSERT INTO ")
+        .append(escape.apply(table))
+        .append(" (").append(join(columns, escape)).append(')');
+    if (this == MERGE)
+      builder.append(" KEY (").append(join(keyColumns, escape)).append(')');
+    builder.append(" VALUES (").append(join(columns, (__) -> "?")).append(')');
+    if (this == ON_DUPLICATE_KEY)
+      builder.append(" ON DUPLICATE KEY UPDATE ")
+          .append(join(updateColumns, (name) -> {
+            String column = escape.apply(name);
+            return column + " = VALUES(" + column + ")";
+          }));
+    else if (this == ON_CONFLICT)
+      builder.append(" ON CONFLICT (").append(join(keyColumns, escape)).append(')')
+          .append(" DO UPDATE SET ")
+          .append(join(updateColumns, (name) -> {
+            String column = escape.apply(name);
+            return column + " = EXCLUDED." + column;
+          }));
+    return builder.toString();
+  }
+
+  /**
+   * Returns the status of an upsert of this syntax, that changed {@code rows} rows.
+   * <p>Only {@code ON_DUPLICATE_KEY} reports whether a row was created or updated, namely by
+   * one or two changed rows. Other syntaxes just report the amount of rows changed.
+   *
+   * @param rows the update count returned by the upsert statement
+   * @return the status of the upsert
+   */
+  public Dao.CreateOrUpdateStatus toStatus(int rows) {
+    if (this == ON_DUPLICATE_KEY)
+      return new Dao.CreateOrUpdateStatus(rows == 1, rows == 2, Math.min(rows, 1));
+    return new Dao.CreateOrUpdateStatus(false, false, rows);
+  }
+
+  private static String join(List<String> names, Function<String, String> mapper) {
+    return String.join(", ", names.stream().map(mapper).toList());
+  }
+
+}
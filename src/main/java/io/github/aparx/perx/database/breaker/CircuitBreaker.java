@@ -0,0 +1,175 @@
+package io.github.aparx.perx.database.breaker;
+
+import com.google.common.base.Preconditions;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLSyntaxErrorException;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker that opens once the failure rate of the recent operations exceeds a
+ * threshold, so that operations fail fast instead of piling up on a failing database.
+ * <p>After the open duration, a single probing operation is permitted. If it succeeds, the
+ * circuit closes again, otherwise it opens for twice the previous duration.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 09:38
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public class CircuitBreaker {
+
+  private final CircuitBreakerSettings settings;
+  private final LongSupplier clock;
+  private final Consumer<CircuitState> listener;
+
+  /** Ring buffer of the recent outcomes, true marking a failure */
+  private final boolean[] window;
+  private int windowIndex;
+  private int calls;
+  private int failures;
+
+  private CircuitState state = CircuitState.CLOSED;
+  private long openedAt;
+  private long openDuration;
+  private boolean probing;
+
+  public CircuitBreaker(CircuitBreakerSettings settings, Consumer<CircuitState> listener) {
+    this(settings, listener, System::currentTimeMillis);
+  }
+
+  public CircuitBreaker(
+      CircuitBreakerSettings settings, Consumer<CircuitState> listener, LongSupplier clock) {
+    Preconditions.checkNotNull(settings, "Settings must not be null");
+    Preconditions.checkNotNull(listener, "Listener must not be null");
+    Preconditions.checkNotNull(clock, "Clock must not be null");
+    this.settings = settings;
+    this.listener = listener;
+    this.clock = clock;
+    this.window = new boolean[settings.windowSize()];
+    this.openDuration = settings.openDuration();
+  }
+
+  /**
+   * Returns true if {@code throwable} was caused by the database being unavailable, as opposed
+   * to an invalid statement or violated constraint, that the database rejected while working.
+   *
+   * @param throwable the throwable to test, including its causes
+   * @return true if {@code throwable} indicates a failing database
+   */
+  public static boolean isDatabaseFailure(@Nullable Throwable throwable) {
+    // drivers are wrapped by ORMLite, thus the innermost SQL exception is the most specific
+    @Nullable SQLException cause = null;
+    for (; throwable != null; throwable = throwable.getCause())
+      if (throwable instanceof SQLException sqlException) cause = sqlException;
+    if (cause == null
+        || cause instanceof SQLIntegrityConstraintViolationException
+        || cause instanceof SQLSyntaxErrorException
+        || cause instanceof SQLDataException)
+      return false;
+    @Nullable String sqlState = cause.getSQLState();
+    // SQL states of class 22 (data), 23 (constraint) and 42 (syntax) are no failures either
+    return sqlState == null || !(sqlState.startsWith("22")
+        || sqlState.startsWith("23") || sqlState.startsWith("42"));
+  }
+
+  public CircuitBreakerSettings getSettings() {
+    return settings;
+  }
+
+  public synchronized CircuitState getState() {
+    return state;
+  }
+
+  /**
+   * Returns true if an operation may be executed now. Every permitted operation must be
+   * followed by a call to either {@link #onSuccess()}, {@link #onFailure()} or
+   * {@link #onIgnored()}.
+   *
+   * @return true if the operation may be executed, false if it must be rejected
+   */
+  public boolean tryAcquire() {
+    if (!settings.enabled()) return true;
+    boolean halfOpened;
+    synchronized (this) {
+      if (state == CircuitState.CLOSED) return true;
+      if (probing) return false;
+      if (state == CircuitState.OPEN && clock.getAsLong() - openedAt < openDuration)
+        return false;
+      halfOpened = (state == CircuitState.OPEN);
+      state = CircuitState.HALF_OPEN;
+      probing = true;
+    }
+    if (halfOpened) listener.accept(CircuitState.HALF_OPEN);
+    return true;
+  }
+
+  /** Records a permitted operation that succeeded. */
+  public void onSuccess() {
+    if (!settings.enabled()) return;
+    @Nullable CircuitState transition = null;
+    synchronized (this) {
+      if (state == CircuitState.HALF_OPEN) {
+        resetWindow();
+        openDuration = settings.openDuration();
+        probing = false;
+        transition = state = CircuitState.CLOSED;
+      } else if (state == CircuitState.CLOSED) {
+        record(false);
+      }
+    }
+    if (transition != null) listener.accept(transition);
+  }
+
+  /** Records a permitted operation that failed due to the database. */
+  public void onFailure() {
+    if (!settings.enabled()) return;
+    @Nullable CircuitState transition = null;
+    synchronized (this) {
+      if (state == CircuitState.HALF_OPEN) {
+        openDuration = Math.min(2 * openDuration, settings.maximumOpenDuration());
+        transition = open();
+      } else if (state == CircuitState.CLOSED) {
+        record(true);
+        if (calls >= settings.minimumCalls()
+            && 100L * failures >= (long) settings.failureRateThreshold() * calls)
+          transition = open();
+      }
+    }
+    if (transition != null) listener.accept(transition);
+  }
+
+  /** Records a permitted operation that was not executed after all. */
+  public synchronized void onIgnored() {
+    if (state == CircuitState.HALF_OPEN) probing = false;
+  }
+
+  private CircuitState open() {
+    resetWindow();
+    probing = false;
+    openedAt = clock.getAsLong();
+    return (state = CircuitState.OPEN);
+  }
+
+  private void record(boolean failure) {
+    if (calls == window.length) {
+      if (window[windowIndex]) --failures;
+    } else ++calls;
+    window[windowIndex] = failure;
+    if (failure) ++failures;
+    windowIndex = (windowIndex + 1) % window.length;
+  }
+
+  private void resetWindow() {
+    calls = 0;
+    failures = 0;
+    windowIndex = 0;
+  }
+
+}
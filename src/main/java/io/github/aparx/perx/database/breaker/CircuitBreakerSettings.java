@@ -0,0 +1,51 @@
+package io.github.aparx.perx.database.breaker;
+
+import com.google.common.base.Preconditions;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+/**
+ * Settings of the circuit breaker guarding all database operations.
+ *
+ * @param enabled              true if operations are rejected while the database is failing
+ * @param windowSize           the amount of recent outcomes the failure rate is computed of
+ * @param minimumCalls         the amount of outcomes required before the circuit can open
+ * @param failureRateThreshold the percentage of failures at which the circuit opens
+ * @param openDuration         the milliseconds the circuit stays open before probing, doubled
+ *                             for every failed probe
+ * @param maximumOpenDuration  the maximum milliseconds the circuit stays open
+ * @param retries              the amount of retries of failed idempotent operations
+ * @param retryBackoff         the milliseconds before the first retry, doubled for every retry
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 09:20
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public record CircuitBreakerSettings(
+    boolean enabled,
+    int windowSize,
+    int minimumCalls,
+    int failureRateThreshold,
+    long openDuration,
+    long maximumOpenDuration,
+    int retries,
+    long retryBackoff
+) {
+
+  public static final CircuitBreakerSettings DEFAULT =
+      new CircuitBreakerSettings(true, 20, 10, 50, 5000, 60000, 3, 200);
+
+  public CircuitBreakerSettings {
+    Preconditions.checkArgument(windowSize >= 1, "Window size must be at least one");
+    Preconditions.checkArgument(minimumCalls >= 1, "Minimum calls must be at least one");
+    Preconditions.checkArgument(minimumCalls <= windowSize, "Minimum calls exceed window");
+    Preconditions.checkArgument(failureRateThreshold > 0 && failureRateThreshold <= 100,
+        "Failure rate threshold must be within (0, 100]");
+    Preconditions.checkArgument(openDuration > 0, "Open duration must be positive");
+    Preconditions.checkArgument(maximumOpenDuration >= openDuration,
+        "Maximum open duration must not be less than the open duration");
+    Preconditions.checkArgument(retries >= 0, "Retries must not be negative");
+    Preconditions.checkArgument(retryBackoff > 0, "Retry backoff must be positive");
+  }
+
+}
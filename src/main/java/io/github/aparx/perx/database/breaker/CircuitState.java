@@ -0,0 +1,19 @@
+package io.github.aparx.perx.database.breaker;
+
+/**
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 09:12
+ * @since 1.0
+ */
+public enum CircuitState {
+
+  /** Operations are executed, while their outcomes are recorded */
+  CLOSED,
+
+  /** Operations are rejected without being executed, until the open duration elapsed */
+  OPEN,
+
+  /** A single probing operation is executed, deciding whether to close or open again */
+  HALF_OPEN
+
+}
@@ -0,0 +1,19 @@
+package io.github.aparx.perx.database.breaker;
+
+import java.sql.SQLException;
+
+/**
+ * Thrown if a database operation is rejected without being executed, as the circuit breaker
+ * is open.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 09:26
+ * @since 1.0
+ */
+public class DatabaseUnavailableException extends SQLException {
+
+  public DatabaseUnavailableException(String reason) {
+    super(reason);
+  }
+
+}
@@ -0,0 +1,102 @@
+package io.github.aparx.perx.database.data;
+
+import com.google.common.base.Preconditions;
+import com.j256.ormlite.dao.BaseDaoImpl;
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+import io.github.aparx.perx.database.DatabaseDialect;
+import io.github.aparx.perx.database.UpsertSyntax;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Upserts the models of a DAO using a single native statement, instead of looking up their ID
+ * first as {@code createOrUpdate} does. Models conflicting with an existing row on the key
+ * columns update all other columns of that row, whereas generated IDs are never written.
+ * <p>If the dialect does not understand native upserts, {@code createOrUpdate} is used.
+ *
+ * @param <T>  the model type
+ * @param <ID> the ID type of the model
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 15:12
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public class ModelUpserter<T, ID> {
+
+  private final BaseDaoImpl<T, ID> dao;
+  private final Set<String> keyColumns;
+
+  private volatile @Nullable Statement statement;
+
+  /**
+   * @param dao        the DAO whose models to upsert
+   * @param keyColumns the columns of the unique key, that identify the row to update
+   */
+  public ModelUpserter(BaseDaoImpl<T, ID> dao, String... keyColumns) {
+    Preconditions.checkNotNull(dao, "DAO must not be null");
+    Preconditions.checkArgument(keyColumns.length != 0, "Key columns must not be empty");
+    this.dao = dao;
+    this.keyColumns = Set.of(keyColumns);
+  }
+
+  /**
+   * Inserts {@code model}, or updates the row conflicting with it on the key columns. This
+   * method is blocking and must be called asynchronously.
+   *
+   * @param dialect the dialect of the database of the DAO
+   * @param model   the model to upsert
+   * @return the status of the upsert, which may not tell whether a row was created or updated
+   * @throws SQLException if the statement failed
+   * @see UpsertSyntax#toStatus(int)
+   */
+  public Dao.CreateOrUpdateStatus upsert(DatabaseDialect dialect, T model) throws SQLException {
+    Preconditions.checkNotNull(dialect, "Dialect must not be null");
+    Preconditions.checkNotNull(model, "Model must not be null");
+    UpsertSyntax syntax = dialect.getUpsertSyntax();
+    if (!syntax.isSupported()) return dao.createOrUpdate(model);
+    Statement statement = getStatement(syntax);
+    Object[] args = new Object[statement.fieldTypes.length];
+    for (int i = 0; i < args.length; ++i)
+      args[i] = statement.fieldTypes[i].extractJavaFieldToSqlArgValue(model);
+    ConnectionSource source = dao.getConnectionSource();
+    String table = dao.getTableInfo().getTableName();
+    // the connection of an ongoing transaction is returned, if there is one
+    DatabaseConnection connection = source.getReadWriteConnection(table);
+    try {
+      return syntax.toStatus(connection.update(statement.sql, args, statement.fieldTypes));
+    } finally {
+      source.releaseConnection(connection);
+    }
+  }
+
+  private Statement getStatement(UpsertSyntax syntax) {
+    @Nullable Statement statement = this.statement;
+    if (statement != null && statement.syntax == syntax) return statement;
+    List<FieldType> keys = new ArrayList<>();
+    List<FieldType> updates = new ArrayList<>();
+    for (FieldType fieldType : dao.getTableInfo().getFieldTypes()) {
+      if (fieldType.isGeneratedId() || fieldType.isForeignCollection()) continue;
+      (keyColumns.contains(fieldType.getColumnName()) ? keys : updates).add(fieldType);
+    }
+    Preconditions.checkState(keys.size() == keyColumns.size(), "Unknown key columns");
+    String sql = syntax.createStatement(dao.getConnectionSource().getDatabaseType(),
+        dao.getTableInfo().getTableName(),
+        keys.stream().map(FieldType::getColumnName).toList(),
+        updates.stream().map(FieldType::getColumnName).toList());
+    List<FieldType> fieldTypes = new ArrayList<>(keys);
+    fieldTypes.addAll(updates);
+    return (this.statement = new Statement(syntax, sql, fieldTypes.toArray(FieldType[]::new)));
+  }
+
+  private record Statement(UpsertSyntax syntax, String sql, FieldType[] fieldTypes) {}
+
+}
@@ -0,0 +1,117 @@
+package io.github.aparx.perx.database.data.change;
+
+import com.j256.ormlite.dao.BaseDaoImpl;
+import com.j256.ormlite.stmt.DeleteBuilder;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.table.DatabaseTableConfig;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * All methods of this DAO are blocking and must be called asynchronously.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-22 09:24
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public class ChangeLogDao extends BaseDaoImpl<ChangeLogModel, Long> {
+
+  public ChangeLogDao() throws SQLException {
+    super(ChangeLogModel.class);
+  }
+
+  public ChangeLogDao(
+      ConnectionSource connectionSource,
+      Class<ChangeLogModel> dataClass)
+      throws SQLException {
+    super(connectionSource, dataClass);
+  }
+
+  public ChangeLogDao(
+      ConnectionSource connectionSource,
+      DatabaseTableConfig<ChangeLogModel> tableConfig)
+      throws SQLException {
+    super(connectionSource, tableConfig);
+  }
+
+  /**
+   * Appends a change of {@code type} for every target within {@code targets}.
+   *
+   * @param type    the type of the changes
+   * @param targets the targets that changed
+   * @param origin  the server instance that made the changes
+   * @return the amount of rows inserted
+   * @throws SQLException if the insert failed
+   */
+  public int append(ChangeType type, Collection<String> targets, String origin)
+      throws SQLException {
+    if (targets.isEmpty()) return 0;
+    long now = System.currentTimeMillis();
+    List<ChangeLogModel> models = new ArrayList<>(targets.size());
+    for (String target : targets)
+      models.add(new ChangeLogModel(type, target, origin, now));
+    return create(models);
+  }
+
+  /**
+   * Returns at most {@code limit} changes with a revision greater than {@code revision},
+   * ordered by their revision.
+   *
+   * @param revision the last revision already seen
+   * @param limit    the maximum amount of changes to return
+   * @return the changes following {@code revision}
+   * @throws SQLException if the query failed
+   */
+  public List<ChangeLogModel> findAfter(long revision, long limit) throws SQLException {
+    return queryBuilder()
+        .orderBy(ChangeLogModel.REVISION_FIELD_NAME, true)
+        .limit(limit)
+        .where().gt(ChangeLogModel.REVISION_FIELD_NAME, revision)
+        .query();
+  }
+
+  /**
+   * Returns the changes of the given {@code revisions} that exist, ordered by their revision.
+   *
+   * @param revisions the revisions to look up
+   * @return the existing changes of given revisions
+   * @throws SQLException if the query failed
+   */
+  public List<ChangeLogModel> findRevisions(Collection<Long> revisions) throws SQLException {
+    if (revisions.isEmpty()) return List.of();
+    return queryBuilder()
+        .orderBy(ChangeLogModel.REVISION_FIELD_NAME, true)
+        .where().in(ChangeLogModel.REVISION_FIELD_NAME, revisions)
+        .query();
+  }
+
+  /** Returns the latest revision of the change log, or zero if it is empty. */
+  public long getLatestRevision() throws SQLException {
+    @Nullable ChangeLogModel latest = queryBuilder()
+        .orderBy(ChangeLogModel.REVISION_FIELD_NAME, false)
+        .limit(1L)
+        .queryForFirst();
+    return (latest != null ? latest.getRevision() : 0);
+  }
+
+  /**
+   * Deletes all changes that were made before {@code timestamp}.
+   *
+   * @param timestamp the epoch milliseconds before which changes are deleted
+   * @return the amount of rows deleted
+   * @throws SQLException if the statement failed
+   */
+  public int deleteBefore(long timestamp) throws SQLException {
+    DeleteBuilder<ChangeLogModel, Long> deleteBuilder = deleteBuilder();
+    deleteBuilder.where().lt(ChangeLogModel.CREATED_FIELD_NAME, timestamp);
+    return deleteBuilder.delete();
+  }
+
+}
@@ -0,0 +1,86 @@
+package io.github.aparx.perx.database.data.change;
+
+import com.j256.ormlite.field.DataType;
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.table.DatabaseTable;
+import io.github.aparx.perx.database.data.DatabaseModel;
+
+/**
+ * Append-only table of mutations, whose monotonic revision allows other servers to fetch only
+ * the changes they have not seen yet.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-22 09:18
+ * @since 1.0
+ */
+@DatabaseTable(tableName = "change_log", daoClass = ChangeLogDao.class)
+public class ChangeLogModel implements DatabaseModel<Long> {
+
+  public static final String REVISION_FIELD_NAME = "revision";
+  public static final String TYPE_FIELD_NAME = "change_type";
+  public static final String TARGET_FIELD_NAME = "target";
+  public static final String ORIGIN_FIELD_NAME = "origin";
+  public static final String CREATED_FIELD_NAME = "created_at";
+
+  @DatabaseField(generatedId = true, columnName = REVISION_FIELD_NAME)
+  private long revision;
+
+  @DatabaseField(columnName = TYPE_FIELD_NAME, dataType = DataType.ENUM_STRING,
+      canBeNull = false)
+  private ChangeType type;
+
+  @DatabaseField(columnName = TARGET_FIELD_NAME, canBeNull = false)
+  private String target;
+
+  /** The server instance that made the change */
+  @DatabaseField(columnName = ORIGIN_FIELD_NAME, canBeNull = false)
+  private String origin;
+
+  @DatabaseField(columnName = CREATED_FIELD_NAME, index = true)
+  private long createdAt;
+
+  public ChangeLogModel() {}
+
+  public ChangeLogModel(ChangeType type, String target, String origin, long createdAt) {
+    this.type = type;
+    this.target = target;
+    this.origin = origin;
+    this.createdAt = createdAt;
+  }
+
+  @Override
+  public Long getId() {
+    return revision;
+  }
+
+  public long getRevision() {
+    return revision;
+  }
+
+  public ChangeType getType() {
+    return type;
+  }
+
+  public String getTarget() {
+    return target;
+  }
+
+  public String getOrigin() {
+    return origin;
+  }
+
+  public long getCreatedAt() {
+    return createdAt;
+  }
+
+  @Override
+  public String toString() {
+    return "ChangeLogModel{" +
+        "revision=" + revision +
+        ", type=" + type +
+        ", target='" + target + '\'' +
+        ", origin='" + origin + '\'' +
+        ", createdAt=" + createdAt +
+        '}';
+  }
+}
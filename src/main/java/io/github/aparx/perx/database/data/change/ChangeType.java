@@ -0,0 +1,21 @@
+package io.github.aparx.perx.database.data.change;
+
+/**
+ * The kind of mutation recorded within the change log, which determines what its target is.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-22 09:12
+ * @since 1.0
+ */
+public enum ChangeType {
+
+  /** A group row or its permissions changed, the target is the group's name */
+  GROUP,
+
+  /** The memberships of a single user changed, the target is the user's UUID */
+  MEMBERSHIP,
+
+  /** The memberships of all users of a group changed, the target is the group's name */
+  GROUP_MEMBERSHIP
+
+}
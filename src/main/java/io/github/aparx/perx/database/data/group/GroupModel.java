@@ -21,7 +21,12 @@ public class GroupModel implements DatabaseModel<String> {
 
   private static final Gson GSON = new Gson();
 
-  @DatabaseField(id = true)
+  /** The value of the legacy permissions column, once migrated to {@link GroupPermissionModel} */
+  public static final String EMPTY_PERMISSIONS = "{}";
+
+  public static final String ID_FIELD_NAME = "id";
+
+  @DatabaseField(id = true, columnName = ID_FIELD_NAME)
   private String id;
 
   /** The lower the priority, the more important this group is */
@@ -37,9 +42,15 @@ public class GroupModel implements DatabaseModel<String> {
   @DatabaseField
   private boolean isDefault;
 
-  /** All permissions as a JSON string */
+  /**
+   * All permissions as a JSON string.
+   *
+   * @deprecated permissions are stored in {@link GroupPermissionModel} rows, this column only
+   * remains as the source of the migration and is emptied afterwards.
+   */
+  @Deprecated
   @DatabaseField(canBeNull = false)
-  private String permissions;
+  private String permissions = EMPTY_PERMISSIONS;
 
   public GroupModel() {}
 
@@ -94,6 +105,11 @@ public class GroupModel implements DatabaseModel<String> {
     this.priority = priority;
   }
 
+  /** Returns true if the legacy permissions column still contains unmigrated permissions. */
+  public boolean hasLegacyPermissions() {
+    return permissions != null && !EMPTY_PERMISSIONS.equals(permissions);
+  }
+
   public Map<String, Boolean> getPermissions() {
     return stringToPermMap(permissions);
   }
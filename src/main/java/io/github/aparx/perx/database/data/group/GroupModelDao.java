@@ -5,6 +5,7 @@ import com.j256.ormlite.support.ConnectionSource;
 import com.j256.ormlite.table.DatabaseTableConfig;
 import io.github.aparx.perx.Perx;
 import io.github.aparx.perx.database.Database;
+import io.github.aparx.perx.database.data.ModelUpserter;
 import io.github.aparx.perx.events.PerxGroupMutateEvent;
 import io.github.aparx.perx.events.PerxMutateType;
 import io.github.aparx.perx.group.PerxGroup;
@@ -19,12 +20,15 @@ import java.util.function.Function;
 
 /**
  * @author aparx (Vinzent Z.)
- * @version 2024-01-07 06:25
+ * @version 2024-01-23 18:03
  * @since 1.0
  */
 @DefaultQualifier(NonNull.class)
 public class GroupModelDao extends BaseDaoImpl<GroupModel, String> {
 
+  private final ModelUpserter<GroupModel, String> upserter =
+      new ModelUpserter<>(this, GroupModel.ID_FIELD_NAME);
+
   public GroupModelDao() throws SQLException {
     super(GroupModel.class);
   }
@@ -44,28 +48,85 @@ public class GroupModelDao extends BaseDaoImpl<GroupModel, String> {
   }
 
   public CompletableFuture<Boolean> create(Database database, PerxGroup group) {
+    return create(database, group, () -> {});
+  }
+
+  /**
+   * Creates {@code group} along with the rows depending on it, within a single transaction.
+   * Thus either the group and all its dependents are written, or none of them.
+   *
+   * @param database   the database to execute on
+   * @param group      the group to create
+   * @param dependents the blocking write of the rows depending on the group, that is only
+   *                   executed if the group was created
+   * @return a future of true if the group was created
+   */
+  public CompletableFuture<Boolean> create(
+      Database database, PerxGroup group, Database.ThrowingRunnable dependents) {
     return publishEvent(PerxMutateType.CREATE, group).thenCompose((__) -> {
-      return database.executeAsync(() -> create(group.toModel())).thenApply((x) -> x > 0);
+      return database.executeInTransaction("group.create", () -> {
+        if (create(group.toModel()) < 1) return false;
+        dependents.run();
+        return true;
+      });
     });
   }
 
   public CompletableFuture<CreateOrUpdateStatus> upsert(Database database, PerxGroup group) {
+    return upsert(database, group, () -> {});
+  }
+
+  /**
+   * Upserts {@code group} along with the rows depending on it, within a single transaction.
+   * Thus either the group and all its dependents are written, or none of them.
+   *
+   * @param database   the database to execute on
+   * @param group      the group to upsert
+   * @param dependents the blocking write of the rows depending on the group
+   * @return a future of the status of the group's upsert
+   */
+  public CompletableFuture<CreateOrUpdateStatus> upsert(
+      Database database, PerxGroup group, Database.ThrowingRunnable dependents) {
     return publishEvent(PerxMutateType.UPSERT, group).thenCompose((__) -> {
-      return database.executeAsync(() -> createOrUpdate(group.toModel()));
+      return database.executeInTransaction("group.upsert", () -> {
+        CreateOrUpdateStatus status = upserter.upsert(database.getDialect(), group.toModel());
+        dependents.run();
+        return status;
+      });
     });
   }
 
   public CompletableFuture<Integer> update(Database database, PerxGroup group) {
     return publishEvent(PerxMutateType.UPDATE, group).thenCompose((__) -> {
-      return database.executeAsync(() -> update(group.toModel()));
+      return database.executeAsync("group.update", () -> update(group.toModel()));
     });
   }
 
   public CompletableFuture<Boolean> delete(Database database, String name) {
+    return delete(database, name, () -> {});
+  }
+
+  /**
+   * Deletes the group named {@code name} along with the rows depending on it, within a single
+   * transaction. Thus either the group and all its dependents are deleted, or none of them.
+   * <p>The operation is not bound to the operation timeout, as a group may have many members.
+   *
+   * @param database   the database to execute on
+   * @param name       the name of the group to delete
+   * @param dependents the blocking deletion of the rows depending on the group, that is only
+   *                   executed if the group existed
+   * @return a future of true if the group existed and was deleted
+   */
+  public CompletableFuture<Boolean> delete(
+      Database database, String name, Database.ThrowingRunnable dependents) {
     final String finalName = PerxGroup.transformKey(name);
     @Nullable PerxGroup group = Perx.getInstance().getGroupService().getRepository().get(name);
     Function<? super Void, CompletableFuture<Boolean>> composer = (__) ->
-        database.executeAsync(() -> deleteById(finalName)).thenApply((x) -> x > 0);
+        database.executeInTransaction("group.delete", () -> {
+          if (deleteById(finalName) < 1) return false;
+          dependents.run();
+          return true;
+        }, 0);
     if (group != null)
       return publishEvent(PerxMutateType.DELETE, group).thenCompose(composer);
     return composer.apply(null);
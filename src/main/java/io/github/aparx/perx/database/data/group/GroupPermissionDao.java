@@ -0,0 +1,198 @@
+package io.github.aparx.perx.database.data.group;
+
+import com.j256.ormlite.dao.BaseDaoImpl;
+import com.j256.ormlite.stmt.DeleteBuilder;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.table.DatabaseTableConfig;
+import io.github.aparx.perx.database.Database;
+import io.github.aparx.perx.database.DatabaseDialect;
+import io.github.aparx.perx.database.data.ModelUpserter;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 17:58
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public class GroupPermissionDao extends BaseDaoImpl<GroupPermissionModel, Long> {
+
+  private final ModelUpserter<GroupPermissionModel, Long> upserter = new ModelUpserter<>(this,
+      GroupPermissionModel.GROUP_ID_FIELD_NAME, GroupPermissionModel.NODE_FIELD_NAME);
+
+  public GroupPermissionDao() throws SQLException {
+    super(GroupPermissionModel.class);
+  }
+
+  public GroupPermissionDao(
+      ConnectionSource connectionSource,
+      Class<GroupPermissionModel> dataClass)
+      throws SQLException {
+    super(connectionSource, dataClass);
+  }
+
+  public GroupPermissionDao(
+      ConnectionSource connectionSource,
+      DatabaseTableConfig<GroupPermissionModel> tableConfig)
+      throws SQLException {
+    super(connectionSource, tableConfig);
+  }
+
+  /**
+   * Sets the permission {@code node} of the group {@code groupId} to {@code value}, by either
+   * updating the existing row or inserting a new one using a single statement.
+   *
+   * @param database the database to execute on
+   * @param groupId  the group the permission belongs to
+   * @param node     the permission node
+   * @param value    true if the permission is given, false if denied
+   * @return a future completing with true if a row was changed
+   */
+  public CompletableFuture<Boolean> upsert(
+      Database database, String groupId, String node, boolean value) {
+    return database.executeAsync("group_permission.upsert",
+            () -> upsert(database.getDialect(), new GroupPermissionModel(groupId, node, value)))
+        .thenApply((status) -> status.getNumLinesChanged() > 0);
+  }
+
+  /**
+   * Inserts {@code model}, or updates the value of the same node of the same group, using a
+   * single statement. This method is blocking and must be called asynchronously.
+   *
+   * @param dialect the dialect of the database
+   * @param model   the permission to upsert
+   * @return the status of the upsert
+   * @throws SQLException if the statement failed
+   * @see ModelUpserter#upsert(DatabaseDialect, Object)
+   */
+  public CreateOrUpdateStatus upsert(DatabaseDialect dialect, GroupPermissionModel model)
+      throws SQLException {
+    return upserter.upsert(dialect, model);
+  }
+
+  public CompletableFuture<Boolean> delete(Database database, String groupId, String node) {
+    return database.executeAsync("group_permission.delete", () -> {
+      DeleteBuilder<GroupPermissionModel, Long> deleteBuilder = deleteBuilder();
+      deleteBuilder.where()
+          .eq(GroupPermissionModel.GROUP_ID_FIELD_NAME, groupId).and()
+          .eq(GroupPermissionModel.NODE_FIELD_NAME, node);
+      return deleteBuilder.delete();
+    }).thenApply((x) -> x > 0);
+  }
+
+  /**
+   * Replaces all permissions of the group {@code groupId} with {@code permissions}, within a
+   * single transaction.
+   *
+   * @param database    the database to execute on
+   * @param groupId     the group the permissions belong to
+   * @param permissions the permission nodes mapped to their value
+   * @return a future completing when the permissions are replaced
+   */
+  public CompletableFuture<@Nullable Void> replace(
+      Database database, String groupId, Map<String, Boolean> permissions) {
+    Map<String, Boolean> copy = Map.copyOf(permissions);
+    return database.executeInTransaction("group_permission.replace",
+        () -> replace(groupId, copy));
+  }
+
+  /**
+   * Replaces all permissions of the group {@code groupId} with {@code permissions}. This method
+   * is blocking and must be called asynchronously, within a transaction so that the group is
+   * never left without permissions.
+   *
+   * @param groupId     the group the permissions belong to
+   * @param permissions the permission nodes mapped to their value
+   * @throws SQLException if a statement failed
+   */
+  public void replace(String groupId, Map<String, Boolean> permissions) throws SQLException {
+    deleteByGroup(groupId);
+    List<GroupPermissionModel> models = toModels(groupId, permissions);
+    if (!models.isEmpty()) create(models);
+  }
+
+  /**
+   * Deletes all permissions of the group {@code groupId}. This method is blocking and must be
+   * called asynchronously.
+   *
+   * @param groupId the group whose permissions to delete
+   * @return the amount of rows deleted
+   * @throws SQLException if the statement failed
+   */
+  public int deleteByGroup(String groupId) throws SQLException {
+    DeleteBuilder<GroupPermissionModel, Long> deleteBuilder = deleteBuilder();
+    deleteBuilder.where().eq(GroupPermissionModel.GROUP_ID_FIELD_NAME, groupId);
+    return deleteBuilder.delete();
+  }
+
+  /**
+   * Inserts all {@code permissions} of the group {@code groupId} that do not exist yet, thus
+   * not overriding permissions already present. This method is blocking and must be called
+   * asynchronously.
+   *
+   * @param groupId     the group the permissions belong to
+   * @param permissions the permission nodes mapped to their value
+   * @return the amount of rows inserted
+   * @throws SQLException if a statement failed
+   */
+  public int insertMissing(String groupId, Map<String, Boolean> permissions)
+      throws SQLException {
+    Set<String> existing = queryForEq(GroupPermissionModel.GROUP_ID_FIELD_NAME, groupId)
+        .stream()
+        .map(GroupPermissionModel::getNode)
+        .collect(Collectors.toSet());
+    List<GroupPermissionModel> models = toModels(groupId, permissions);
+    models.removeIf((model) -> existing.contains(model.getNode()));
+    return (models.isEmpty() ? 0 : create(models));
+  }
+
+  /**
+   * Loads all permissions of all groups with a single query, grouped by their group. This
+   * method is blocking and must be called asynchronously.
+   *
+   * @return a map of group IDs, mapped to their permission nodes and values
+   * @throws SQLException if the query failed
+   */
+  public Map<String, Map<String, Boolean>> findAllGrouped() throws SQLException {
+    Map<String, Map<String, Boolean>> map = new HashMap<>();
+    for (GroupPermissionModel model : queryForAll())
+      map.computeIfAbsent(model.getGroupId(), (__) -> new HashMap<>())
+          .put(model.getNode(), model.getValue());
+    return map;
+  }
+
+  /**
+   * Loads all permissions of the group {@code groupId}. This method is blocking and must be
+   * called asynchronously.
+   *
+   * @param groupId the group whose permissions to load
+   * @return the permission nodes of the group, mapped to their value
+   * @throws SQLException if the query failed
+   */
+  public Map<String, Boolean> findByGroup(String groupId) throws SQLException {
+    Map<String, Boolean> map = new HashMap<>();
+    for (GroupPermissionModel model : queryForEq(GroupPermissionModel.GROUP_ID_FIELD_NAME, groupId))
+      map.put(model.getNode(), model.getValue());
+    return map;
+  }
+
+  private static List<GroupPermissionModel> toModels(
+      String groupId, Map<String, Boolean> permissions) {
+    List<GroupPermissionModel> models = new ArrayList<>(permissions.size());
+    permissions.forEach((node, value) ->
+        models.add(new GroupPermissionModel(groupId, node, value)));
+    return models;
+  }
+
+}
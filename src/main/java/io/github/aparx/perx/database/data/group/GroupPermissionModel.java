@@ -0,0 +1,71 @@
+package io.github.aparx.perx.database.data.group;
+
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.table.DatabaseTable;
+import io.github.aparx.perx.database.data.DatabaseModel;
+
+/**
+ * Normalized table, that uniquely maps a permission node and its value to a group.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-21 18:03
+ * @since 1.0
+ */
+@DatabaseTable(tableName = "group_permission", daoClass = GroupPermissionDao.class)
+public class GroupPermissionModel implements DatabaseModel<Long> {
+
+  public static final String GROUP_ID_FIELD_NAME = "group_id";
+  public static final String NODE_FIELD_NAME = "node";
+  public static final String VALUE_FIELD_NAME = "value";
+
+  @DatabaseField(generatedId = true)
+  private long id;
+
+  @DatabaseField(uniqueCombo = true, columnName = GROUP_ID_FIELD_NAME, canBeNull = false)
+  private String group;
+
+  @DatabaseField(uniqueCombo = true, columnName = NODE_FIELD_NAME, canBeNull = false)
+  private String node;
+
+  @DatabaseField(columnName = VALUE_FIELD_NAME)
+  private boolean value;
+
+  public GroupPermissionModel() {}
+
+  public GroupPermissionModel(String group, String node, boolean value) {
+    this.group = group;
+    this.node = node;
+    this.value = value;
+  }
+
+  @Override
+  public Long getId() {
+    return id;
+  }
+
+  public String getGroupId() {
+    return group;
+  }
+
+  public String getNode() {
+    return node;
+  }
+
+  public boolean getValue() {
+    return value;
+  }
+
+  public void setValue(boolean value) {
+    this.value = value;
+  }
+
+  @Override
+  public String toString() {
+    return "GroupPermissionModel{" +
+        "id=" + id +
+        ", group='" + group + '\'' +
+        ", node='" + node + '\'' +
+        ", value=" + value +
+        '}';
+  }
+}
@@ -1,23 +1,37 @@
 package io.github.aparx.perx.database.data.many;
 
+import com.google.common.collect.Iterables;
 import com.j256.ormlite.dao.BaseDaoImpl;
 import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.GenericRawResults;
+import com.j256.ormlite.db.DatabaseType;
+import com.j256.ormlite.field.FieldType;
 import com.j256.ormlite.stmt.DeleteBuilder;
 import com.j256.ormlite.stmt.PreparedQuery;
 import com.j256.ormlite.stmt.QueryBuilder;
 import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
 import com.j256.ormlite.table.DatabaseTableConfig;
 import io.github.aparx.perx.database.Database;
+import io.github.aparx.perx.database.DatabaseDialect;
+import io.github.aparx.perx.database.data.ModelUpserter;
 import io.github.aparx.perx.database.data.group.GroupModel;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.framework.qual.DefaultQualifier;
 
+import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.stream.Collectors;
 
 /**
  * @author aparx (Vinzent Z.)
@@ -27,6 +41,15 @@ import java.util.stream.Collectors;
 @DefaultQualifier(NonNull.class)
 public class UserGroupDao extends BaseDaoImpl<UserGroupModel, Long> {
 
+  /** The maximum amount of values bound within a single {@code IN} clause */
+  private static final int MAX_IN_CLAUSE_SIZE = 500;
+
+  /** The maximum amount of rows inserted by a single multi-row {@code INSERT} statement */
+  private static final int MAX_INSERT_ROWS = 250;
+
+  private final ModelUpserter<UserGroupModel, Long> upserter = new ModelUpserter<>(this,
+      UserGroupModel.USER_ID_FIELD_NAME, UserGroupModel.GROUP_ID_FIELD_NAME);
+
   public UserGroupDao() throws SQLException {
     super(UserGroupModel.class);
   }
@@ -47,37 +70,328 @@ public class UserGroupDao extends BaseDaoImpl<UserGroupModel, Long> {
 
   public CompletableFuture<List<UserGroupModel>> getUserGroupsByUser(
       Database database, UUID userId) {
-    return database.executeAsync(() -> query(createUserGroupsByUserQuery(userId)));
+    return database.executeReadAsync("user_group.find_by_user", userId,
+        () -> query(createUserGroupsByUserQuery(userId)));
+  }
+
+  /**
+   * Fetches the memberships of all {@code userIds} using as few {@code IN} queries as possible.
+   *
+   * @param database the database to execute on
+   * @param userIds  the users whose memberships to fetch
+   * @return a future of a map, containing the memberships of every given user
+   */
+  public CompletableFuture<Map<UUID, List<UserGroupModel>>> getUserGroupsByUsers(
+      Database database, Collection<UUID> userIds) {
+    return database.executeReadAsync("user_group.find_by_users", userIds, () -> {
+      Map<UUID, List<UserGroupModel>> map = new HashMap<>(userIds.size());
+      userIds.forEach((userId) -> map.put(userId, new ArrayList<>()));
+      for (UserGroupModel model : findByUsers(userIds))
+        map.computeIfAbsent(model.getUserId(), (__) -> new ArrayList<>()).add(model);
+      return map;
+    });
   }
 
   public CompletableFuture<List<GroupModel>> getGroupsByUser(
       Database database, UUID userId, Dao<GroupModel, String> dao) {
-    return database.executeAsync(() -> dao.query(createGroupByUserQuery(userId, dao)));
+    return database.executeReadAsync("user_group.find_groups_by_user", userId,
+        () -> dao.query(createGroupByUserQuery(userId, dao)));
   }
 
+  /**
+   * Fetches all users of the group named {@code groupName} at once.
+   *
+   * @deprecated all users are held in memory at once, which does not scale with large groups.
+   * Use {@link #iterateUsersByGroup(String, int)} or
+   * {@link io.github.aparx.perx.group.intersection.PerxUserGroupService#forEachUserInGroup}
+   * instead, which fetch the users page by page.
+   */
+  @Deprecated
   public CompletableFuture<Set<UUID>> getUsersByGroup(Database database, String groupName) {
-    return database.executeAsync(() -> {
-      // we get all users and map them to a set (test performance?)
-      return query(createUsersByGroupQuery(groupName)).stream()
-          .map(UserGroupModel::getUserId)
-          .collect(Collectors.toSet());
+    return database.executeAsync("user_group.find_users_by_group", () -> {
+      Set<UUID> userIds = new HashSet<>();
+      iterateUsersByGroup(groupName, UserGroupMemberCursor.DEFAULT_PAGE_SIZE)
+          .forEachRemaining(userIds::add);
+      return userIds;
     });
   }
 
+  /**
+   * Returns a cursor over the users of the group named {@code groupName}, that fetches
+   * {@code pageSize} memberships at a time by keyset, such that memory stays constant
+   * regardless of the size of the group.
+   *
+   * @param groupName the group whose users to iterate
+   * @param pageSize  the amount of memberships fetched per query
+   * @return a new cursor positioned before the first membership
+   */
+  public UserGroupMemberCursor iterateUsersByGroup(String groupName, int pageSize) {
+    return new UserGroupMemberCursor(this, groupName, pageSize);
+  }
+
+  /**
+   * Queries at most {@code limit} memberships of the group named {@code groupName}, whose ID
+   * is greater than {@code afterId}, ordered by their ID. Only the ID and user of the
+   * memberships are selected. This method is blocking and must be called asynchronously.
+   *
+   * @param groupName the group the memberships belong to
+   * @param afterId   the last ID of the previous page, or zero for the first page
+   * @param limit     the maximum amount of memberships to return
+   * @return the memberships following {@code afterId}
+   * @throws SQLException if the query failed
+   */
+  public List<UserGroupModel> findByGroup(String groupName, long afterId, long limit)
+      throws SQLException {
+    QueryBuilder<UserGroupModel, Long> queryBuilder = queryBuilder();
+    queryBuilder.selectColumns(UserGroupModel.ID_FIELD_NAME, UserGroupModel.USER_ID_FIELD_NAME)
+        .orderBy(UserGroupModel.ID_FIELD_NAME, true).limit(limit).where()
+        .eq(UserGroupModel.GROUP_ID_FIELD_NAME, groupName).and()
+        .gt(UserGroupModel.ID_FIELD_NAME, afterId);
+    return queryBuilder.query();
+  }
+
+  /**
+   * Counts the memberships of the group named {@code groupName}, without loading them. This
+   * method is blocking and must be called asynchronously.
+   *
+   * @param groupName the group whose memberships to count
+   * @return the amount of memberships of the group
+   * @throws SQLException if the query failed
+   */
+  public long countByGroup(String groupName) throws SQLException {
+    QueryBuilder<UserGroupModel, Long> queryBuilder = queryBuilder();
+    queryBuilder.setCountOf(true).where().eq(UserGroupModel.GROUP_ID_FIELD_NAME, groupName);
+    return countOf(queryBuilder.prepare());
+  }
+
+  /**
+   * Counts the memberships of every group using a single aggregate query, without loading
+   * them. Groups without any membership are not contained. This method is blocking and must be
+   * called asynchronously.
+   *
+   * @return a map, mapping the name of every group to its amount of memberships
+   * @throws SQLException if the query failed
+   */
+  public Map<String, Long> countAllGroups() throws SQLException {
+    StringBuilder column = new StringBuilder();
+    connectionSource.getDatabaseType()
+        .appendEscapedEntityName(column, UserGroupModel.GROUP_ID_FIELD_NAME);
+    QueryBuilder<UserGroupModel, Long> queryBuilder = queryBuilder();
+    queryBuilder.selectRaw(column.toString(), "COUNT(*)")
+        .groupBy(UserGroupModel.GROUP_ID_FIELD_NAME);
+    Map<String, Long> counts = new HashMap<>();
+    try (GenericRawResults<String[]> results = queryRaw(queryBuilder.prepareStatementString())) {
+      for (String[] row : results)
+        if (row[0] != null) counts.put(row[0], Long.parseLong(row[1]));
+    } catch (IOException e) {
+      throw new SQLException("Could not close results", e);
+    }
+    return counts;
+  }
+
+  /**
+   * Deletes all memberships by their {@code ids}, using as few {@code IN} clauses as possible.
+   * This method is blocking and must be called asynchronously.
+   *
+   * @param ids the IDs of the memberships to delete
+   * @return the amount of rows deleted
+   * @throws SQLException if a statement failed
+   */
+  public int deleteAllIds(Collection<Long> ids) throws SQLException {
+    int deleted = 0;
+    for (List<Long> partition : Iterables.partition(ids, MAX_IN_CLAUSE_SIZE))
+      deleted += deleteIds(partition);
+    return deleted;
+  }
+
+  /**
+   * Inserts {@code model}, or updates the end date of the membership of the same user in the
+   * same group, using a single statement. This method is blocking and must be called
+   * asynchronously.
+   *
+   * @param dialect the dialect of the database
+   * @param model   the membership to upsert
+   * @return the status of the upsert
+   * @throws SQLException if the statement failed
+   * @see ModelUpserter#upsert(DatabaseDialect, Object)
+   */
+  public CreateOrUpdateStatus upsert(DatabaseDialect dialect, UserGroupModel model)
+      throws SQLException {
+    return upserter.upsert(dialect, model);
+  }
+
   public CompletableFuture<Boolean> deleteByGroup(Database database, String groupName) {
-    return database.executeAsync(() -> {
-      DeleteBuilder<UserGroupModel, Long> deleteBuilder = deleteBuilder();
-      deleteBuilder.where().eq(UserGroupModel.GROUP_ID_FIELD_NAME, groupName);
-      return deleteBuilder.delete();
-    }).thenApply((x) -> x > 0);
+    return database.executeAsync("user_group.delete_by_group", () -> deleteByGroup(groupName))
+        .thenApply((x) -> x > 0);
+  }
+
+  /**
+   * Deletes all memberships of the group named {@code groupName} using a single statement.
+   * This method is blocking and must be called asynchronously.
+   *
+   * @param groupName the group whose memberships to delete
+   * @return the amount of rows deleted
+   * @throws SQLException if the statement failed
+   */
+  public int deleteByGroup(String groupName) throws SQLException {
+    DeleteBuilder<UserGroupModel, Long> deleteBuilder = deleteBuilder();
+    deleteBuilder.where().eq(UserGroupModel.GROUP_ID_FIELD_NAME, groupName);
+    return deleteBuilder.delete();
   }
 
   public CompletableFuture<Boolean> deleteByUser(Database database, UUID userId) {
-    return database.executeAsync(() -> {
+    return database.executeAsync("user_group.delete_by_user", () -> deleteByUser(userId))
+        .thenApply((x) -> x > 0);
+  }
+
+  /**
+   * Deletes all memberships of {@code userId} using a single statement. This method is
+   * blocking and must be called asynchronously.
+   *
+   * @param userId the user whose memberships to delete
+   * @return the amount of rows deleted
+   * @throws SQLException if the statement failed
+   */
+  public int deleteByUser(UUID userId) throws SQLException {
+    DeleteBuilder<UserGroupModel, Long> deleteBuilder = deleteBuilder();
+    deleteBuilder.where().eq(UserGroupModel.USER_ID_FIELD_NAME, userId);
+    return deleteBuilder.delete();
+  }
+
+  /**
+   * Deletes the memberships of all {@code userIds} in the group named {@code groupName} using
+   * a single statement. This method is blocking and must be called asynchronously.
+   *
+   * @param groupName the group to remove the users from
+   * @param userIds   the users to remove from the group
+   * @return the amount of rows deleted
+   * @throws SQLException if the statement failed
+   */
+  public int deleteUsersFromGroup(String groupName, Collection<UUID> userIds)
+      throws SQLException {
+    int deleted = 0;
+    for (List<UUID> partition : Iterables.partition(userIds, MAX_IN_CLAUSE_SIZE)) {
       DeleteBuilder<UserGroupModel, Long> deleteBuilder = deleteBuilder();
-      deleteBuilder.where().eq(UserGroupModel.USER_ID_FIELD_NAME, userId);
-      return deleteBuilder.delete();
-    }).thenApply((x) -> x > 0);
+      deleteBuilder.where()
+          .eq(UserGroupModel.GROUP_ID_FIELD_NAME, groupName).and()
+          .in(UserGroupModel.USER_ID_FIELD_NAME, partition);
+      deleted += deleteBuilder.delete();
+    }
+    return deleted;
+  }
+
+  /**
+   * Queries the memberships of all {@code userIds} in the group named {@code groupName}.
+   * This method is blocking and must be called asynchronously.
+   *
+   * @param groupName the group the memberships belong to
+   * @param userIds   the users whose memberships to query
+   * @return the existing memberships of given users in the group
+   * @throws SQLException if the query failed
+   */
+  public List<UserGroupModel> findByGroupAndUsers(String groupName, Collection<UUID> userIds)
+      throws SQLException {
+    List<UserGroupModel> models = new ArrayList<>();
+    for (List<UUID> partition : Iterables.partition(userIds, MAX_IN_CLAUSE_SIZE)) {
+      QueryBuilder<UserGroupModel, Long> queryBuilder = queryBuilder();
+      queryBuilder.where()
+          .eq(UserGroupModel.GROUP_ID_FIELD_NAME, groupName).and()
+          .in(UserGroupModel.USER_ID_FIELD_NAME, partition);
+      models.addAll(queryBuilder.query());
+    }
+    return models;
+  }
+
+  /**
+   * Queries the memberships of all {@code userIds}, regardless of group. This method is
+   * blocking and must be called asynchronously.
+   *
+   * @param userIds the users whose memberships to query
+   * @return the existing memberships of given users
+   * @throws SQLException if the query failed
+   */
+  public List<UserGroupModel> findByUsers(Collection<UUID> userIds) throws SQLException {
+    List<UserGroupModel> models = new ArrayList<>();
+    for (List<UUID> partition : Iterables.partition(userIds, MAX_IN_CLAUSE_SIZE)) {
+      QueryBuilder<UserGroupModel, Long> queryBuilder = queryBuilder();
+      queryBuilder.where().in(UserGroupModel.USER_ID_FIELD_NAME, partition);
+      models.addAll(queryBuilder.query());
+    }
+    return models;
+  }
+
+  /**
+   * Queries at most {@code limit} memberships that ended before {@code now}, whose ID is
+   * greater than {@code afterId}, ordered by their ID. This allows paging through expired
+   * memberships by keyset. This method is blocking and must be called asynchronously.
+   *
+   * @param now     the date before which memberships are expired
+   * @param afterId the last ID of the previous page, or zero for the first page
+   * @param limit   the maximum amount of memberships to return
+   * @return the expired memberships following {@code afterId}
+   * @throws SQLException if the query failed
+   */
+  public List<UserGroupModel> findExpired(Date now, long afterId, long limit)
+      throws SQLException {
+    QueryBuilder<UserGroupModel, Long> queryBuilder = queryBuilder();
+    queryBuilder.orderBy(UserGroupModel.ID_FIELD_NAME, true).limit(limit).where()
+        .lt(UserGroupModel.END_DATE_FIELD_NAME, now).and()
+        .gt(UserGroupModel.ID_FIELD_NAME, afterId);
+    return queryBuilder.query();
+  }
+
+  /**
+   * Inserts all {@code models} using multi-row {@code INSERT} statements. The generated IDs
+   * are not read back into the models. This method is blocking and must be called
+   * asynchronously.
+   *
+   * @param models the models to insert
+   * @return the amount of rows inserted
+   * @throws SQLException if a statement failed
+   */
+  public int insertAll(Collection<UserGroupModel> models) throws SQLException {
+    if (models.isEmpty()) return 0;
+    FieldType[] columns = Arrays.stream(getTableInfo().getFieldTypes())
+        .filter((fieldType) -> !fieldType.isGeneratedId())
+        .toArray(FieldType[]::new);
+    DatabaseConnection connection = connectionSource.getReadWriteConnection(getTableName());
+    try {
+      int inserted = 0;
+      for (List<UserGroupModel> partition : Iterables.partition(models, MAX_INSERT_ROWS)) {
+        Object[] args = new Object[partition.size() * columns.length];
+        FieldType[] argTypes = new FieldType[args.length];
+        int index = 0;
+        for (UserGroupModel model : partition) {
+          for (FieldType column : columns) {
+            argTypes[index] = column;
+            args[index++] = column.extractJavaFieldToSqlArgValue(model);
+          }
+        }
+        String statement = createInsertStatement(columns, partition.size());
+        inserted += connection.update(statement, args, argTypes);
+      }
+      return inserted;
+    } finally {
+      connectionSource.releaseConnection(connection);
+    }
+  }
+
+  protected String createInsertStatement(FieldType[] columns, int rows) {
+    DatabaseType databaseType = connectionSource.getDatabaseType();
+    StringBuilder builder = new StringBuilder("INSERT INTO ");
+    databaseType.appendEscapedEntityName(builder, getTableName());
+    builder.append(" (");
+    for (int i = 0; i < columns.length; ++i) {
+      if (i != 0) builder.append(',');
+      databaseType.appendEscapedEntityName(builder, columns[i].getColumnName());
+    }
+    builder.append(") VALUES ");
+    String row = "(" + "?,".repeat(columns.length - 1) + "?)";
+    for (int i = 0; i < rows; ++i) {
+      if (i != 0) builder.append(',');
+      builder.append(row);
+    }
+    return builder.toString();
   }
 
   protected PreparedQuery<UserGroupModel> createUserGroupsByUserQuery(UUID userId) throws SQLException {
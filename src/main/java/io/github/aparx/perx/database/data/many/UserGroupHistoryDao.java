@@ -0,0 +1,57 @@
+package io.github.aparx.perx.database.data.many;
+
+import com.j256.ormlite.dao.BaseDaoImpl;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.table.DatabaseTableConfig;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-22 14:12
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public class UserGroupHistoryDao extends BaseDaoImpl<UserGroupHistoryModel, Long> {
+
+  public UserGroupHistoryDao() throws SQLException {
+    super(UserGroupHistoryModel.class);
+  }
+
+  public UserGroupHistoryDao(
+      ConnectionSource connectionSource,
+      Class<UserGroupHistoryModel> dataClass)
+      throws SQLException {
+    super(connectionSource, dataClass);
+  }
+
+  public UserGroupHistoryDao(
+      ConnectionSource connectionSource,
+      DatabaseTableConfig<UserGroupHistoryModel> tableConfig)
+      throws SQLException {
+    super(connectionSource, tableConfig);
+  }
+
+  /**
+   * Archives all {@code models}. This method is blocking and must be called asynchronously.
+   *
+   * @param models    the memberships to archive
+   * @param purgeDate the date at which the memberships are purged
+   * @return the amount of rows inserted
+   * @throws SQLException if the insert failed
+   */
+  public int archive(Collection<UserGroupModel> models, Date purgeDate) throws SQLException {
+    if (models.isEmpty()) return 0;
+    List<UserGroupHistoryModel> history = models.stream()
+        .map((model) -> new UserGroupHistoryModel(model.getUserId(),
+            model.getGroup().getId(), model.getEndDate(), purgeDate))
+        .toList();
+    return create(history);
+  }
+
+}
@@ -0,0 +1,78 @@
+package io.github.aparx.perx.database.data.many;
+
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.table.DatabaseTable;
+import io.github.aparx.perx.database.data.DatabaseModel;
+
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Archive of expired memberships, that were purged from the {@code user_group} table.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-22 14:08
+ * @since 1.0
+ */
+@DatabaseTable(tableName = "user_group_history", daoClass = UserGroupHistoryDao.class)
+public class UserGroupHistoryModel implements DatabaseModel<Long> {
+
+  public static final String USER_ID_FIELD_NAME = "user_id";
+  public static final String GROUP_ID_FIELD_NAME = "group_id";
+
+  @DatabaseField(generatedId = true)
+  private long id;
+
+  @DatabaseField(columnName = USER_ID_FIELD_NAME, canBeNull = false, index = true)
+  private UUID user;
+
+  @DatabaseField(columnName = GROUP_ID_FIELD_NAME, canBeNull = false)
+  private String group;
+
+  @DatabaseField
+  private Date endDate;
+
+  @DatabaseField(canBeNull = false)
+  private Date purgeDate;
+
+  public UserGroupHistoryModel() {}
+
+  public UserGroupHistoryModel(UUID user, String group, Date endDate, Date purgeDate) {
+    this.user = user;
+    this.group = group;
+    this.endDate = endDate;
+    this.purgeDate = purgeDate;
+  }
+
+  @Override
+  public Long getId() {
+    return id;
+  }
+
+  public UUID getUserId() {
+    return user;
+  }
+
+  public String getGroupId() {
+    return group;
+  }
+
+  public Date getEndDate() {
+    return endDate;
+  }
+
+  public Date getPurgeDate() {
+    return purgeDate;
+  }
+
+  @Override
+  public String toString() {
+    return "UserGroupHistoryModel{" +
+        "id=" + id +
+        ", user=" + user +
+        ", group='" + group + '\'' +
+        ", endDate=" + endDate +
+        ", purgeDate=" + purgeDate +
+        '}';
+  }
+}
@@ -0,0 +1,94 @@
+package io.github.aparx.perx.database.data.many;
+
+import com.google.common.base.Preconditions;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+/**
+ * Cursor over the users of a group, that fetches one page of memberships at a time by keyset
+ * (the ID of the last membership fetched), instead of by offset. Thus fetching a page takes the
+ * same time regardless of its position, and at most one page is held in memory.
+ * <p>All fetching methods are blocking and must be called asynchronously. Memberships created
+ * while iterating are only visited if their ID is greater than the last ID fetched.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 14:20
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public class UserGroupMemberCursor implements Iterator<UUID> {
+
+  public static final int DEFAULT_PAGE_SIZE = 1000;
+
+  private final UserGroupDao dao;
+  private final String groupName;
+  private final int pageSize;
+
+  private long lastId;
+  private boolean exhausted;
+  private Iterator<UserGroupModel> buffer = Collections.emptyIterator();
+
+  public UserGroupMemberCursor(UserGroupDao dao, String groupName, int pageSize) {
+    Preconditions.checkNotNull(dao, "DAO must not be null");
+    Preconditions.checkNotNull(groupName, "Group must not be null");
+    Preconditions.checkArgument(pageSize >= 1, "Page size must be at least one");
+    this.dao = dao;
+    this.groupName = groupName;
+    this.pageSize = pageSize;
+  }
+
+  public String getGroupName() {
+    return groupName;
+  }
+
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  /** Returns true if all pages were fetched, whereas the last page may not be consumed yet. */
+  public boolean isExhausted() {
+    return exhausted;
+  }
+
+  /**
+   * Fetches the next page of memberships, of which only the ID and user are populated. This
+   * method is blocking and must be called asynchronously.
+   *
+   * @return the next page, or an empty list if all pages were fetched
+   * @throws SQLException if the query failed
+   */
+  public List<UserGroupModel> nextPage() throws SQLException {
+    if (exhausted) return List.of();
+    List<UserGroupModel> page = dao.findByGroup(groupName, lastId, pageSize);
+    if (page.size() < pageSize) exhausted = true;
+    if (!page.isEmpty()) lastId = page.get(page.size() - 1).getId();
+    return page;
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (!buffer.hasNext()) {
+      if (exhausted) return false;
+      try {
+        buffer = nextPage().iterator();
+      } catch (SQLException e) {
+        throw new RuntimeException(e);
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public UUID next() {
+    if (!hasNext()) throw new NoSuchElementException();
+    return buffer.next().getUserId();
+  }
+
+}
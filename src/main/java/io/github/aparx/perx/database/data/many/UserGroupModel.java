@@ -16,11 +16,14 @@ import java.util.UUID;
  * @version 2024-01-04 05:44
  * @since 1.0
  */
-@DatabaseTable(tableName = "user_group", daoClass = UserGroupDao.class)
+@DatabaseTable(tableName = UserGroupModel.TABLE_NAME, daoClass = UserGroupDao.class)
 public class UserGroupModel implements DatabaseModel<Long> {
 
+  public static final String TABLE_NAME = "user_group";
+  public static final String ID_FIELD_NAME = "id";
   public static final String USER_ID_FIELD_NAME = "user_id";
   public static final String GROUP_ID_FIELD_NAME = "group_id";
+  public static final String END_DATE_FIELD_NAME = "endDate";
 
   @DatabaseField(generatedId = true)
   private long id;
@@ -31,7 +34,7 @@ public class UserGroupModel implements DatabaseModel<Long> {
   @DatabaseField(uniqueCombo = true, foreign = true, columnName = GROUP_ID_FIELD_NAME)
   private GroupModel group;
 
-  @DatabaseField
+  @DatabaseField(columnName = END_DATE_FIELD_NAME, index = true)
   private Date endDate;
 
   public UserGroupModel() {}
@@ -0,0 +1,65 @@
+package io.github.aparx.perx.database.data.schema;
+
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.table.DatabaseTable;
+import io.github.aparx.perx.database.data.DatabaseModel;
+
+import java.util.Date;
+
+/**
+ * Table of all schema migrations that were applied to the database, keyed by their version.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 13:24
+ * @since 1.0
+ */
+@DatabaseTable(tableName = "schema_version")
+public class SchemaVersionModel implements DatabaseModel<Integer> {
+
+  public static final String VERSION_FIELD_NAME = "version";
+  public static final String DESCRIPTION_FIELD_NAME = "description";
+  public static final String APPLIED_FIELD_NAME = "applied_at";
+
+  @DatabaseField(id = true, columnName = VERSION_FIELD_NAME)
+  private int version;
+
+  @DatabaseField(columnName = DESCRIPTION_FIELD_NAME, canBeNull = false)
+  private String description;
+
+  @DatabaseField(columnName = APPLIED_FIELD_NAME, canBeNull = false)
+  private Date appliedAt;
+
+  public SchemaVersionModel() {}
+
+  public SchemaVersionModel(int version, String description, Date appliedAt) {
+    this.version = version;
+    this.description = description;
+    this.appliedAt = appliedAt;
+  }
+
+  @Override
+  public Integer getId() {
+    return version;
+  }
+
+  public int getVersion() {
+    return version;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+
+  public Date getAppliedAt() {
+    return appliedAt;
+  }
+
+  @Override
+  public String toString() {
+    return "SchemaVersionModel{" +
+        "version=" + version +
+        ", description='" + description + '\'' +
+        ", appliedAt=" + appliedAt +
+        '}';
+  }
+}
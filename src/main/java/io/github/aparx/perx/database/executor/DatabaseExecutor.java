@@ -0,0 +1,218 @@
+package io.github.aparx.perx.database.executor;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.github.aparx.perx.Perx;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * Bounded executor owned by Perx, on which all database operations are executed.
+ * <p>In {@link DatabaseExecutorMode#PLATFORM} mode a fixed amount of threads work off a bounded
+ * queue. In {@link DatabaseExecutorMode#VIRTUAL} mode every task gets its own virtual thread,
+ * while the amount of in-flight tasks is bounded by the same limits. Tasks that exceed these
+ * limits are handled according to the configured {@link DatabaseRejectionPolicy}.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-20 16:21
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public class DatabaseExecutor implements Executor {
+
+  private final DatabaseExecutorSettings settings;
+  private final DatabaseExecutorMode mode;
+  private final ExecutorService service;
+
+  /** Permits bounding the in-flight tasks in virtual mode, null in platform mode */
+  private final @Nullable Semaphore capacity;
+  /** Permits bounding the concurrently executing tasks in virtual mode */
+  private final @Nullable Semaphore concurrency;
+
+  private final AtomicInteger active = new AtomicInteger();
+  private final AtomicInteger queued = new AtomicInteger();
+  private final AtomicInteger peakQueued = new AtomicInteger();
+  private final LongAdder completed = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder timedOut = new LongAdder();
+  private final LongAdder cancelled = new LongAdder();
+
+  public DatabaseExecutor(DatabaseExecutorSettings settings) {
+    Preconditions.checkNotNull(settings, "Settings must not be null");
+    this.settings = settings;
+    @Nullable ExecutorService virtual = null;
+    if (settings.mode() == DatabaseExecutorMode.VIRTUAL) {
+      virtual = createVirtualExecutor();
+      if (virtual == null)
+        Perx.getLogger().warning("Virtual threads are not supported, using platform threads");
+    }
+    if (virtual != null) {
+      this.mode = DatabaseExecutorMode.VIRTUAL;
+      this.service = virtual;
+      this.capacity = new Semaphore(settings.threads() + settings.queueCapacity());
+      this.concurrency = new Semaphore(settings.threads());
+    } else {
+      this.mode = DatabaseExecutorMode.PLATFORM;
+      this.service = createPlatformExecutor(settings);
+      this.capacity = null;
+      this.concurrency = null;
+    }
+  }
+
+  private static ExecutorService createPlatformExecutor(DatabaseExecutorSettings settings) {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+        settings.threads(), settings.threads(),
+        60, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(settings.queueCapacity()),
+        new ThreadFactoryBuilder()
+            .setNameFormat("Perx Database #%d")
+            .setDaemon(true)
+            .build(),
+        new ThreadPoolExecutor.AbortPolicy());
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  private static @Nullable ExecutorService createVirtualExecutor() {
+    try {
+      // looked up reflectively, as the plugin is compiled against Java 17
+      Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) method.invoke(null);
+    } catch (ReflectiveOperationException | ClassCastException e) {
+      return null;
+    }
+  }
+
+  public DatabaseExecutorSettings getSettings() {
+    return settings;
+  }
+
+  /** Returns the mode actually in use, which may differ from the settings on fallback. */
+  public DatabaseExecutorMode getMode() {
+    return mode;
+  }
+
+  public boolean isShutdown() {
+    return service.isShutdown();
+  }
+
+  /**
+   * Executes {@code command} on this executor.
+   *
+   * @param command the task to execute
+   * @throws RejectedExecutionException if this executor is saturated or shut down and the
+   *                                    policy is {@link DatabaseRejectionPolicy#ABORT}
+   */
+  @Override
+  public void execute(Runnable command) {
+    Preconditions.checkNotNull(command, "Command must not be null");
+    if (service.isShutdown())
+      throw new RejectedExecutionException("Database executor is shut down");
+    if (capacity != null && !capacity.tryAcquire()) {
+      reject(command);
+      return;
+    }
+    peakQueued.accumulateAndGet(queued.incrementAndGet(), Math::max);
+    try {
+      service.execute(() -> run(command));
+    } catch (RejectedExecutionException e) {
+      queued.decrementAndGet();
+      if (capacity != null) capacity.release();
+      if (service.isShutdown()) throw e;
+      reject(command);
+    }
+  }
+
+  private void run(Runnable command) {
+    boolean acquired = false;
+    try {
+      if (concurrency != null) {
+        concurrency.acquire();
+        acquired = true;
+      }
+      queued.decrementAndGet();
+      active.incrementAndGet();
+      try {
+        command.run();
+      } finally {
+        active.decrementAndGet();
+        completed.increment();
+      }
+    } catch (InterruptedException e) {
+      queued.decrementAndGet();
+      Thread.currentThread().interrupt();
+    } finally {
+      if (acquired) concurrency.release();
+      if (capacity != null) capacity.release();
+    }
+  }
+
+  private void reject(Runnable command) {
+    rejected.increment();
+    if (settings.rejectionPolicy() == DatabaseRejectionPolicy.CALLER_RUNS) {
+      command.run();
+      return;
+    }
+    throw new RejectedExecutionException(String.format(
+        "Database executor is saturated (%s active, %s queued)", active.get(), queued.get()));
+  }
+
+  /**
+   * Stops accepting new tasks and waits up to the configured shutdown timeout for pending
+   * tasks to finish, after which remaining tasks are interrupted.
+   *
+   * @return true if all pending tasks finished within the timeout
+   */
+  public boolean shutdown() {
+    service.shutdown();
+    try {
+      if (service.awaitTermination(settings.shutdownTimeout(), TimeUnit.MILLISECONDS))
+        return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    int dropped = service.shutdownNow().size();
+    Perx.getLogger().log(Level.WARNING, "Database executor did not terminate in time, "
+        + "dropped {0} pending task(s)", dropped);
+    return false;
+  }
+
+  /** Records an operation that exceeded the operation timeout. */
+  public void recordTimeout() {
+    timedOut.increment();
+  }
+
+  /** Records an operation that was cancelled by its caller before it completed. */
+  public void recordCancellation() {
+    cancelled.increment();
+  }
+
+  public DatabaseExecutorStatistics getStatistics() {
+    return new DatabaseExecutorStatistics(
+        mode,
+        settings.threads(),
+        settings.queueCapacity(),
+        active.get(),
+        queued.get(),
+        peakQueued.get(),
+        completed.sum(),
+        rejected.sum(),
+        timedOut.sum(),
+        cancelled.sum());
+  }
+
+}
@@ -0,0 +1,21 @@
+package io.github.aparx.perx.database.executor;
+
+/**
+ * The kind of threads a {@code DatabaseExecutor} runs its tasks on.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-20 16:02
+ * @since 1.0
+ */
+public enum DatabaseExecutorMode {
+
+  /** A fixed amount of platform threads that work off a bounded queue */
+  PLATFORM,
+
+  /**
+   * A new virtual thread per task, bounded by the amount of in-flight tasks.
+   * <p>Falls back to {@link #PLATFORM} if the runtime does not support virtual threads.
+   */
+  VIRTUAL
+
+}
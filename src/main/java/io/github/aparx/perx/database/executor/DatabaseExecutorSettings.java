@@ -0,0 +1,43 @@
+package io.github.aparx.perx.database.executor;
+
+import com.google.common.base.Preconditions;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+/**
+ * Settings of a {@code DatabaseExecutor}.
+ *
+ * @param mode             the kind of threads tasks are executed on
+ * @param threads          the amount of tasks that are executed concurrently
+ * @param queueCapacity    the amount of tasks that may wait for execution
+ * @param rejectionPolicy  the policy applied when both threads and queue are saturated
+ * @param shutdownTimeout  the milliseconds to wait for pending tasks on shutdown
+ * @param operationTimeout the milliseconds after which an operation fails and its statements
+ *                         are cancelled, or zero if operations never time out
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-20 16:10
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public record DatabaseExecutorSettings(
+    DatabaseExecutorMode mode,
+    int threads,
+    int queueCapacity,
+    DatabaseRejectionPolicy rejectionPolicy,
+    long shutdownTimeout,
+    long operationTimeout
+) {
+
+  public static final DatabaseExecutorSettings DEFAULT = new DatabaseExecutorSettings(
+      DatabaseExecutorMode.PLATFORM, 4, 256, DatabaseRejectionPolicy.ABORT, 5000, 10000);
+
+  public DatabaseExecutorSettings {
+    Preconditions.checkNotNull(mode, "Mode must not be null");
+    Preconditions.checkNotNull(rejectionPolicy, "Rejection policy must not be null");
+    Preconditions.checkArgument(threads >= 1, "Threads must be at least one");
+    Preconditions.checkArgument(queueCapacity >= 1, "Queue capacity must be at least one");
+    Preconditions.checkArgument(shutdownTimeout >= 0, "Shutdown timeout must not be negative");
+    Preconditions.checkArgument(operationTimeout >= 0, "Operation timeout must not be negative");
+  }
+
+}
@@ -0,0 +1,31 @@
+package io.github.aparx.perx.database.executor;
+
+/**
+ * Snapshot of the queue-depth and throughput counters of a {@code DatabaseExecutor}.
+ *
+ * @param mode          the kind of threads tasks are executed on
+ * @param threads       the amount of tasks that are executed concurrently
+ * @param queueCapacity the amount of tasks that may wait for execution
+ * @param active        the amount of tasks currently executing
+ * @param queued        the amount of tasks currently waiting for execution
+ * @param peakQueued    the highest amount of tasks that waited for execution at once
+ * @param completed     the total amount of tasks that finished executing
+ * @param rejected      the total amount of tasks that were rejected due to saturation
+ * @param timedOut      the total amount of operations that exceeded their timeout
+ * @param cancelled     the total amount of operations that were cancelled by their caller
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-20 16:14
+ * @since 1.0
+ */
+public record DatabaseExecutorStatistics(
+    DatabaseExecutorMode mode,
+    int threads,
+    int queueCapacity,
+    int active,
+    int queued,
+    int peakQueued,
+    long completed,
+    long rejected,
+    long timedOut,
+    long cancelled
+) {}
@@ -0,0 +1,129 @@
+package io.github.aparx.perx.database.executor;
+
+import com.google.common.base.Preconditions;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single database operation, bound to the thread executing it. Statements created by that
+ * thread are registered, such that their query timeout is limited to the time left until the
+ * deadline, and so that they can be cancelled once the operation times out or is cancelled.
+ * <p>Statements that were closed are dropped whenever another statement is registered, such
+ * that long running operations executing many statements only reference those still open.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 17:38
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public final class DatabaseOperation {
+
+  private static final ThreadLocal<DatabaseOperation> current = new ThreadLocal<>();
+
+  /** The deadline in nanoseconds (as of {@code System.nanoTime}), or zero if unbounded */
+  private final long deadline;
+
+  private final List<Statement> statements = new ArrayList<>(2);
+  private boolean cancelled;
+
+  private DatabaseOperation(long deadline) {
+    this.deadline = deadline;
+  }
+
+  /**
+   * Creates an operation that times out {@code timeout} milliseconds from now.
+   *
+   * @param timeout the milliseconds the operation may take, or zero if it is unbounded
+   * @return the new operation
+   */
+  public static DatabaseOperation create(long timeout) {
+    Preconditions.checkArgument(timeout >= 0, "Timeout must not be negative");
+    return new DatabaseOperation(timeout != 0
+        ? Math.max(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout), 1) : 0);
+  }
+
+  /** Returns the operation bound to the calling thread, or null if there is none. */
+  public static @Nullable DatabaseOperation current() {
+    return current.get();
+  }
+
+  /** Binds this operation to the calling thread, until {@link #unbind()} is called. */
+  public void bind() {
+    current.set(this);
+  }
+
+  public void unbind() {
+    if (current.get() == this) current.remove();
+  }
+
+  public synchronized boolean isCancelled() {
+    return cancelled;
+  }
+
+  /**
+   * Registers {@code statement} created on behalf of this operation and applies the query
+   * timeout remaining until the deadline to it.
+   *
+   * @param statement the statement that was just created
+   * @throws SQLException if this operation was cancelled or its deadline passed
+   */
+  public void register(Statement statement) throws SQLException {
+    synchronized (this) {
+      if (cancelled) {
+        statement.close();
+        throw new SQLException("Database operation was cancelled");
+      }
+      statements.removeIf(DatabaseOperation::isClosed);
+      statements.add(statement);
+    }
+    if (deadline == 0) return;
+    long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+    if (remaining <= 0) {
+      cancel();
+      throw new SQLException("Database operation exceeded its deadline");
+    }
+    // JDBC timeouts are in seconds, thus rounded up to not time out before the deadline
+    statement.setQueryTimeout((int) Math.min(Integer.MAX_VALUE, (remaining + 999) / 1000));
+  }
+
+  /**
+   * Cancels this operation, cancelling all of its statements that may still be executing.
+   * Statements created afterwards are rejected.
+   *
+   * @return true if this operation was not cancelled already
+   */
+  public boolean cancel() {
+    List<Statement> statements;
+    synchronized (this) {
+      if (cancelled) return false;
+      cancelled = true;
+      statements = new ArrayList<>(this.statements);
+      this.statements.clear();
+    }
+    for (Statement statement : statements) {
+      try {
+        if (!isClosed(statement)) statement.cancel();
+      } catch (SQLException | RuntimeException e) {
+        // the statement may have finished concurrently, or the driver does not support it
+      }
+    }
+    return true;
+  }
+
+  private static boolean isClosed(Statement statement) {
+    try {
+      return statement.isClosed();
+    } catch (SQLException e) {
+      // a statement whose state cannot be determined is considered closed
+      return true;
+    }
+  }
+
+}
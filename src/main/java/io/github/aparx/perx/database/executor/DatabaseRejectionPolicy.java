@@ -0,0 +1,18 @@
+package io.github.aparx.perx.database.executor;
+
+/**
+ * Policy applied when a task is submitted to a {@code DatabaseExecutor} that is saturated.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-20 16:05
+ * @since 1.0
+ */
+public enum DatabaseRejectionPolicy {
+
+  /** The task is rejected and its future is completed exceptionally */
+  ABORT,
+
+  /** The task is executed directly on the submitting thread */
+  CALLER_RUNS
+
+}
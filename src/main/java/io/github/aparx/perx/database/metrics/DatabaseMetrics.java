@@ -0,0 +1,109 @@
+package io.github.aparx.perx.database.metrics;
+
+import com.google.common.base.Preconditions;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of the counters and latency histograms of database operations, keyed by the name
+ * each operation is tagged with.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 12:20
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public class DatabaseMetrics {
+
+  /** The name of operations that were not tagged explicitly */
+  public static final String UNTAGGED = "untagged";
+
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+  /**
+   * Records a completed operation.
+   *
+   * @param operation the name the operation is tagged with
+   * @param nanos     the nanoseconds the operation took to execute
+   * @param failed    true if the operation failed or timed out
+   */
+  public void record(String operation, long nanos, boolean failed) {
+    Preconditions.checkNotNull(operation, "Operation must not be null");
+    Entry entry = entries.computeIfAbsent(operation, (__) -> new Entry());
+    entry.histogram.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    if (failed) entry.errors.increment();
+  }
+
+  /** Returns the statistics of all recorded operations, ordered by their name. */
+  public List<DatabaseOperationStatistics> getStatistics() {
+    return entries.entrySet().stream()
+        .map((entry) -> entry.getValue().toStatistics(entry.getKey()))
+        .sorted(Comparator.comparing(DatabaseOperationStatistics::operation))
+        .toList();
+  }
+
+  public void reset() {
+    entries.clear();
+  }
+
+  /**
+   * Writes the statistics of all recorded operations to {@code file} in the Prometheus text
+   * format, replacing the file atomically, so that scrapers never read partial output.
+   *
+   * @param file the file to write to
+   * @throws IOException if the file could not be written
+   */
+  public void writeTo(File file) throws IOException {
+    StringBuilder builder = new StringBuilder();
+    builder.append("# TYPE perx_db_operations_total counter\n");
+    builder.append("# TYPE perx_db_operation_errors_total counter\n");
+    builder.append("# TYPE perx_db_operation_latency_micros summary\n");
+    for (DatabaseOperationStatistics stats : getStatistics()) {
+      String label = "operation=\"" + stats.operation() + "\"";
+      builder.append("perx_db_operations_total{").append(label).append("} ")
+          .append(stats.count()).append('\n');
+      builder.append("perx_db_operation_errors_total{").append(label).append("} ")
+          .append(stats.errors()).append('\n');
+      builder.append("perx_db_operation_latency_micros{").append(label)
+          .append(",quantile=\"0.5\"} ").append(stats.p50()).append('\n');
+      builder.append("perx_db_operation_latency_micros{").append(label)
+          .append(",quantile=\"0.99\"} ").append(stats.p99()).append('\n');
+      builder.append("perx_db_operation_latency_micros{").append(label)
+          .append(",quantile=\"1\"} ").append(stats.max()).append('\n');
+    }
+    File parent = file.getAbsoluteFile().getParentFile();
+    if (parent != null && !parent.exists() && !parent.mkdirs())
+      throw new IOException("Could not create " + parent);
+    File temporary = new File(parent, file.getName() + ".tmp");
+    Files.writeString(temporary.toPath(), builder, StandardCharsets.UTF_8);
+    Files.move(temporary.toPath(), file.toPath(),
+        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static final class Entry {
+
+    final LatencyHistogram histogram = new LatencyHistogram();
+    final LongAdder errors = new LongAdder();
+
+    DatabaseOperationStatistics toStatistics(String operation) {
+      return new DatabaseOperationStatistics(operation,
+          histogram.getCount(), errors.sum(),
+          histogram.getPercentile(50), histogram.getPercentile(99),
+          histogram.getMax(), histogram.getMean());
+    }
+
+  }
+
+}
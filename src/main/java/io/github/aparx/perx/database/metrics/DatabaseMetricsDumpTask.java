@@ -0,0 +1,66 @@
+package io.github.aparx.perx.database.metrics;
+
+import com.google.common.base.Preconditions;
+import io.github.aparx.perx.Perx;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Level;
+
+/**
+ * Background job that periodically writes the database operation metrics to a text file, for
+ * them to be scraped by external monitoring.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 12:41
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public class DatabaseMetricsDumpTask {
+
+  private final DatabaseMetrics metrics;
+  private final File file;
+  private final MetricsSettings settings;
+
+  private @Nullable BukkitTask task;
+
+  public DatabaseMetricsDumpTask(DatabaseMetrics metrics, File file, MetricsSettings settings) {
+    Preconditions.checkNotNull(metrics, "Metrics must not be null");
+    Preconditions.checkNotNull(file, "File must not be null");
+    Preconditions.checkNotNull(settings, "Settings must not be null");
+    this.metrics = metrics;
+    this.file = file;
+    this.settings = settings;
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  public void start(Plugin plugin) {
+    if (!settings.dump()) return;
+    if (task != null) task.cancel();
+    long ticks = Math.max(1, settings.dumpInterval() / 50);
+    task = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::dump, ticks, ticks);
+  }
+
+  public void stop() {
+    if (task != null) task.cancel();
+    task = null;
+  }
+
+  public void dump() {
+    try {
+      metrics.writeTo(file);
+    } catch (IOException e) {
+      Perx.getLogger().log(Level.WARNING, "Could not write database metrics", e);
+    }
+  }
+
+}
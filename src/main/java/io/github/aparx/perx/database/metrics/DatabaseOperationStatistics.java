@@ -0,0 +1,25 @@
+package io.github.aparx.perx.database.metrics;
+
+/**
+ * Snapshot of the counters and latencies of all database operations sharing a name.
+ *
+ * @param operation the name the operations are tagged with
+ * @param count     the total amount of operations that completed
+ * @param errors    the total amount of operations that failed or timed out
+ * @param p50       the median latency in microseconds
+ * @param p99       the 99th percentile latency in microseconds
+ * @param max       the maximum latency in microseconds
+ * @param mean      the mean latency in microseconds
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 12:12
+ * @since 1.0
+ */
+public record DatabaseOperationStatistics(
+    String operation,
+    long count,
+    long errors,
+    long p50,
+    long p99,
+    long max,
+    long mean
+) {}
@@ -0,0 +1,102 @@
+package io.github.aparx.perx.database.metrics;
+
+import com.google.common.base.Preconditions;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of latencies in microseconds, with logarithmic buckets that are each
+ * split into linear sub-buckets, similar to an HDR histogram.
+ * <p>Values below {@value #SUB_BUCKETS} are counted exactly. Larger values are counted with a
+ * relative error of at most {@code 1/}{@value #SUB_BUCKETS}, while the memory footprint stays
+ * constant regardless of the values recorded.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 12:04
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  /** The exponent of the largest value that is still distinguished, about 12 days */
+  private static final int MAX_EXPONENT = 40;
+
+  private final AtomicLongArray counts =
+      new AtomicLongArray(SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS);
+
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final AtomicLong max = new AtomicLong();
+
+  static int indexOf(long value) {
+    if (value < SUB_BUCKETS) return (int) value;
+    int exponent = Math.min(63 - Long.numberOfLeadingZeros(value), MAX_EXPONENT);
+    int shift = exponent - SUB_BUCKET_BITS;
+    int subBucket = (int) Math.min(value >>> shift, 2 * SUB_BUCKETS - 1) - SUB_BUCKETS;
+    return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+  }
+
+  /** Returns the highest value that is counted in the bucket at {@code index}. */
+  static long highestValueOf(int index) {
+    if (index < SUB_BUCKETS) return index;
+    int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+    int subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+    return ((long) (SUB_BUCKETS + subBucket + 1) << shift) - 1;
+  }
+
+  /**
+   * Records a single latency of {@code micros} microseconds.
+   *
+   * @param micros the latency to record, negative values are recorded as zero
+   */
+  public void record(long micros) {
+    long value = Math.max(micros, 0);
+    counts.incrementAndGet(indexOf(value));
+    count.increment();
+    sum.add(value);
+    max.accumulateAndGet(value, Math::max);
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+  public long getMean() {
+    long count = getCount();
+    return (count != 0 ? sum.sum() / count : 0);
+  }
+
+  /**
+   * Returns the latency at {@code percentile}, such that the given percentage of recorded
+   * latencies are less than or equal to it, or zero if nothing was recorded.
+   *
+   * @param percentile the percentile within [0, 100]
+   * @return the highest latency of the bucket the percentile falls into, capped at the maximum
+   */
+  public long getPercentile(double percentile) {
+    Preconditions.checkArgument(percentile >= 0 && percentile <= 100,
+        "Percentile must be within [0, 100]");
+    long total = 0;
+    long[] snapshot = new long[counts.length()];
+    for (int i = 0; i < snapshot.length; ++i)
+      total += (snapshot[i] = counts.get(i));
+    if (total == 0) return 0;
+    long target = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+    long seen = 0;
+    for (int i = 0; i < snapshot.length; ++i)
+      if ((seen += snapshot[i]) >= target)
+        return Math.min(highestValueOf(i), getMax());
+    return getMax();
+  }
+
+}
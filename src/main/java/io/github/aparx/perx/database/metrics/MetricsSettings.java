@@ -0,0 +1,22 @@
+package io.github.aparx.perx.database.metrics;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Settings of the periodic dump of the database operation metrics.
+ *
+ * @param dump         true if the metrics are periodically written to a file
+ * @param dumpInterval the milliseconds between two dumps
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 12:26
+ * @since 1.0
+ */
+public record MetricsSettings(boolean dump, long dumpInterval) {
+
+  public static final MetricsSettings DEFAULT = new MetricsSettings(true, 60000);
+
+  public MetricsSettings {
+    Preconditions.checkArgument(dumpInterval >= 50, "Dump interval must be at least one tick");
+  }
+
+}
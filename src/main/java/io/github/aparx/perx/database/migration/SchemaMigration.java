@@ -0,0 +1,35 @@
+package io.github.aparx.perx.database.migration;
+
+import com.google.common.base.Preconditions;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import java.sql.SQLException;
+
+/**
+ * A single versioned change to the database schema.
+ * <p>Steps must be idempotent, as a step is executed again if it succeeded but could not be
+ * recorded, or if multiple servers migrate the same database concurrently.
+ *
+ * @param version     the version the schema is at after this migration, greater than zero
+ * @param description a short description of the change, stored alongside the version
+ * @param step        the step applying the change
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 13:28
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public record SchemaMigration(int version, String description, Step step) {
+
+  public SchemaMigration {
+    Preconditions.checkArgument(version > 0, "Version must be greater than zero");
+    Preconditions.checkNotNull(description, "Description must not be null");
+    Preconditions.checkNotNull(step, "Step must not be null");
+  }
+
+  @FunctionalInterface
+  public interface Step {
+    void apply(SchemaMigrationContext context) throws SQLException;
+  }
+
+}
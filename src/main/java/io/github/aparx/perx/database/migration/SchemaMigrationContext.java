@@ -0,0 +1,122 @@
+package io.github.aparx.perx.database.migration;
+
+import com.google.common.base.Preconditions;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import com.j256.ormlite.db.DatabaseType;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+import com.j256.ormlite.table.TableUtils;
+import io.github.aparx.perx.database.DatabaseDialect;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * The dialect-aware operations available to migration steps. All methods are blocking.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 13:33
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public class SchemaMigrationContext {
+
+  private final ConnectionSource source;
+  private final DatabaseDialect dialect;
+
+  public SchemaMigrationContext(ConnectionSource source, DatabaseDialect dialect) {
+    Preconditions.checkNotNull(source, "Source must not be null");
+    Preconditions.checkNotNull(dialect, "Dialect must not be null");
+    this.source = source;
+    this.dialect = dialect;
+  }
+
+  public ConnectionSource getSource() {
+    return source;
+  }
+
+  public DatabaseDialect getDialect() {
+    return dialect;
+  }
+
+  /** Creates the table of {@code modelClass} with its declared indexes, if it does not exist. */
+  public void createTable(Class<?> modelClass) throws SQLException {
+    TableUtils.createTableIfNotExists(source, modelClass);
+  }
+
+  /**
+   * Creates the index {@code name} on {@code columns} of {@code table}, if it does not exist.
+   *
+   * @param table   the table to index
+   * @param name    the name of the index, unique within the database
+   * @param columns the columns to index, in order
+   * @return true if the index was created, false if it already existed
+   * @throws SQLException if the index could not be created
+   */
+  @CanIgnoreReturnValue
+  public boolean createIndex(String table, String name, String... columns) throws SQLException {
+    Preconditions.checkNotNull(table, "Table must not be null");
+    Preconditions.checkNotNull(name, "Name must not be null");
+    Preconditions.checkArgument(columns.length != 0, "Columns must not be empty");
+    if (hasIndex(table, name)) return false;
+    DatabaseType databaseType = source.getDatabaseType();
+    StringBuilder builder = new StringBuilder("CREATE INDEX ");
+    // guards against other servers creating the same index concurrently
+    if (dialect.supportsCreateIndexIfNotExists())
+      builder.append("IF NOT EXISTS ");
+    databaseType.appendEscapedEntityName(builder, name);
+    builder.append(" ON ");
+    databaseType.appendEscapedEntityName(builder, table);
+    builder.append(" (");
+    for (int i = 0; i < columns.length; ++i) {
+      if (i != 0) builder.append(", ");
+      databaseType.appendEscapedEntityName(builder, columns[i]);
+    }
+    builder.append(')');
+    execute(table, builder.toString());
+    return true;
+  }
+
+  /**
+   * Returns true if {@code table} has an index called {@code name}, ignoring case, as
+   * databases differ in how they fold the case of identifiers.
+   */
+  public boolean hasIndex(String table, String name) throws SQLException {
+    DatabaseConnection connection = source.getReadOnlyConnection(table);
+    try {
+      DatabaseMetaData metaData = connection.getUnderlyingConnection().getMetaData();
+      Set<String> tableNames = new LinkedHashSet<>();
+      tableNames.add(table);
+      tableNames.add(table.toUpperCase(Locale.ROOT));
+      tableNames.add(table.toLowerCase(Locale.ROOT));
+      for (String tableName : tableNames) {
+        try (ResultSet indexes = metaData.getIndexInfo(null, null, tableName, false, true)) {
+          while (indexes.next())
+            if (name.equalsIgnoreCase(indexes.getString("INDEX_NAME")))
+              return true;
+        }
+      }
+      return false;
+    } finally {
+      source.releaseConnection(connection);
+    }
+  }
+
+  /** Executes the raw {@code statement}, that alters {@code table}. */
+  public void execute(String table, String statement) throws SQLException {
+    Preconditions.checkNotNull(statement, "Statement must not be null");
+    DatabaseConnection connection = source.getReadWriteConnection(table);
+    try {
+      connection.executeStatement(statement, DatabaseConnection.DEFAULT_RESULT_FLAGS);
+    } finally {
+      source.releaseConnection(connection);
+    }
+  }
+
+}
@@ -0,0 +1,57 @@
+package io.github.aparx.perx.database.migration;
+
+import io.github.aparx.perx.database.data.change.ChangeLogModel;
+import io.github.aparx.perx.database.data.group.GroupModel;
+import io.github.aparx.perx.database.data.group.GroupPermissionModel;
+import io.github.aparx.perx.database.data.many.UserGroupHistoryModel;
+import io.github.aparx.perx.database.data.many.UserGroupModel;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import java.util.List;
+
+/**
+ * All schema migrations of Perx, in the order they are applied. Migrations must never be
+ * changed or removed once released, only new migrations may be appended.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 17:54
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public final class SchemaMigrations {
+
+  public static final List<SchemaMigration> ALL = List.of(
+      new SchemaMigration(1, "Create group and membership tables", (context) -> {
+        // tables of earlier versions already exist and are left as they are
+        context.createTable(GroupModel.class);
+        context.createTable(GroupPermissionModel.class);
+        context.createTable(UserGroupModel.class);
+      }),
+      new SchemaMigration(2, "Index memberships by user, group and ending date", (context) -> {
+        // the unique (user_id, group_id) constraint does not serve lookups by group, and is
+        // not necessarily usable for lookups by user either, depending on the database
+        context.createIndex(UserGroupModel.TABLE_NAME, indexName(UserGroupModel.TABLE_NAME,
+            UserGroupModel.USER_ID_FIELD_NAME), UserGroupModel.USER_ID_FIELD_NAME);
+        context.createIndex(UserGroupModel.TABLE_NAME, indexName(UserGroupModel.TABLE_NAME,
+            UserGroupModel.GROUP_ID_FIELD_NAME), UserGroupModel.GROUP_ID_FIELD_NAME);
+        // declared in the model, but missing on tables created before it was declared
+        context.createIndex(UserGroupModel.TABLE_NAME, indexName(UserGroupModel.TABLE_NAME,
+            UserGroupModel.END_DATE_FIELD_NAME), UserGroupModel.END_DATE_FIELD_NAME);
+      }),
+      new SchemaMigration(3, "Create change log and membership history tables", (context) -> {
+        // both are created regardless of whether syncing or archiving is enabled
+        context.createTable(ChangeLogModel.class);
+        context.createTable(UserGroupHistoryModel.class);
+      }));
+
+  private SchemaMigrations() {
+    throw new UnsupportedOperationException();
+  }
+
+  /** Returns the name ORMLite gives to an index declared on {@code column} of {@code table}. */
+  public static String indexName(String table, String column) {
+    return table + "_" + column + "_idx";
+  }
+
+}
@@ -0,0 +1,129 @@
+package io.github.aparx.perx.database.migration;
+
+import com.google.common.base.Preconditions;
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.table.TableUtils;
+import io.github.aparx.perx.Perx;
+import io.github.aparx.perx.database.Database;
+import io.github.aparx.perx.database.DatabaseDialect;
+import io.github.aparx.perx.database.data.schema.SchemaVersionModel;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+
+/**
+ * Applies all schema migrations that were not applied to a database yet, in the order of
+ * their version, and records every applied migration in the {@code schema_version} table.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 13:49
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public class SchemaMigrator {
+
+  private final List<SchemaMigration> migrations;
+
+  private volatile int version;
+
+  public SchemaMigrator() {
+    this(SchemaMigrations.ALL);
+  }
+
+  public SchemaMigrator(List<SchemaMigration> migrations) {
+    Preconditions.checkNotNull(migrations, "Migrations must not be null");
+    for (int i = 1; i < migrations.size(); ++i)
+      Preconditions.checkArgument(migrations.get(i - 1).version() < migrations.get(i).version(),
+          "Migrations must be ordered by their unique version");
+    this.migrations = List.copyOf(migrations);
+  }
+
+  public List<SchemaMigration> getMigrations() {
+    return migrations;
+  }
+
+  /** Returns the version of the latest migration known. */
+  public int getLatestVersion() {
+    return (!migrations.isEmpty() ? migrations.get(migrations.size() - 1).version() : 0);
+  }
+
+  /** Returns the schema version of the database as of the last migration, or zero. */
+  public int getVersion() {
+    return version;
+  }
+
+  /**
+   * Migrates the schema of {@code database} asynchronously. Migrations are not bound to the
+   * operation timeout, as building an index on a large table may take a while.
+   *
+   * @param database the database to migrate
+   * @return a future of the migrations that were applied
+   */
+  public CompletableFuture<List<SchemaMigration>> migrateAsync(Database database) {
+    Preconditions.checkNotNull(database, "Database must not be null");
+    return database.<List<SchemaMigration>>executeAsync("schema.migrate",
+        // a replica may lag behind in both, the recorded versions and the existing indexes
+        () -> database.readFromPrimary(
+            () -> migrate(database.getSourceLoudly(), database.getDialect())), 0)
+        .whenComplete((applied, ex) -> {
+          if (ex != null) {
+            Perx.getLogger().log(Level.SEVERE, "Could not migrate the database schema", ex);
+            return;
+          }
+          for (SchemaMigration migration : applied)
+            Perx.getLogger().log(Level.INFO, "Migrated schema to version {0}: {1}",
+                new Object[]{migration.version(), migration.description()});
+          if (version > getLatestVersion())
+            Perx.getLogger().log(Level.WARNING, "Database schema version {0} is newer than "
+                + "this version of Perx supports", version);
+        });
+  }
+
+  /**
+   * Applies all migrations that were not applied to the database of {@code source} yet. This
+   * method is blocking and must be called asynchronously.
+   *
+   * @param source  the source of the database to migrate
+   * @param dialect the dialect of that database
+   * @return the migrations that were applied, in order
+   * @throws SQLException if a migration failed, in which case later migrations are not applied
+   */
+  public List<SchemaMigration> migrate(ConnectionSource source, DatabaseDialect dialect)
+      throws SQLException {
+    Preconditions.checkNotNull(source, "Source must not be null");
+    Preconditions.checkNotNull(dialect, "Dialect must not be null");
+    Dao<SchemaVersionModel, Integer> dao = DaoManager.createDao(source, SchemaVersionModel.class);
+    TableUtils.createTableIfNotExists(source, SchemaVersionModel.class);
+    Set<Integer> versions = dao.queryForAll().stream()
+        .map(SchemaVersionModel::getVersion)
+        .collect(Collectors.toSet());
+    SchemaMigrationContext context = new SchemaMigrationContext(source, dialect);
+    List<SchemaMigration> applied = new ArrayList<>();
+    for (SchemaMigration migration : migrations) {
+      if (versions.contains(migration.version())) continue;
+      migration.step().apply(context);
+      try {
+        dao.create(new SchemaVersionModel(
+            migration.version(), migration.description(), new Date()));
+        applied.add(migration);
+      } catch (SQLException e) {
+        // another server may have applied and recorded the same migration concurrently
+        if (!dao.idExists(migration.version())) throw e;
+      }
+      versions.add(migration.version());
+    }
+    this.version = versions.stream().mapToInt(Integer::intValue).max().orElse(0);
+    return applied;
+  }
+
+}
@@ -0,0 +1,56 @@
+package io.github.aparx.perx.database.pool;
+
+import com.google.common.base.Preconditions;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+/**
+ * Settings of a bounded database connection pool.
+ *
+ * @param minimumSize          the amount of connections opened eagerly on connect
+ * @param maximumSize          the maximum amount of connections that are in use concurrently
+ * @param acquireTimeout       the milliseconds to wait for a free connection before failing
+ * @param maximumConnectionAge the milliseconds since its creation after which a connection is
+ *                             closed, regardless of whether it was idle
+ * @param checkInterval        the milliseconds between checks of idle connections (0 disables)
+ * @param testOnBorrow         true if a connection is validated before it is handed out
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-20 14:12
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public record DatabasePoolSettings(
+    int minimumSize,
+    int maximumSize,
+    long acquireTimeout,
+    long maximumConnectionAge,
+    long checkInterval,
+    boolean testOnBorrow
+) {
+
+  public static final DatabasePoolSettings DEFAULT =
+      new DatabasePoolSettings(2, 10, 5000, 1800000, 30000, false);
+
+  public DatabasePoolSettings {
+    Preconditions.checkArgument(minimumSize >= 0, "Minimum size must not be negative");
+    Preconditions.checkArgument(maximumSize >= 1, "Maximum size must be at least one");
+    Preconditions.checkArgument(minimumSize <= maximumSize, "Minimum size exceeds maximum");
+    Preconditions.checkArgument(acquireTimeout > 0, "Acquire timeout must be positive");
+    Preconditions.checkArgument(maximumConnectionAge > 0, "Connection age must be positive");
+    Preconditions.checkArgument(checkInterval >= 0, "Check interval must not be negative");
+  }
+
+  /**
+   * Returns these settings with the maximum size reduced to at most {@code maximumSize}, while
+   * the minimum size is reduced alongside it.
+   *
+   * @param maximumSize the upper bound of the maximum size
+   * @return the new settings, or this if the maximum size is already within bounds
+   */
+  public DatabasePoolSettings withMaximumSize(int maximumSize) {
+    if (this.maximumSize <= maximumSize) return this;
+    return new DatabasePoolSettings(Math.min(minimumSize, maximumSize), maximumSize,
+        acquireTimeout, maximumConnectionAge, checkInterval, testOnBorrow);
+  }
+
+}
@@ -0,0 +1,29 @@
+package io.github.aparx.perx.database.pool;
+
+/**
+ * Snapshot of the occupancy and wait-time counters of a {@code PerxPooledConnectionSource}.
+ *
+ * @param maximumSize      the maximum amount of connections that can be in use concurrently
+ * @param inUse            the amount of connections currently handed out
+ * @param idle             the amount of open connections currently waiting to be reused
+ * @param acquired         the total amount of connections handed out
+ * @param timedOut         the total amount of acquisitions that failed due to the timeout
+ * @param averageWaitNanos the average time spent waiting for a free connection
+ * @param maximumWaitNanos the longest time spent waiting for a free connection
+ * @param opened           the total amount of physical connections opened
+ * @param closed           the total amount of physical connections closed
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-20 14:20
+ * @since 1.0
+ */
+public record DatabasePoolStatistics(
+    int maximumSize,
+    int inUse,
+    int idle,
+    long acquired,
+    long timedOut,
+    long averageWaitNanos,
+    long maximumWaitNanos,
+    long opened,
+    long closed
+) {}
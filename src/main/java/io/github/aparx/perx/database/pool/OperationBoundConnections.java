@@ -0,0 +1,49 @@
+package io.github.aparx.perx.database.pool;
+
+import com.google.common.base.Preconditions;
+import io.github.aparx.perx.database.executor.DatabaseOperation;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+
+/**
+ * Wraps JDBC connections, such that every statement they create is registered with the
+ * {@link DatabaseOperation} bound to the creating thread.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 11:15
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public final class OperationBoundConnections {
+
+  private OperationBoundConnections() {
+    throw new UnsupportedOperationException();
+  }
+
+  public static Connection wrap(Connection connection) {
+    Preconditions.checkNotNull(connection, "Connection must not be null");
+    return (Connection) Proxy.newProxyInstance(
+        OperationBoundConnections.class.getClassLoader(),
+        new Class<?>[]{Connection.class},
+        (proxy, method, args) -> {
+          @Nullable Object result;
+          try {
+            result = method.invoke(connection, args);
+          } catch (InvocationTargetException e) {
+            throw e.getCause();
+          }
+          if (result instanceof Statement statement) {
+            @Nullable DatabaseOperation operation = DatabaseOperation.current();
+            if (operation != null) operation.register(statement);
+          }
+          return result;
+        });
+  }
+
+}
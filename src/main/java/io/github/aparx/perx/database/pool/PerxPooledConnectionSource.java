@@ -0,0 +1,165 @@
+package io.github.aparx.perx.database.pool;
+
+import com.google.common.base.Preconditions;
+import com.j256.ormlite.jdbc.JdbcDatabaseConnection;
+import com.j256.ormlite.jdbc.JdbcPooledConnectionSource;
+import com.j256.ormlite.logger.Logger;
+import com.j256.ormlite.support.DatabaseConnection;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pooled connection source that bounds the amount of connections in use at the same time.
+ * <p>Callers that exceed the maximum size wait up to the configured acquire timeout for a
+ * connection to be released, after which a {@code SQLTimeoutException} is thrown. Released
+ * connections are kept open for reuse and closed once they exceed the maximum age, which is
+ * counted from their creation rather than from their last use.
+ * <p>Statements of pooled connections are bound to the {@code DatabaseOperation} creating
+ * them, which limits their query timeout and allows them to be cancelled.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-20 14:31
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public class PerxPooledConnectionSource extends JdbcPooledConnectionSource {
+
+  private final DatabasePoolSettings settings;
+  private final Semaphore permits;
+  private final @Nullable String username;
+  private final @Nullable String password;
+
+  private final LongAdder acquired = new LongAdder();
+  private final LongAdder timedOut = new LongAdder();
+  private final LongAdder totalWaitNanos = new LongAdder();
+  private final AtomicLong maximumWaitNanos = new AtomicLong();
+
+  public PerxPooledConnectionSource(
+      String url,
+      @Nullable String username,
+      @Nullable String password,
+      DatabasePoolSettings settings) throws SQLException {
+    Preconditions.checkNotNull(url, "URL must not be null");
+    Preconditions.checkNotNull(settings, "Settings must not be null");
+    this.settings = settings;
+    this.permits = new Semaphore(settings.maximumSize(), true);
+    this.username = username;
+    this.password = password;
+    setUrl(url);
+    if (username != null) setUsername(username);
+    if (password != null) setPassword(password);
+    setMaxConnectionsFree(settings.maximumSize());
+    setMaxConnectionAgeMillis(settings.maximumConnectionAge());
+    setCheckConnectionsEveryMillis(settings.checkInterval());
+    setTestBeforeGet(settings.testOnBorrow());
+    // settings must be applied before initialization, as it starts the connection tester
+    initialize();
+  }
+
+  public DatabasePoolSettings getSettings() {
+    return settings;
+  }
+
+  /**
+   * Opens the minimum amount of connections defined in the settings, so that they are
+   * available in the pool before the first queries are made.
+   *
+   * @throws SQLException if a connection could not be opened
+   */
+  public void warmUp() throws SQLException {
+    List<DatabaseConnection> connections = new ArrayList<>(settings.minimumSize());
+    try {
+      for (int i = 0; i < settings.minimumSize(); ++i)
+        connections.add(getReadWriteConnection(null));
+    } finally {
+      for (DatabaseConnection connection : connections)
+        releaseConnection(connection);
+    }
+  }
+
+  @Override
+  public DatabaseConnection getReadWriteConnection(String tableName) throws SQLException {
+    if (getSavedConnection() != null)
+      // the saved connection of a transaction is already accounted for
+      return super.getReadWriteConnection(tableName);
+    acquirePermit();
+    try {
+      return super.getReadWriteConnection(tableName);
+    } catch (SQLException | RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  @Override
+  public void releaseConnection(DatabaseConnection connection) throws SQLException {
+    if (isSavedConnection(connection)) {
+      super.releaseConnection(connection);
+      return;
+    }
+    try {
+      super.releaseConnection(connection);
+    } finally {
+      permits.release();
+    }
+  }
+
+  @Override
+  protected DatabaseConnection makeConnection(Logger logger) throws SQLException {
+    Properties properties = new Properties();
+    if (username != null) properties.setProperty("user", username);
+    if (password != null) properties.setProperty("password", password);
+    DatabaseConnection connection = new JdbcDatabaseConnection(
+        OperationBoundConnections.wrap(DriverManager.getConnection(getUrl(), properties)));
+    connection.setAutoCommit(true);
+    return connection;
+  }
+
+  public DatabasePoolStatistics getStatistics() {
+    long acquired = this.acquired.sum();
+    return new DatabasePoolStatistics(
+        settings.maximumSize(),
+        settings.maximumSize() - permits.availablePermits(),
+        getCurrentConnectionsFree(),
+        acquired,
+        timedOut.sum(),
+        acquired != 0 ? totalWaitNanos.sum() / acquired : 0,
+        maximumWaitNanos.get(),
+        getOpenCount(),
+        getCloseCount());
+  }
+
+  private void acquirePermit() throws SQLException {
+    long start = System.nanoTime();
+    boolean success;
+    try {
+      success = permits.tryAcquire(settings.acquireTimeout(), TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted while waiting for a connection", e);
+    }
+    long waited = System.nanoTime() - start;
+    maximumWaitNanos.accumulateAndGet(waited, Math::max);
+    if (!success) {
+      timedOut.increment();
+      throw new SQLTimeoutException(String.format(
+          "No connection available within %sms (pool size: %s)",
+          settings.acquireTimeout(), settings.maximumSize()));
+    }
+    acquired.increment();
+    totalWaitNanos.add(waited);
+  }
+
+}
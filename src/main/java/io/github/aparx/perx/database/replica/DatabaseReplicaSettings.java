@@ -0,0 +1,33 @@
+package io.github.aparx.perx.database.replica;
+
+import com.google.common.base.Preconditions;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+/**
+ * Settings of an optional read replica, that read-only queries are routed to.
+ *
+ * @param url               the JDBC connectivity string of the replica, or null if all
+ *                          queries are executed on the primary
+ * @param consistencyWindow the milliseconds reads of a user are routed to the primary after
+ *                          that user was mutated, to hide the replication lag
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-22 17:36
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public record DatabaseReplicaSettings(@Nullable String url, long consistencyWindow) {
+
+  public static final DatabaseReplicaSettings DEFAULT = new DatabaseReplicaSettings(null, 2000);
+
+  public DatabaseReplicaSettings {
+    Preconditions.checkArgument(consistencyWindow >= 0, "Window must not be negative");
+    if (url != null && url.isBlank()) url = null;
+  }
+
+  public boolean isEnabled() {
+    return url != null;
+  }
+
+}
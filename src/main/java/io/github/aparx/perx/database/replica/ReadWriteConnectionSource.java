@@ -0,0 +1,140 @@
+package io.github.aparx.perx.database.replica;
+
+import com.google.common.base.Preconditions;
+import com.j256.ormlite.db.DatabaseType;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Connection source that routes read-only connections to a replica and read-write connections
+ * to the primary.
+ * <p>Reads within a transaction, or within {@link #callOnPrimary(Callable)}, are routed to the
+ * primary, so that they see the writes made before them.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-22 17:48
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public class ReadWriteConnectionSource implements ConnectionSource {
+
+  /** Depth of nested {@code callOnPrimary} calls of the current thread */
+  private final ThreadLocal<int[]> primaryDepth = ThreadLocal.withInitial(() -> new int[1]);
+
+  /** Connections currently borrowed from the replica, used to release them correctly */
+  private final Map<DatabaseConnection, Boolean> replicaConnections = new ConcurrentHashMap<>();
+
+  private final ConnectionSource primary;
+  private final ConnectionSource replica;
+
+  public ReadWriteConnectionSource(ConnectionSource primary, ConnectionSource replica) {
+    Preconditions.checkNotNull(primary, "Primary must not be null");
+    Preconditions.checkNotNull(replica, "Replica must not be null");
+    this.primary = primary;
+    this.replica = replica;
+  }
+
+  public ConnectionSource getPrimary() {
+    return primary;
+  }
+
+  public ConnectionSource getReplica() {
+    return replica;
+  }
+
+  /**
+   * Calls {@code callable} on the current thread, while routing all of its reads to the
+   * primary.
+   *
+   * @param callable the callable to call
+   * @param <R>      the result type
+   * @return the result of {@code callable}
+   * @throws Exception if {@code callable} failed
+   */
+  public <R> R callOnPrimary(Callable<R> callable) throws Exception {
+    int[] depth = primaryDepth.get();
+    ++depth[0];
+    try {
+      return callable.call();
+    } finally {
+      if (--depth[0] == 0) primaryDepth.remove();
+    }
+  }
+
+  @Override
+  public DatabaseConnection getReadOnlyConnection(String tableName) throws SQLException {
+    if (primaryDepth.get()[0] > 0 || primary.getSpecialConnection(tableName) != null)
+      return primary.getReadOnlyConnection(tableName);
+    DatabaseConnection connection = replica.getReadOnlyConnection(tableName);
+    replicaConnections.put(connection, Boolean.TRUE);
+    return connection;
+  }
+
+  @Override
+  public DatabaseConnection getReadWriteConnection(String tableName) throws SQLException {
+    return primary.getReadWriteConnection(tableName);
+  }
+
+  @Override
+  public void releaseConnection(DatabaseConnection connection) throws SQLException {
+    if (replicaConnections.remove(connection) != null)
+      replica.releaseConnection(connection);
+    else
+      primary.releaseConnection(connection);
+  }
+
+  @Override
+  public boolean saveSpecialConnection(DatabaseConnection connection) throws SQLException {
+    return primary.saveSpecialConnection(connection);
+  }
+
+  @Override
+  public void clearSpecialConnection(DatabaseConnection connection) {
+    primary.clearSpecialConnection(connection);
+  }
+
+  @Override
+  public @Nullable DatabaseConnection getSpecialConnection(String tableName) {
+    return primary.getSpecialConnection(tableName);
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      replica.close();
+    } finally {
+      primary.close();
+    }
+  }
+
+  @Override
+  public void closeQuietly() {
+    replica.closeQuietly();
+    primary.closeQuietly();
+  }
+
+  @Override
+  public DatabaseType getDatabaseType() {
+    return primary.getDatabaseType();
+  }
+
+  @Override
+  public boolean isOpen(String tableName) {
+    return primary.isOpen(tableName) && replica.isOpen(tableName);
+  }
+
+  @Override
+  public boolean isSingleConnection(String tableName) {
+    return primary.isSingleConnection(tableName);
+  }
+
+}
@@ -89,12 +89,24 @@ public final class PerxGroup implements DatabaseModelConvertible<GroupModel>,
   }
 
   public static PerxGroup of(GroupModel model) {
+    return of(model, model.getPermissions());
+  }
+
+  /**
+   * Creates a new group from {@code model}, whose permissions are given separately, as they
+   * are stored in their own table.
+   *
+   * @param model       the model of the group
+   * @param permissions the permission nodes of the group, mapped to their value
+   * @return the new group
+   */
+  public static PerxGroup of(GroupModel model, Map<String, Boolean> permissions) {
     return PerxGroupBuilder.builder(model.getId())
         .prefix(model.getPrefix())
         .suffix(model.getSuffix())
         .priority(model.getPriority())
         .setDefault(model.isDefault())
-        .addPermissions(model.getPermissions())
+        .addPermissions(permissions)
         .build();
   }
 
@@ -162,7 +174,7 @@ public final class PerxGroup implements DatabaseModelConvertible<GroupModel>,
    */
   @Override
   public GroupModel toModel() {
-    model.setPermissions(permissionRepository.toPermissionMap());
+    // permissions are not part of the model, but stored in the `group_permission` table
     model.setPrefix(getStyle(GroupStyleKey.PREFIX));
     model.setSuffix(getStyle(GroupStyleKey.SUFFIX));
     return model;
@@ -230,6 +242,27 @@ public final class PerxGroup implements DatabaseModelConvertible<GroupModel>,
     return StringUtils.isNotEmpty(styles.get(key));
   }
 
+  /**
+   * Updates this group in place to the state of {@code model} and {@code permissions}, such
+   * that user groups referencing this instance observe the update.
+   *
+   * @param model       the model of this group, as fetched from the database
+   * @param permissions the permission nodes of this group, mapped to their value
+   */
+  public void apply(GroupModel model, Map<String, Boolean> permissions) {
+    Preconditions.checkNotNull(model, "Model must not be null");
+    Preconditions.checkNotNull(permissions, "Permissions must not be null");
+    Preconditions.checkArgument(getName().equals(model.getId()), "Model of another group");
+    setPriority(model.getPriority());
+    setDefault(model.isDefault());
+    setStyle(GroupStyleKey.PREFIX, model.getPrefix());
+    setStyle(GroupStyleKey.SUFFIX, model.getSuffix());
+    permissionRepository.toPermissionMap().keySet().stream()
+        .filter((node) -> !permissions.containsKey(node))
+        .forEach(permissionRepository::remove);
+    permissionRepository.setAll(permissions);
+  }
+
   public PerxPermissionRepository getPermissionRepository() {
     return permissionRepository;
   }
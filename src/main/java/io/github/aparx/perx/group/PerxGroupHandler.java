@@ -6,10 +6,15 @@ import com.j256.ormlite.dao.Dao;
 import com.j256.ormlite.stmt.DeleteBuilder;
 import io.github.aparx.perx.Perx;
 import io.github.aparx.perx.database.Database;
+import io.github.aparx.perx.database.data.change.ChangeType;
 import io.github.aparx.perx.database.data.group.GroupModel;
+import io.github.aparx.perx.database.data.many.UserGroupDao;
 import io.github.aparx.perx.database.data.many.UserGroupModel;
 import io.github.aparx.perx.group.intersection.PerxUserGroup;
+import io.github.aparx.perx.group.intersection.PerxUserGroupJournal;
+import io.github.aparx.perx.group.intersection.PerxUserGroupRepository;
 import io.github.aparx.perx.group.intersection.PerxUserGroupService;
+import io.github.aparx.perx.group.intersection.PerxUserGroupWriteQueue;
 import io.github.aparx.perx.group.style.GroupStyleExecutor;
 import io.github.aparx.perx.permission.PerxPermissionRepository;
 import io.github.aparx.perx.user.PerxUser;
@@ -22,17 +27,28 @@ import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.framework.qual.DefaultQualifier;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.logging.Level;
+import java.util.stream.Collectors;
 
 /**
  * A handling class for subscribing, unsubscribing and generally handling groups.
- * <p>This handler has the responsibility of also updating the database.
+ * <p>This handler has the responsibility of also updating the database. If a write queue is
+ * given, subscriptions are applied to the cache immediately and written in batches. While the
+ * database is degraded, single subscriptions are applied to the cache and journaled instead.
  *
  * @author aparx (Vinzent Z.)
  * @version 2024-01-04 04:34
@@ -44,7 +60,17 @@ public record PerxGroupHandler(
     GroupStyleExecutor styleExecutor,
     PerxUserService userService,
     PerxGroupService groupService,
-    PerxUserGroupService userGroupService) {
+    PerxUserGroupService userGroupService,
+    @Nullable PerxUserGroupWriteQueue writeQueue) {
+
+  public PerxGroupHandler(
+      Database database,
+      GroupStyleExecutor styleExecutor,
+      PerxUserService userService,
+      PerxGroupService groupService,
+      PerxUserGroupService userGroupService) {
+    this(database, styleExecutor, userService, groupService, userGroupService, null);
+  }
 
   public PerxGroupHandler {
     Preconditions.checkNotNull(database, "Database must not be null");
@@ -120,6 +146,11 @@ public record PerxGroupHandler(
         .thenAccept((user) -> {
           subscribeInCache(user, defaults);
           updateUser(user);
+        })
+        .exceptionally((ex) -> {
+          // complete regardless, so that callers waiting on the join are not left hanging
+          Perx.getLogger().log(Level.WARNING, "Could not reinitialize " + player.getName(), ex);
+          return null;
         });
   }
 
@@ -184,6 +215,23 @@ public record PerxGroupHandler(
     });
   }
 
+  /**
+   * Removes {@code group} and all of its memberships from cache, without deleting them from
+   * the database, and resets the group from all of its online players.
+   *
+   * @param group the group that no longer exists
+   */
+  public void evictGroup(PerxGroup group) {
+    String name = group.getName();
+    groupService.getRepository().remove(name);
+    userGroupService.getRepository().removeByGroup(name);
+    group.forEach((user) -> {
+      user.removeGroup(name);
+      @Nullable Player player = user.getPlayer();
+      if (player != null) resetGroupFromPlayer(player, group);
+    });
+  }
+
   /**
    * Applies the highest possible style for {@code user} of groups they are subscribed to.
    * <p>The highest possible style is the style of any group that contains any custom styling,
@@ -221,6 +269,7 @@ public record PerxGroupHandler(
   @CanIgnoreReturnValue
   public CompletableFuture<Boolean> delete(PerxGroup group) {
     return groupService.delete(group.getName()).thenApply((res) -> {
+      userService.invalidateAllInactive();
       // force unsubscribe in cache, even if the database interaction failed
       group.forEach((user) -> doUnsubscribeInCache(user, group));
       return res;
@@ -238,6 +287,9 @@ public record PerxGroupHandler(
   @CanIgnoreReturnValue
   public CompletableFuture<Boolean> unsubscribe(PerxGroup group) {
     return userGroupService.deleteByGroup(group.getName()).thenApply((res) -> {
+      userService.invalidateAllInactive();
+      if (res)
+        Perx.getInstance().getChangeLog().record(ChangeType.GROUP_MEMBERSHIP, group.getName());
       // force unsubscribe in cache, even if the database interaction failed
       group.forEach((user) -> doUnsubscribeInCache(user, group));
       return res;
@@ -247,11 +299,31 @@ public record PerxGroupHandler(
   @CanIgnoreReturnValue
   public CompletableFuture<Boolean> unsubscribe(PerxUserGroup userGroup) {
     userGroup.markRemoved();
+    if (database.isDegraded())
+      return fetchUserToPerform(userGroup.getUserId(), (user) -> journal(
+          PerxUserGroupJournal.Entry.unsubscribe(user.getId(), userGroup.getGroupName())
+      ).thenApply((__) -> {
+        doUnsubscribeInCache(user, userGroup.getGroupName(), userGroup.findGroup());
+        return true;
+      }));
+    @Nullable PerxUserGroupWriteQueue writeQueue = this.writeQueue;
+    if (writeQueue != null && (userGroup.isModelInDatabase()
+        || writeQueue.isPending(userGroup.getUserId(), userGroup.getGroupName())))
+      return fetchUserToPerform(userGroup.getUserId(), (user) -> {
+        doUnsubscribeInCache(user, userGroup.getGroupName(), userGroup.findGroup());
+        return recordRemovalIfChanged(user.getId(),
+            writeQueue.delete(user.getId(), userGroup.getGroupName()));
+      });
     return fetchUserToPerform(userGroup.getUserId(), (user) ->
         (userGroup.isModelInDatabase()
-            ? database.executeAsync(() -> userGroupService.getDao().deleteById(userGroup.getId()))
+            ? database.executeAsync("user_group.delete_by_id",
+                () -> userGroupService.getDao().deleteById(userGroup.getId()))
             : CompletableFuture.completedFuture(1)
         ).thenApply((result) -> {
+          if (userGroup.isModelInDatabase() && result > 0) {
+            recordChange(user.getId());
+            adjustMembers(userGroup.getGroupName(), -result);
+          }
           // force unsubscribe in cache, even if the database interaction failed
           doUnsubscribeInCache(user, userGroup.getGroupName(), userGroup.findGroup());
           return result < 1;
@@ -265,17 +337,36 @@ public record PerxGroupHandler(
 
   @CanIgnoreReturnValue
   public CompletableFuture<Boolean> unsubscribe(UUID userId, PerxGroup group) {
+    if (database.isDegraded())
+      return fetchUserToPerform(userId, (user) -> journal(
+          PerxUserGroupJournal.Entry.unsubscribe(user.getId(), group.getName())
+      ).thenApply((__) -> {
+        doUnsubscribeInCache(user, group.getName(), group);
+        return true;
+      }));
+    @Nullable PerxUserGroupWriteQueue writeQueue = this.writeQueue;
+    if (writeQueue != null)
+      return fetchUserToPerform(userId, (user) -> {
+        doUnsubscribeInCache(user, group.getName(), group);
+        return recordRemovalIfChanged(user.getId(),
+            writeQueue.delete(user.getId(), group.getName()));
+      });
     return fetchUserToPerform(userId, (user) -> database
-        .executeAsync(() -> {
+        .executeAsync("user_group.delete", () -> {
           DeleteBuilder<UserGroupModel, Long> deleteBuilder =
               userGroupService.getDao().deleteBuilder();
-          deleteBuilder.limit(1L).where()
+          if (database.getDialect().supportsDeleteLimit()) deleteBuilder.limit(1L);
+          deleteBuilder.where()
               // unique combo index should force O(1) lookup in database engine
               .eq(UserGroupModel.USER_ID_FIELD_NAME, user.getId()).and()
               .eq(UserGroupModel.GROUP_ID_FIELD_NAME, group.getName());
           return deleteBuilder.delete();
         })
         .thenApply((res) -> {
+          if (res != 0) {
+            recordChange(user.getId());
+            adjustMembers(group.getName(), -res);
+          }
           // force unsubscribe in cache, even if the database interaction failed
           doUnsubscribeInCache(user, group.getName(), group);
           return res != 0;
@@ -295,6 +386,113 @@ public record PerxGroupHandler(
     return subscribe(userGroup);
   }
 
+  /**
+   * Subscribes all {@code userIds} to the group named {@code groupName}, using a single
+   * transaction with multi-row statements instead of one round trip per user.
+   * <p>The cache and online players are updated within one pass on the primary thread. Users
+   * that are not cached are only updated within the database.
+   *
+   * @param userIds   the users to subscribe
+   * @param groupName the group to subscribe the users to
+   * @param end       the date at which the subscriptions end, or null if they never end
+   * @return a future of a map, mapping each user to true if they were newly subscribed, or
+   * false if they already were subscribed
+   */
+  @CanIgnoreReturnValue
+  public CompletableFuture<Map<UUID, Boolean>> subscribeAll(
+      Collection<UUID> userIds, String groupName, @Nullable Date end) {
+    Preconditions.checkNotNull(userIds, "Users must not be null");
+    PerxGroup group = groupService.getRepository().getLoudly(groupName);
+    Set<UUID> targets = new LinkedHashSet<>(userIds);
+    UserGroupDao dao = userGroupService.getDao();
+    return flushWriteQueue()
+        .thenCompose((__) -> database.executeInTransaction("user_group.subscribe_all", () -> {
+            Set<UUID> existing = dao.findByGroupAndUsers(group.getName(), targets).stream()
+                .map(UserGroupModel::getUserId)
+                .collect(Collectors.toSet());
+            List<UserGroupModel> models = targets.stream()
+                .filter((userId) -> !existing.contains(userId))
+                .map((userId) -> new UserGroupModel(userId, new GroupModel(group.getName()), end))
+                .toList();
+            if (models.isEmpty()) return List.<UserGroupModel>of();
+            dao.insertAll(models);
+            // read the inserted rows back, as multi-row inserts do not return their IDs
+            return dao.findByGroupAndUsers(group.getName(),
+                models.stream().map(UserGroupModel::getUserId).toList());
+          }))
+        .thenApply((created) -> {
+          Map<UUID, Boolean> results = new LinkedHashMap<>();
+          targets.forEach((userId) -> results.put(userId, false));
+          created.forEach((model) -> results.put(model.getUserId(), true));
+          created.forEach((model) -> database.markWritten(model.getUserId()));
+          targets.forEach(userService::invalidateInactive);
+          adjustMembers(group.getName(), created.size());
+          Perx.getInstance().getChangeLog().recordAll(ChangeType.MEMBERSHIP, created.stream()
+              .map((model) -> model.getUserId().toString())
+              .toList());
+          BukkitThreads.runOnPrimaryThread(() -> created.forEach((model) -> {
+            PerxUserGroup userGroup = PerxUserGroup.of(model, group);
+            @Nullable PerxUser user = userService.getRepository().get(model.getUserId());
+            if (user != null)
+              doSubscribeInCache(user, userGroup);
+            else if (userGroupService.getRepository().hasUser(model.getUserId()))
+              userGroupService.getRepository().put(userGroup);
+          }));
+          return results;
+        });
+  }
+
+  /**
+   * Unsubscribes all {@code userIds} from the group named {@code groupName}, using a single
+   * transaction with one {@code DELETE} statement instead of one round trip per user.
+   * <p>The cache and online players are updated within one pass on the primary thread.
+   *
+   * @param userIds   the users to unsubscribe
+   * @param groupName the group to unsubscribe the users from
+   * @return a future of a map, mapping each user to true if they were unsubscribed, or false
+   * if they were not subscribed in the first place
+   */
+  @CanIgnoreReturnValue
+  public CompletableFuture<Map<UUID, Boolean>> unsubscribeAll(
+      Collection<UUID> userIds, String groupName) {
+    Preconditions.checkNotNull(userIds, "Users must not be null");
+    Preconditions.checkNotNull(groupName, "Group name must not be null");
+    String groupId = PerxGroup.transformKey(groupName);
+    @Nullable PerxGroup group = groupService.getRepository().get(groupId);
+    Set<UUID> targets = new LinkedHashSet<>(userIds);
+    UserGroupDao dao = userGroupService.getDao();
+    return flushWriteQueue()
+        .thenCompose((__) -> database.executeInTransaction("user_group.unsubscribe_all", () -> {
+            List<UUID> existing = dao.findByGroupAndUsers(groupId, targets).stream()
+                .map(UserGroupModel::getUserId)
+                .toList();
+            dao.deleteUsersFromGroup(groupId, existing);
+            return existing;
+          }))
+        .thenApply((removed) -> {
+          Map<UUID, Boolean> results = new LinkedHashMap<>();
+          targets.forEach((userId) -> results.put(userId, false));
+          removed.forEach((userId) -> results.put(userId, true));
+          removed.forEach(database::markWritten);
+          targets.forEach(userService::invalidateInactive);
+          adjustMembers(groupId, -removed.size());
+          Perx.getInstance().getChangeLog().recordAll(ChangeType.MEMBERSHIP,
+              removed.stream().map(UUID::toString).toList());
+          BukkitThreads.runOnPrimaryThread(() -> targets.forEach((userId) -> {
+            PerxUserGroupRepository repository = userGroupService.getRepository();
+            new ArrayList<>(repository.findByUser(userId)).stream()
+                .filter((userGroup) -> groupId.equals(userGroup.getGroupName()))
+                .forEach(repository::remove);
+            @Nullable PerxUser user = userService.getRepository().get(userId);
+            if (user == null || user.removeGroup(groupId) == null) return;
+            @Nullable Player player = user.getPlayer();
+            if (player != null && group != null)
+              resetGroupFromPlayer(player, group);
+          }));
+          return results;
+        });
+  }
+
   private CompletableFuture<Boolean> subscribe(PerxUserGroup userGroup) {
     PerxGroupRepository groupRepository = groupService.getRepository();
     PerxGroup group = userGroup.getGroup();
@@ -302,13 +500,41 @@ public record PerxGroupHandler(
     UserGroupModel temporaryModel = new UserGroupModel(
         userGroup.getUserId(), new GroupModel(group.getName()),
         userGroup.getEndingDate());
+    if (database.isDegraded())
+      return fetchUserToPerform(userGroup.getUserId(), (user) -> journal(
+          PerxUserGroupJournal.Entry.subscribe(
+              user.getId(), userGroup.getGroupName(), userGroup.getEndingDate())
+      ).thenApply((__) -> {
+        // the membership receives its ID once the journal is replayed and the user reloaded
+        doSubscribeInCache(user, userGroup);
+        return true;
+      }));
+    @Nullable PerxUserGroupWriteQueue writeQueue = this.writeQueue;
+    if (writeQueue != null)
+      return fetchUserToPerform(userGroup.getUserId(), (user) -> {
+        doSubscribeInCache(user, userGroup);
+        return writeQueue.insert(temporaryModel).whenComplete((created, ex) -> {
+          if (ex != null) {
+            // roll back the cache, as the subscription was never written
+            doUnsubscribeInCache(user, userGroup.getGroupName(), group);
+          } else if (created) {
+            // the member count is adjusted by the write queue itself
+            recordChange(user.getId());
+            userGroup.setId(temporaryModel.getId());
+            // reindex the user group with the ID it received from the database
+            userGroupService.getRepository().put(userGroup);
+          }
+        });
+      });
     return fetchUserToPerform(userGroup.getUserId(), (user) -> database
-        .executeAsync(() -> userGroupService.getDao().create(temporaryModel))
+        .executeAsync("user_group.create", () -> userGroupService.getDao().create(temporaryModel))
         .thenApply((x) -> {
           if (x == 0)
             // subscription was not successful
             return false;
           userGroup.setId(temporaryModel.getId());
+          recordChange(user.getId());
+          adjustMembers(group.getName(), 1);
           doSubscribeInCache(user, userGroup);
           Perx.getLogger().log(Level.FINE, () -> String.format(
               "(UserGroup-%s) User %s subscribes to %s",
@@ -317,11 +543,59 @@ public record PerxGroupHandler(
         }));
   }
 
+  /**
+   * Records a change of {@code userId}'s memberships for other servers to reload them, while
+   * this server reads them from the primary for the consistency window.
+   */
+  private void recordChange(UUID userId) {
+    database.markWritten(userId);
+    Perx.getInstance().getChangeLog().record(ChangeType.MEMBERSHIP, userId.toString());
+  }
+
+  /**
+   * Appends {@code entry} to the journal, for it to be replayed once the database recovered.
+   */
+  private CompletableFuture<@Nullable Void> journal(PerxUserGroupJournal.Entry entry) {
+    PerxUserGroupJournal journal = Perx.getInstance().getUserGroupJournal();
+    return CompletableFuture.runAsync(() -> {
+      try {
+        journal.append(entry);
+      } catch (IOException e) {
+        throw new CompletionException(e);
+      }
+    });
+  }
+
+  /**
+   * Records the removal of {@code userId} once {@code future} of the write queue completed, if
+   * that removal changed the database. The member count is adjusted by the write queue itself,
+   * once per changed row.
+   */
+  private CompletableFuture<Boolean> recordRemovalIfChanged(
+      UUID userId, CompletableFuture<Boolean> future) {
+    return future.thenApply((changed) -> {
+      if (changed) recordChange(userId);
+      return changed;
+    });
+  }
+
+  /** Adjusts the cached amount of members of the group named {@code groupName}. */
+  private void adjustMembers(String groupName, long delta) {
+    userGroupService.getCounter().adjust(groupName, delta);
+  }
+
+  private CompletableFuture<@Nullable Void> flushWriteQueue() {
+    @Nullable PerxUserGroupWriteQueue writeQueue = this.writeQueue;
+    // pending writes are flushed first, so that they cannot overtake bulk operations
+    return (writeQueue != null ? writeQueue.flush() : CompletableFuture.completedFuture(null));
+  }
+
   private CompletableFuture<Boolean> fetchUserToPerform(
       UUID userId, Function<PerxUser, CompletableFuture<Boolean>> action) {
-    return Perx.getInstance().getUserService()
-        .getOrFetch(userId, UserCacheStrategy.AUTO)
-        .thenCompose(action);
+    return userService.getOrFetch(userId, UserCacheStrategy.BOUNDED)
+        .thenCompose(action)
+        // a cached offline user is invalidated, whether or not the action changed them
+        .whenComplete((__, ex) -> userService.invalidateInactive(userId));
   }
 
   private void doUnsubscribeInCache(PerxUser user, PerxGroup group) {
@@ -5,11 +5,13 @@ import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import com.j256.ormlite.dao.Dao;
 import com.j256.ormlite.dao.DaoManager;
 import com.j256.ormlite.support.ConnectionSource;
-import com.j256.ormlite.table.TableUtils;
 import io.github.aparx.perx.Perx;
 import io.github.aparx.perx.database.Database;
+import io.github.aparx.perx.database.data.change.ChangeType;
 import io.github.aparx.perx.database.data.group.GroupModel;
 import io.github.aparx.perx.database.data.group.GroupModelDao;
+import io.github.aparx.perx.database.data.group.GroupPermissionDao;
+import io.github.aparx.perx.database.data.group.GroupPermissionModel;
 import io.github.aparx.perx.events.GroupsFetchedEvent;
 import io.github.aparx.perx.group.intersection.PerxUserGroupService;
 import org.bukkit.Bukkit;
@@ -17,6 +19,7 @@ import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.framework.qual.DefaultQualifier;
 
+import java.sql.SQLException;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
@@ -33,6 +36,7 @@ import java.util.stream.Stream;
 public class PerxGroupManager implements PerxGroupService {
 
   private @Nullable GroupModelDao dao;
+  private @Nullable GroupPermissionDao permissionDao;
 
   private final Database database;
   private final PerxGroupRepository repository;
@@ -50,19 +54,73 @@ public class PerxGroupManager implements PerxGroupService {
 
   @Override
   public void load() {
-    database.executeAsync(() -> {
+    database.executeAsync("group.load", () -> {
       ConnectionSource dbSource = database.getSourceLoudly();
-      this.dao = DaoManager.createDao(dbSource, GroupModel.class);
-      TableUtils.createTableIfNotExists(dbSource, GroupModel.class);
-      dao.queryForAll().stream()
-          .filter((model) -> repository.register(PerxGroup.of(model)))
-          .forEach((model) -> Perx.getLogger().log(Level.INFO, "Fetched: {0}", model.getId()));
-      Bukkit.getScheduler().runTask(Perx.getPlugin(),
-          () -> Bukkit.getPluginManager().callEvent(new GroupsFetchedEvent(this, false)));
+      GroupModelDao dao = DaoManager.createDao(dbSource, GroupModel.class);
+      GroupPermissionDao permissionDao =
+          DaoManager.createDao(dbSource, GroupPermissionModel.class);
+      this.dao = dao;
+      this.permissionDao = permissionDao;
+      List<GroupModel> models = dao.queryForAll();
+      // all permissions are loaded at once, instead of one query per group. Migrations read
+      // from the primary, as a replica may not have received the migrated rows yet
+      Map<String, Map<String, Boolean>> permissions =
+          (models.stream().anyMatch(GroupModel::hasLegacyPermissions)
+              ? database.readFromPrimary(() -> {
+                migrateLegacyPermissions(dao, permissionDao, models);
+                return permissionDao.findAllGrouped();
+              })
+              : permissionDao.findAllGrouped());
+      // groups restored from a snapshot are already cached and are updated in place instead
+      Set<String> restored = repository.stream()
+          .map(PerxGroup::getName)
+          .collect(Collectors.toCollection(HashSet::new));
+      List<GroupModel> updated = new ArrayList<>(restored.size());
+      for (GroupModel model : models) {
+        if (restored.remove(model.getId()))
+          updated.add(model);
+        else if (repository.register(PerxGroup.of(model,
+            permissions.getOrDefault(model.getId(), Map.of()))))
+          Perx.getLogger().log(Level.INFO, "Fetched: {0}", model.getId());
+      }
+      Bukkit.getScheduler().runTask(Perx.getPlugin(), () -> {
+        for (GroupModel model : updated) {
+          @Nullable PerxGroup group = repository.get(model.getId());
+          if (group != null) group.apply(model, permissions.getOrDefault(model.getId(), Map.of()));
+        }
+        // restored groups that no longer exist in the database
+        restored.stream()
+            .map(repository::get)
+            .filter(Objects::nonNull)
+            .forEach(Perx.getInstance().getGroupHandler()::evictGroup);
+        Bukkit.getPluginManager().callEvent(new GroupsFetchedEvent(this, false));
+      });
     });
   }
 
 
+  /**
+   * Moves the permissions of groups still stored in the legacy JSON column into the
+   * {@code group_permission} table and empties the column afterwards. Permissions that already
+   * exist in the table are not overridden.
+   */
+  private static void migrateLegacyPermissions(
+      GroupModelDao dao, GroupPermissionDao permissionDao, List<GroupModel> models) {
+    for (GroupModel model : models) {
+      if (!model.hasLegacyPermissions()) continue;
+      try {
+        int inserted = permissionDao.insertMissing(model.getId(), model.getPermissions());
+        model.setPermissions(Map.of());
+        dao.update(model);
+        Perx.getLogger().log(Level.INFO, "Migrated {0} permission(s) of group {1}",
+            new Object[]{inserted, model.getId()});
+      } catch (SQLException e) {
+        Perx.getLogger().log(Level.SEVERE,
+            "Could not migrate permissions of group " + model.getId(), e);
+      }
+    }
+  }
+
   @Override
   public GroupModelDao getDao() {
     @Nullable GroupModelDao dao = this.dao;
@@ -70,6 +128,13 @@ public class PerxGroupManager implements PerxGroupService {
     return dao;
   }
 
+  @Override
+  public GroupPermissionDao getPermissionDao() {
+    @Nullable GroupPermissionDao permissionDao = this.permissionDao;
+    Preconditions.checkArgument(permissionDao != null, "DAO is not initialized");
+    return permissionDao;
+  }
+
   @Override
   public PerxGroupRepository getRepository() {
     return repository;
@@ -82,41 +147,83 @@ public class PerxGroupManager implements PerxGroupService {
 
   @Override
   public CompletableFuture<Boolean> create(PerxGroup group) {
-    return getDao().create(database, group).thenApply((result) -> {
-      return !result || repository.register(group);
-    });
+    // the group and its permissions are written atomically in one round trip
+    return getDao().create(database, group, () -> replacePermissions(group))
+        .thenApply((result) -> {
+          if (!result) return false;
+          recordChange(group.getName());
+          return repository.register(group);
+        });
   }
 
   @Override
   public CompletableFuture<Dao.CreateOrUpdateStatus> upsert(PerxGroup group) {
-    return getDao().upsert(database, group).thenApply((result) -> {
-      repository.put(group);
-      return result;
-    });
+    return getDao().upsert(database, group, () -> replacePermissions(group))
+        .thenApply((result) -> {
+          recordChange(group.getName());
+          repository.put(group);
+          return result;
+        });
   }
 
   @Override
   public CompletableFuture<Integer> update(PerxGroup group) {
     return getDao().update(database, group).thenApply((rowsUpdated) -> {
       // TODO consider updating the already cached group!
+      if (rowsUpdated > 0) recordChange(group.getName());
       repository.put(group);
       return rowsUpdated;
     });
   }
 
   @Override
-  public CompletableFuture<Boolean> delete(String name) {
-    return getDao().delete(database, name).thenCompose((result) -> {
-          if (!result) return CompletableFuture.completedFuture(false);
-          return Perx.getInstance().getUserGroupService()
-              .deleteByGroup(name)
-              .thenApply((__) -> true)
-              .exceptionally((__) -> true);
-        })
+  public CompletableFuture<Boolean> setPermission(PerxGroup group, String node, boolean value) {
+    Preconditions.checkNotNull(group, "Group must not be null");
+    Preconditions.checkNotNull(node, "Node must not be null");
+    return getPermissionDao().upsert(database, group.getName(), node, value)
         .thenApply((result) -> {
-          if (result) repository.remove(name);
+          if (result) recordChange(group.getName());
           return result;
         });
   }
 
+  @Override
+  public CompletableFuture<Boolean> unsetPermission(PerxGroup group, String node) {
+    Preconditions.checkNotNull(group, "Group must not be null");
+    Preconditions.checkNotNull(node, "Node must not be null");
+    return getPermissionDao().delete(database, group.getName(), node)
+        .thenApply((result) -> {
+          if (result) recordChange(group.getName());
+          return result;
+        });
+  }
+
+  /** Records a change of the group named {@code name} for other servers to reload it. */
+  private void recordChange(String name) {
+    Perx.getInstance().getChangeLog().record(ChangeType.GROUP, name);
+  }
+
+  /** Replaces the permissions of {@code group} in the database, blocking the current thread. */
+  private void replacePermissions(PerxGroup group) throws SQLException {
+    getPermissionDao().replace(group.getName(), group.getPermissionRepository().toPermissionMap());
+  }
+
+  @Override
+  public CompletableFuture<Boolean> delete(String name) {
+    String groupId = PerxGroup.transformKey(name);
+    PerxUserGroupService userGroupService = Perx.getInstance().getUserGroupService();
+    // the group, its permissions and its memberships are deleted atomically in one round trip
+    return getDao().delete(database, groupId, () -> {
+      getPermissionDao().deleteByGroup(groupId);
+      userGroupService.getDao().deleteByGroup(groupId);
+    }).thenApply((result) -> {
+      userGroupService.getCounter().invalidate(groupId);
+      if (!result) return false;
+      recordChange(groupId);
+      repository.remove(groupId);
+      userGroupService.getRepository().removeByGroup(groupId);
+      return true;
+    });
+  }
+
 }
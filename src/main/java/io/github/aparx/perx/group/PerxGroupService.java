@@ -5,6 +5,7 @@ import com.google.errorprone.annotations.CheckReturnValue;
 import com.j256.ormlite.dao.Dao;
 import io.github.aparx.perx.database.PerxModelService;
 import io.github.aparx.perx.database.data.group.GroupModelDao;
+import io.github.aparx.perx.database.data.group.GroupPermissionDao;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.framework.qual.DefaultQualifier;
 
@@ -22,6 +23,9 @@ import java.util.concurrent.CompletableFuture;
 @DefaultQualifier(NonNull.class)
 public interface PerxGroupService extends PerxModelService<GroupModelDao> {
 
+  @CheckReturnValue
+  GroupPermissionDao getPermissionDao();
+
   @CheckReturnValue
   PerxGroupRepository getRepository();
 
@@ -44,8 +48,35 @@ public interface PerxGroupService extends PerxModelService<GroupModelDao> {
    */
   CompletableFuture<Dao.CreateOrUpdateStatus> upsert(PerxGroup group);
 
+  /**
+   * Updates the columns of {@code group} in the database, without its permissions, which are
+   * written per node using {@link #setPermission} and {@link #unsetPermission}.
+   *
+   * @param group the group to update
+   * @return the resolving future, with the amount of updated rows
+   */
   CompletableFuture<Integer> update(PerxGroup group);
 
+  /**
+   * Sets the permission {@code node} of {@code group} to {@code value} in the database, by
+   * only writing the row of that node.
+   *
+   * @param group the group the permission belongs to
+   * @param node  the permission node
+   * @param value true if the permission is given, false if denied
+   * @return the resolving future, with true if the row was written
+   */
+  CompletableFuture<Boolean> setPermission(PerxGroup group, String node, boolean value);
+
+  /**
+   * Deletes the permission {@code node} of {@code group} from the database.
+   *
+   * @param group the group the permission belongs to
+   * @param node  the permission node
+   * @return the resolving future, with true if the row was deleted
+   */
+  CompletableFuture<Boolean> unsetPermission(PerxGroup group, String node);
+
   CompletableFuture<Boolean> delete(String name);
 
 }
@@ -2,6 +2,8 @@ package io.github.aparx.perx.group;
 
 import com.google.common.base.Preconditions;
 import io.github.aparx.perx.Perx;
+import io.github.aparx.perx.group.intersection.PerxUserGroup;
+import io.github.aparx.perx.user.PerxUser;
 import io.github.aparx.perx.user.PerxUserService;
 import org.bukkit.Bukkit;
 import org.bukkit.plugin.Plugin;
@@ -10,11 +12,24 @@ import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.framework.qual.DefaultQualifier;
 
-import java.util.Objects;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
 
 /**
+ * Unsubscribes user groups once they expire, using a min-heap keyed by their ending date.
+ * <p>Only user groups with an ending date of users cached for runtime are scheduled, thus the
+ * cost of every tick scales with the amount of expirations rather than with the amount of
+ * players and their groups. Entries whose ending date changed in the meantime are skipped, as
+ * they are rescheduled. User groups are unscheduled once removed from their user or once their
+ * user is released, such that no user outlives their stay in cache through this task.
+ *
  * @author aparx (Vinzent Z.)
- * @version 2024-01-05 02:37
+ * @version 2024-01-23 17:15
  * @since 1.0
  */
 @DefaultQualifier(NonNull.class)
@@ -22,6 +37,12 @@ public final class PerxGroupUpdateTask {
 
   private final Plugin plugin;
 
+  private final PriorityQueue<Expiry> queue =
+      new PriorityQueue<>(Comparator.comparingLong(Expiry::due));
+
+  /** The due time each user group is currently scheduled at, used to skip stale entries */
+  private final Map<PerxUserGroup, Long> scheduled = new IdentityHashMap<>();
+
   private @Nullable BukkitTask task;
 
   public PerxGroupUpdateTask(Plugin plugin) {
@@ -31,25 +52,109 @@ public final class PerxGroupUpdateTask {
 
   public void start() {
     if (task != null) task.cancel();
-    task = Bukkit.getScheduler().runTaskTimer(plugin, this::perform, 20, 30);
+    task = Bukkit.getScheduler().runTaskTimer(plugin, this::perform, 20, 1);
   }
 
   public void stop() {
     if (task != null) task.cancel();
     task = null;
+    synchronized (queue) {
+      queue.clear();
+      scheduled.clear();
+    }
   }
 
   /**
-   * Performs a group update for all players and automatically unsubscribes if needed.
+   * Schedules {@code userGroup} to be unsubscribed once its ending date is reached, replacing
+   * any previous schedule of it. User groups without an ending date, or whose user is not cached
+   * for runtime and subscribed to them, are not scheduled.
+   *
+   * @param userGroup the user group to schedule
+   */
+  public void schedule(PerxUserGroup userGroup) {
+    Preconditions.checkNotNull(userGroup, "User group must not be null");
+    @Nullable Date endDate = userGroup.getEndingDate();
+    if (endDate == null || !isSubscribedAtRuntime(userGroup)) {
+      unschedule(userGroup);
+      return;
+    }
+    synchronized (queue) {
+      long due = endDate.getTime();
+      @Nullable Long previous = scheduled.put(userGroup, due);
+      if (previous == null || previous != due)
+        queue.add(new Expiry(due, userGroup));
+    }
+  }
+
+  /** Schedules all user groups of {@code user}, once they are cached for runtime. */
+  public void scheduleAll(PerxUser user) {
+    Preconditions.checkNotNull(user, "User must not be null");
+    user.getSubscribed().forEach(this::schedule);
+  }
+
+  /**
+   * Removes the schedule of {@code userGroup}, if any, such that this task no longer
+   * references it.
+   *
+   * @param userGroup the user group to unschedule
+   */
+  public void unschedule(PerxUserGroup userGroup) {
+    Preconditions.checkNotNull(userGroup, "User group must not be null");
+    synchronized (queue) {
+      if (scheduled.remove(userGroup) != null)
+        queue.removeIf((expiry) -> expiry.userGroup() == userGroup);
+    }
+  }
+
+  /** Unschedules all user groups of {@code user}, once they are no longer cached for runtime. */
+  public void unscheduleAll(PerxUser user) {
+    Preconditions.checkNotNull(user, "User must not be null");
+    user.getSubscribed().forEach(this::unschedule);
+  }
+
+  /** Returns the amount of user groups currently scheduled to expire. */
+  public int size() {
+    synchronized (queue) {
+      return scheduled.size();
+    }
+  }
+
+  /**
+   * Unsubscribes all scheduled user groups that are due, if their user is still cached and
+   * subscribed to them.
    */
   public void perform() {
+    List<PerxUserGroup> due = pollDue(System.currentTimeMillis());
+    if (due.isEmpty()) return;
     PerxGroupHandler groupHandler = Perx.getInstance().getGroupHandler();
+    for (PerxUserGroup userGroup : due) {
+      if (isSubscribedAtRuntime(userGroup))
+        groupHandler.unsubscribeIfNeeded(userGroup);
+    }
+  }
+
+  private static boolean isSubscribedAtRuntime(PerxUserGroup userGroup) {
     PerxUserService userService = Perx.getInstance().getUserService();
-    Bukkit.getOnlinePlayers().stream()
-        .map(userService.getRepository()::get)
-        .filter(Objects::nonNull)
-        .flatMap((user) -> user.getSubscribed().stream())
-        .forEach(groupHandler::unsubscribeIfNeeded);
+    @Nullable PerxUser user = userService.getRepository().get(userGroup.getUserId());
+    return user != null && user.getSubscribed().contains(userGroup);
   }
 
+  private List<PerxUserGroup> pollDue(long now) {
+    synchronized (queue) {
+      List<PerxUserGroup> due = new ArrayList<>(0);
+      @Nullable Expiry expiry;
+      // isExpired() requires the ending date to be strictly exceeded
+      while ((expiry = queue.peek()) != null && expiry.due() < now) {
+        queue.poll();
+        @Nullable Long current = scheduled.get(expiry.userGroup());
+        if (current == null || current != expiry.due()) continue;
+        scheduled.remove(expiry.userGroup());
+        due.add(expiry.userGroup());
+      }
+      return due;
+    }
+  }
+
+  private record Expiry(long due, PerxUserGroup userGroup) {}
+
 }
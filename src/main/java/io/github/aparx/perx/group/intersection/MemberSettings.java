@@ -0,0 +1,25 @@
+package io.github.aparx.perx.group.intersection;
+
+import com.google.common.base.Preconditions;
+import io.github.aparx.perx.database.data.many.UserGroupMemberCursor;
+
+/**
+ * Settings of how the members of a group are traversed and counted.
+ *
+ * @param pageSize the amount of memberships fetched per page when traversing a group
+ * @param countTtl the milliseconds a member count is cached before it is counted again
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 14:41
+ * @since 1.0
+ */
+public record MemberSettings(int pageSize, long countTtl) {
+
+  public static final MemberSettings DEFAULT =
+      new MemberSettings(UserGroupMemberCursor.DEFAULT_PAGE_SIZE, 60000);
+
+  public MemberSettings {
+    Preconditions.checkArgument(pageSize >= 1, "Page size must be at least one");
+    Preconditions.checkArgument(countTtl >= 0, "Count TTL must not be negative");
+  }
+
+}
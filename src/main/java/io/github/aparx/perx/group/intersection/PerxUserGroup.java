@@ -14,6 +14,7 @@ import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
@@ -105,7 +106,12 @@ public class PerxUserGroup implements DatabaseModelConvertible<UserGroupModel>,
   }
 
   public void setEndingDate(@Nullable Date endingDate) {
+    if (Objects.equals(endingDate, model.getEndDate())) return;
     model.setEndDate(endingDate);
+    Perx perx = Perx.getInstance();
+    if (perx.isLoaded())
+      // reschedules the expiry of this user group
+      perx.getGroupUpdateTask().schedule(this);
   }
 
   public PerxGroup getGroup() {
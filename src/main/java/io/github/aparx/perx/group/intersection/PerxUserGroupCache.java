@@ -1,43 +1,76 @@
 package io.github.aparx.perx.group.intersection;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.ListMultimap;
-import com.google.common.collect.Multimaps;
+import com.google.common.collect.ImmutableList;
 import io.github.aparx.perx.group.PerxGroup;
-import io.github.aparx.perx.utils.BukkitThreads;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.framework.qual.DefaultQualifier;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 /**
+ * Cache of memberships, that holds an immutable snapshot of the memberships of every user.
+ * <p>Every mutation copies the snapshot of the affected user and publishes the copy atomically,
+ * such that mutations are possible from any thread and reads never block nor observe a
+ * partially applied mutation of a user. The group and ID indexes are updated along with the
+ * snapshot, whereas lookups by group are consistent per user.
+ *
  * @author aparx (Vinzent Z.)
- * @version 2024-01-07 06:37
+ * @version 2024-01-23 16:40
  * @since 1.0
  */
 @DefaultQualifier(NonNull.class)
 public class PerxUserGroupCache implements PerxUserGroupRepository, Iterable<PerxUserGroup> {
 
-  private final ListMultimap<UUID, PerxUserGroup> byUser =
-      Multimaps.newListMultimap(new ConcurrentHashMap<>(), ArrayList::new);
+  /** The memberships of every user, whereas users without memberships are not contained */
+  private final ConcurrentMap<UUID, List<PerxUserGroup>> byUser = new ConcurrentHashMap<>();
 
-  private final ListMultimap<String, PerxUserGroup> byGroup =
-      Multimaps.newListMultimap(new ConcurrentHashMap<>(), ArrayList::new);
+  /** The users that have a membership in a group, keyed by the transformed group name */
+  private final ConcurrentMap<String, Set<UUID>> byGroup = new ConcurrentHashMap<>();
 
-  private final Map<Long, PerxUserGroup> byId = new ConcurrentHashMap<>();
+  /** The memberships that are stored in the database, keyed by their ID */
+  private final ConcurrentMap<Long, PerxUserGroup> byId = new ConcurrentHashMap<>();
+
+  private static String groupKey(PerxUserGroup userGroup) {
+    return PerxGroup.transformKey(userGroup.getGroupName());
+  }
+
+  private static boolean containsInstance(List<PerxUserGroup> list, PerxUserGroup userGroup) {
+    for (PerxUserGroup element : list)
+      if (element == userGroup) return true;
+    return false;
+  }
+
+  private static List<PerxUserGroup> without(
+      List<PerxUserGroup> list, Predicate<PerxUserGroup> filter) {
+    ImmutableList.Builder<PerxUserGroup> builder = ImmutableList.builder();
+    for (PerxUserGroup element : list)
+      if (!filter.test(element)) builder.add(element);
+    return builder.build();
+  }
 
   @Override
   public List<PerxUserGroup> findByUser(UUID userId) {
     Preconditions.checkNotNull(userId, "ID must not be null");
-    return byUser.get(userId);
+    return byUser.getOrDefault(userId, List.of());
   }
 
   @Override
   public List<PerxUserGroup> findByGroup(String groupName) {
     Preconditions.checkNotNull(groupName, "Name must not be null");
-    return byGroup.get(PerxGroup.transformKey(groupName));
+    String key = PerxGroup.transformKey(groupName);
+    @Nullable Set<UUID> users = byGroup.get(key);
+    if (users == null) return List.of();
+    ImmutableList.Builder<PerxUserGroup> builder = ImmutableList.builder();
+    for (UUID userId : users)
+      for (PerxUserGroup userGroup : findByUser(userId))
+        if (key.equals(groupKey(userGroup))) builder.add(userGroup);
+    return builder.build();
   }
 
   @Override
@@ -53,67 +86,90 @@ public class PerxUserGroupCache implements PerxUserGroupRepository, Iterable<Per
   @Override
   public void removeByGroup(String groupName) {
     final String group = PerxGroup.transformKey(groupName);
-    BukkitThreads.runOnPrimaryThread(() -> {
-      byGroup.get(group).forEach((userGroup) -> {
+    @Nullable Set<UUID> users = byGroup.get(group);
+    if (users == null) return;
+    for (UUID userId : List.copyOf(users))
+      update(userId, (previous) -> without(previous, (userGroup) -> {
+        if (!group.equals(groupKey(userGroup))) return false;
         userGroup.markRemoved();
-        byUser.remove(userGroup.getUserId(), userGroup);
-        byId.remove(userGroup.getId());
-      });
-      byGroup.removeAll(group);
-    });
+        return true;
+      }));
   }
 
   @Override
   public void removeByUser(UUID userId) {
-    BukkitThreads.runOnPrimaryThread(() -> {
-      byUser.get(userId).forEach((userGroup) -> {
-        @Nullable PerxGroup group = userGroup.findGroup();
-        if (group != null)
-          byGroup.remove(group.getName(), userGroup);
-        byId.remove(userGroup.getId());
-      });
-      byUser.removeAll(userId);
-    });
+    update(userId, (__) -> List.of());
   }
 
   @Override
   public void removeById(long userGroupId) {
-    BukkitThreads.runOnPrimaryThread(() -> {
-      @Nullable PerxUserGroup userGroup = byId.get(userGroupId);
-      if (userGroup == null) return;
-      byUser.remove(userGroup.getUserId(), userGroup);
-      @Nullable PerxGroup group = userGroup.findGroup();
-      if (group != null) byGroup.remove(group.getName(), userGroup);
-      byId.remove(userGroupId);
-    });
+    @Nullable PerxUserGroup userGroup = byId.get(userGroupId);
+    if (userGroup == null) return;
+    update(userGroup.getUserId(), (previous) -> without(previous, (x) -> x == userGroup));
+  }
+
+  @Override
+  public void remove(PerxUserGroup userGroup) {
+    Preconditions.checkNotNull(userGroup, "User group must not be null");
+    userGroup.markRemoved();
+    update(userGroup.getUserId(), (previous) -> without(previous, (x) -> x == userGroup));
   }
 
   @Override
   public boolean put(PerxUserGroup userGroup) {
     Preconditions.checkNotNull(userGroup, "User group must not be null");
-    @Nullable PerxGroup group = userGroup.findGroup();
-    if (group == null) return false;
-    BukkitThreads.runOnPrimaryThread(() -> {
-      byUser.put(userGroup.getUserId(), userGroup);
-      byId.put(userGroup.getId(), userGroup);
-      byGroup.put(group.getName(), userGroup);
+    if (userGroup.findGroup() == null) return false;
+    update(userGroup.getUserId(), (previous) -> {
+      // a previous mapping of the same instance is replaced, so that putting is idempotent
+      return ImmutableList.<PerxUserGroup>builder()
+          .addAll(without(previous, (x) -> x == userGroup))
+          .add(userGroup)
+          .build();
     });
     return true;
   }
 
-  @Override
-  public Iterator<PerxUserGroup> iterator() {
-    Iterator<PerxUserGroup> iterator = byGroup.values().iterator();
-    return new Iterator<>() {
-      @Override
-      public boolean hasNext() {
-        return iterator.hasNext();
+  /**
+   * Replaces the snapshot of {@code userId} with the snapshot returned by {@code mutator},
+   * while updating the indexes accordingly. Mutations of the same user are serialized.
+   */
+  private void update(UUID userId, UnaryOperator<List<PerxUserGroup>> mutator) {
+    byUser.compute(userId, (__, previous) -> {
+      List<PerxUserGroup> before = (previous != null ? previous : List.of());
+      List<PerxUserGroup> after = mutator.apply(before);
+      for (PerxUserGroup userGroup : before)
+        if (!containsInstance(after, userGroup)) unindex(userId, userGroup, after);
+      for (PerxUserGroup userGroup : after) {
+        if (!containsInstance(before, userGroup)) index(userId, userGroup);
+        // reindexed regardless, as a membership receives its ID once written to the database
+        if (userGroup.isModelInDatabase()) byId.put(userGroup.getId(), userGroup);
       }
+      return (!after.isEmpty() ? after : null);
+    });
+  }
 
-      @Override
-      public PerxUserGroup next() {
-        return iterator.next();
-      }
-    };
+  private void index(UUID userId, PerxUserGroup userGroup) {
+    byGroup.compute(groupKey(userGroup), (__, users) -> {
+      if (users == null) users = ConcurrentHashMap.newKeySet();
+      users.add(userId);
+      return users;
+    });
+  }
+
+  private void unindex(UUID userId, PerxUserGroup userGroup, List<PerxUserGroup> remaining) {
+    String key = groupKey(userGroup);
+    if (remaining.stream().noneMatch((x) -> key.equals(groupKey(x))))
+      byGroup.computeIfPresent(key, (__, users) -> {
+        users.remove(userId);
+        return (!users.isEmpty() ? users : null);
+      });
+    byId.remove(userGroup.getId(), userGroup);
+  }
+
+  @Override
+  public Iterator<PerxUserGroup> iterator() {
+    return byUser.values().stream()
+        .flatMap(List::stream)
+        .iterator();
   }
 }
@@ -0,0 +1,163 @@
+package io.github.aparx.perx.group.intersection;
+
+import com.google.common.base.Preconditions;
+import io.github.aparx.perx.database.Database;
+import io.github.aparx.perx.database.data.many.UserGroupDao;
+import io.github.aparx.perx.group.PerxGroup;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Cache of the amount of members of every group, counted by the database using aggregate
+ * queries, such that no membership has to be loaded to count it.
+ * <p>Counts are adjusted in place whenever this server subscribes or unsubscribes a user, and
+ * are counted again once their TTL elapsed. Thus, changes made by other servers are visible
+ * after at most the TTL.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 17:46
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public class PerxUserGroupCounter {
+
+  private final Map<String, Count> counts = new ConcurrentHashMap<>();
+
+  private final Database database;
+  private final Supplier<UserGroupDao> dao;
+  private final long ttl;
+  private final LongSupplier clock;
+
+  /** The time all groups were counted at last, or zero if a count was invalidated since */
+  private volatile long countedAllAt;
+
+  public PerxUserGroupCounter(Database database, Supplier<UserGroupDao> dao, long ttl) {
+    this(database, dao, ttl, System::currentTimeMillis);
+  }
+
+  public PerxUserGroupCounter(
+      Database database, Supplier<UserGroupDao> dao, long ttl, LongSupplier clock) {
+    Preconditions.checkNotNull(database, "Database must not be null");
+    Preconditions.checkNotNull(dao, "DAO must not be null");
+    Preconditions.checkArgument(ttl >= 0, "TTL must not be negative");
+    Preconditions.checkNotNull(clock, "Clock must not be null");
+    this.database = database;
+    this.dao = dao;
+    this.ttl = ttl;
+    this.clock = clock;
+  }
+
+  /**
+   * Returns the cached amount of members of the group named {@code groupName}, or null if it is
+   * not cached or its TTL elapsed.
+   */
+  public @Nullable Long getCached(String groupName) {
+    @Nullable Count count = counts.get(PerxGroup.transformKey(groupName));
+    if (count != null) return (isFresh(count.countedAt) ? count.value.get() : null);
+    // groups without members are not returned when counting all groups
+    return (isFresh(countedAllAt) ? 0L : null);
+  }
+
+  /**
+   * Returns the amount of members of the group named {@code groupName}, counting them in the
+   * database if the count is not cached.
+   *
+   * @param groupName the group whose members to count
+   * @return a future of the amount of members
+   */
+  public CompletableFuture<Long> countByGroup(String groupName) {
+    String key = PerxGroup.transformKey(groupName);
+    @Nullable Long cached = getCached(key);
+    if (cached != null) return CompletableFuture.completedFuture(cached);
+    long now = clock.getAsLong();
+    return database.executeIdempotentAsync("user_group.count_by_group",
+        () -> dao.get().countByGroup(key)
+    ).thenApply((count) -> {
+      counts.put(key, new Count(count, now));
+      return count;
+    });
+  }
+
+  /**
+   * Returns the amount of members of every group, counting all of them at once in the database
+   * if any count is not cached. Groups without members may not be contained.
+   *
+   * @return a future of a map, mapping the name of every group to its amount of members
+   */
+  public CompletableFuture<Map<String, Long>> countAllGroups() {
+    if (isFresh(countedAllAt)) {
+      Map<String, Long> snapshot = new HashMap<>();
+      counts.forEach((key, count) -> snapshot.put(key, count.value.get()));
+      return CompletableFuture.completedFuture(snapshot);
+    }
+    long now = clock.getAsLong();
+    return database.executeIdempotentAsync("user_group.count_all_groups",
+        () -> dao.get().countAllGroups()
+    ).thenApply((result) -> {
+      counts.clear();
+      result.forEach((key, count) -> counts.put(key, new Count(count, now)));
+      countedAllAt = now;
+      return result;
+    });
+  }
+
+  /**
+   * Adjusts the cached amount of members of the group named {@code groupName} by
+   * {@code delta}, if it is cached. Uncached counts are counted once requested anyway.
+   * <p>This must only be called after the change was written to the database, with the amount
+   * of rows the change actually affected. A count that would become negative has drifted from
+   * the database, and is thus invalidated to be counted again.
+   *
+   * @param groupName the group whose members changed
+   * @param delta     the amount of members added, or negative if members were removed
+   */
+  public void adjust(String groupName, long delta) {
+    if (delta == 0) return;
+    String key = PerxGroup.transformKey(groupName);
+    long countedAllAt = this.countedAllAt;
+    @Nullable Count count = (delta > 0 && isFresh(countedAllAt)
+        ? counts.computeIfAbsent(key, (__) -> new Count(0, countedAllAt))
+        : counts.get(key));
+    if (count == null) return;
+    if (count.value.addAndGet(delta) < 0)
+      // a concurrent count may have seen the removal already
+      invalidate(key);
+  }
+
+  /** Removes the cached count of the group named {@code groupName}. */
+  public void invalidate(String groupName) {
+    countedAllAt = 0;
+    counts.remove(PerxGroup.transformKey(groupName));
+  }
+
+  public void invalidateAll() {
+    countedAllAt = 0;
+    counts.clear();
+  }
+
+  private boolean isFresh(long countedAt) {
+    return countedAt != 0 && clock.getAsLong() - countedAt < ttl;
+  }
+
+  private static final class Count {
+
+    final AtomicLong value;
+    final long countedAt;
+
+    Count(long value, long countedAt) {
+      this.value = new AtomicLong(value);
+      this.countedAt = countedAt;
+    }
+
+  }
+
+}
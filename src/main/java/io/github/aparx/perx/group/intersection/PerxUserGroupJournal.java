@@ -0,0 +1,248 @@
+package io.github.aparx.perx.group.intersection;
+
+import com.google.common.base.Preconditions;
+import com.j256.ormlite.misc.TransactionManager;
+import io.github.aparx.perx.Perx;
+import io.github.aparx.perx.database.Database;
+import io.github.aparx.perx.database.data.change.ChangeType;
+import io.github.aparx.perx.database.data.group.GroupModel;
+import io.github.aparx.perx.database.data.many.UserGroupDao;
+import io.github.aparx.perx.database.data.many.UserGroupModel;
+import io.github.aparx.perx.group.PerxGroupRepository;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+
+/**
+ * Durable local journal of membership mutations, that were applied in cache while the database
+ * was unavailable. Once the database recovers, the journal is replayed in order within a single
+ * transaction.
+ * <p>Every entry is appended as a line and forced to disk before the mutation is acknowledged.
+ * While replaying, the journal is moved aside, so that new entries cannot get lost.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 10:04
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public class PerxUserGroupJournal {
+
+  private final Object lock = new Object();
+
+  private final Database database;
+  private final PerxUserGroupService userGroupService;
+  private final PerxGroupRepository groupRepository;
+  private final File file;
+  private final File pendingFile;
+
+  private @Nullable CompletableFuture<Integer> replay;
+
+  public PerxUserGroupJournal(
+      Database database,
+      PerxUserGroupService userGroupService,
+      PerxGroupRepository groupRepository,
+      File file) {
+    Preconditions.checkNotNull(database, "Database must not be null");
+    Preconditions.checkNotNull(userGroupService, "Service must not be null");
+    Preconditions.checkNotNull(groupRepository, "Repository must not be null");
+    Preconditions.checkNotNull(file, "File must not be null");
+    this.database = database;
+    this.userGroupService = userGroupService;
+    this.groupRepository = groupRepository;
+    this.file = file;
+    this.pendingFile = new File(file.getPath() + ".replay");
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  public boolean hasPending() {
+    synchronized (lock) {
+      return file.exists() || pendingFile.exists();
+    }
+  }
+
+  /**
+   * Appends {@code entry} to the journal and forces it to disk. This method is blocking.
+   *
+   * @param entry the entry to append
+   * @throws IOException if the entry could not be written
+   */
+  public void append(Entry entry) throws IOException {
+    Preconditions.checkNotNull(entry, "Entry must not be null");
+    byte[] line = (entry.serialize() + '\n').getBytes(StandardCharsets.UTF_8);
+    synchronized (lock) {
+      @Nullable File parent = file.getParentFile();
+      if (parent != null && !parent.exists() && !parent.mkdirs())
+        throw new IOException("Could not create " + parent);
+      try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+        ByteBuffer buffer = ByteBuffer.wrap(line);
+        while (buffer.hasRemaining()) channel.write(buffer);
+        channel.force(true);
+      }
+    }
+  }
+
+  /**
+   * Replays all journaled entries on the database, in the order they were appended. If a
+   * replay is already in progress, its future is returned instead.
+   *
+   * @return a future of the amount of entries replayed
+   */
+  public CompletableFuture<Integer> replay() {
+    synchronized (lock) {
+      if (replay != null && !replay.isDone()) return replay;
+      if (!file.exists() && !pendingFile.exists())
+        return CompletableFuture.completedFuture(0);
+      CompletableFuture<Integer> future =
+          database.executeAsync("user_group.replay_journal", this::doReplay);
+      future.whenComplete((count, ex) -> {
+        if (ex != null)
+          Perx.getLogger().log(Level.WARNING, "Could not replay membership journal", ex);
+        else if (count > 0)
+          Perx.getLogger().info(() -> "Replayed " + count + " journaled membership changes");
+      });
+      return (this.replay = future);
+    }
+  }
+
+  private int doReplay() throws Exception {
+    List<Entry> entries = takeEntries();
+    if (entries.isEmpty()) return 0;
+    UserGroupDao dao = userGroupService.getDao();
+    Set<UUID> changed = new LinkedHashSet<>();
+    TransactionManager.callInTransaction(database.getSourceLoudly(), () -> {
+      for (Entry entry : entries)
+        if (apply(dao, entry)) changed.add(entry.userId());
+      return null;
+    });
+    synchronized (lock) {
+      // the pending file is only deleted once the transaction committed
+      Files.deleteIfExists(pendingFile.toPath());
+    }
+    userGroupService.getCounter().invalidateAll();
+    Perx.getInstance().getUserService().invalidateAllInactive();
+    changed.forEach((userId) -> {
+      database.markWritten(userId);
+      Perx.getInstance().getChangeLog().record(ChangeType.MEMBERSHIP, userId.toString());
+    });
+    return entries.size();
+  }
+
+  private boolean apply(UserGroupDao dao, Entry entry) throws Exception {
+    List<UserGroupModel> existing =
+        dao.findByGroupAndUsers(entry.groupName(), List.of(entry.userId()));
+    if (entry.action() == Action.UNSUBSCRIBE)
+      return !existing.isEmpty()
+          && dao.deleteUsersFromGroup(entry.groupName(), List.of(entry.userId())) > 0;
+    if (!existing.isEmpty()) {
+      UserGroupModel model = existing.get(0);
+      model.setEndDate(entry.endDate());
+      return dao.update(model) > 0;
+    }
+    if (!groupRepository.contains(entry.groupName())) {
+      Perx.getLogger().warning(() -> "Skipping journaled subscription to missing group "
+          + entry.groupName());
+      return false;
+    }
+    UserGroupModel model =
+        new UserGroupModel(entry.userId(), new GroupModel(entry.groupName()), entry.endDate());
+    return dao.create(model) > 0;
+  }
+
+  /** Moves the journal aside and reads all entries pending to be replayed. */
+  private List<Entry> takeEntries() throws IOException {
+    synchronized (lock) {
+      if (file.exists()) {
+        if (pendingFile.exists()) {
+          // a previous replay failed, thus its entries precede the current ones
+          Files.write(pendingFile.toPath(), Files.readAllBytes(file.toPath()),
+              StandardOpenOption.APPEND);
+          Files.delete(file.toPath());
+        } else if (!file.renameTo(pendingFile))
+          throw new IOException("Could not move " + file + " to " + pendingFile);
+      }
+      if (!pendingFile.exists()) return List.of();
+      List<Entry> entries = new ArrayList<>();
+      for (String line : Files.readAllLines(pendingFile.toPath(), StandardCharsets.UTF_8)) {
+        if (line.isBlank()) continue;
+        @Nullable Entry entry = Entry.parse(line);
+        if (entry != null) entries.add(entry);
+        else Perx.getLogger().warning(() -> "Skipping malformed journal entry: " + line);
+      }
+      return entries;
+    }
+  }
+
+  public enum Action {
+    SUBSCRIBE,
+    UNSUBSCRIBE
+  }
+
+  /**
+   * A single journaled membership mutation.
+   *
+   * @param action    the mutation performed
+   * @param userId    the user whose membership is mutated
+   * @param groupName the group of the membership
+   * @param endDate   the ending date of a subscription, or null if it never ends
+   */
+  public record Entry(
+      Action action,
+      UUID userId,
+      String groupName,
+      @Nullable Date endDate
+  ) {
+
+    public Entry {
+      Preconditions.checkNotNull(action, "Action must not be null");
+      Preconditions.checkNotNull(userId, "User must not be null");
+      Preconditions.checkNotNull(groupName, "Group must not be null");
+    }
+
+    public static Entry subscribe(UUID userId, String groupName, @Nullable Date endDate) {
+      return new Entry(Action.SUBSCRIBE, userId, groupName, endDate);
+    }
+
+    public static Entry unsubscribe(UUID userId, String groupName) {
+      return new Entry(Action.UNSUBSCRIBE, userId, groupName, null);
+    }
+
+    static @Nullable Entry parse(String line) {
+      String[] parts = line.trim().split(" ");
+      if (parts.length != 4) return null;
+      try {
+        long end = Long.parseLong(parts[3]);
+        return new Entry(Action.valueOf(parts[0]), UUID.fromString(parts[1]), parts[2],
+            end >= 0 ? new Date(end) : null);
+      } catch (IllegalArgumentException e) {
+        return null;
+      }
+    }
+
+    String serialize() {
+      return action + " " + userId + " " + groupName + " "
+          + (endDate != null ? endDate.getTime() : -1);
+    }
+
+  }
+
+}
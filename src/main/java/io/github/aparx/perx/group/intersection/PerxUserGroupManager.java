@@ -4,15 +4,15 @@ import com.google.common.base.Preconditions;
 import com.j256.ormlite.dao.Dao;
 import com.j256.ormlite.dao.DaoManager;
 import com.j256.ormlite.support.ConnectionSource;
-import com.j256.ormlite.table.TableUtils;
 import io.github.aparx.perx.Perx;
 import io.github.aparx.perx.database.Database;
+import io.github.aparx.perx.database.data.change.ChangeType;
 import io.github.aparx.perx.database.data.group.GroupModel;
 import io.github.aparx.perx.database.data.many.UserGroupDao;
+import io.github.aparx.perx.database.data.many.UserGroupMemberCursor;
 import io.github.aparx.perx.database.data.many.UserGroupModel;
 import io.github.aparx.perx.group.PerxGroup;
 import io.github.aparx.perx.group.PerxGroupRepository;
-import io.github.aparx.perx.group.PerxGroupService;
 import io.github.aparx.perx.user.PerxUser;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -20,6 +20,7 @@ import org.checkerframework.framework.qual.DefaultQualifier;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -44,21 +45,53 @@ public class PerxUserGroupManager implements PerxUserGroupService {
 
   private final PerxUserGroupRepository repository;
 
+  private final PerxUserGroupCounter counter;
+
+  /** The amount of memberships fetched per page when traversing the users of a group */
+  private final int pageSize;
+
   public PerxUserGroupManager(Database database) {
-    this(database, new PerxUserGroupCache());
+    this(database, MemberSettings.DEFAULT);
+  }
+
+  public PerxUserGroupManager(Database database, MemberSettings settings) {
+    this(database, new PerxUserGroupCache(), settings);
   }
 
   public PerxUserGroupManager(Database database, PerxUserGroupRepository repository) {
+    this(database, repository, MemberSettings.DEFAULT);
+  }
+
+  public PerxUserGroupManager(
+      Database database, PerxUserGroupRepository repository, MemberSettings settings) {
     Preconditions.checkNotNull(database, "Database must not be null");
     Preconditions.checkNotNull(repository, "Repository must not be null");
+    Preconditions.checkNotNull(settings, "Settings must not be null");
     this.repository = repository;
     this.database = database;
+    this.pageSize = settings.pageSize();
+    this.counter = new PerxUserGroupCounter(database, this::getDao, settings.countTtl());
   }
 
   public PerxUserGroupRepository getRepository() {
     return repository;
   }
 
+  @Override
+  public PerxUserGroupCounter getCounter() {
+    return counter;
+  }
+
+  @Override
+  public CompletableFuture<Long> countByGroup(String groupName) {
+    return counter.countByGroup(groupName);
+  }
+
+  @Override
+  public CompletableFuture<Map<String, Long>> countAllGroups() {
+    return counter.countAllGroups();
+  }
+
   public Database getDatabase() {
     return database;
   }
@@ -68,7 +101,6 @@ public class PerxUserGroupManager implements PerxUserGroupService {
     database.queue((db) -> {
       ConnectionSource dbSource = db.getSourceLoudly();
       this.dao = DaoManager.createDao(dbSource, UserGroupModel.class);
-      db.executeAsync(() -> TableUtils.createTableIfNotExists(dbSource, UserGroupModel.class));
     });
   }
 
@@ -83,20 +115,38 @@ public class PerxUserGroupManager implements PerxUserGroupService {
   public CompletableFuture<List<PerxUserGroup>> getUserGroupsByUser(UUID userId) {
     if (repository.hasUser(userId))
       return CompletableFuture.completedFuture(repository.findByUser(userId));
-    return getDao().getUserGroupsByUser(database, userId)
-        .thenApply((models) -> models.stream()
-            .map((model) -> {
-              PerxGroupService groupService = Perx.getInstance().getGroupService();
-              PerxGroupRepository groupRepository = groupService.getRepository();
-              @Nullable PerxGroup group = groupRepository.get(model.getGroup().getId());
-              return (group != null ? PerxUserGroup.of(model, group) : null);
-            })
-            .filter(Objects::nonNull)
-            .collect(Collectors.toList()))
-        .thenApply((list) -> {
-          list.forEach(repository::put);
-          return list;
-        });
+    return getDao().getUserGroupsByUser(database, userId).thenApply(this::cacheModels);
+  }
+
+  @Override
+  public CompletableFuture<Map<UUID, List<PerxUserGroup>>> getUserGroupsByUsers(
+      Collection<UUID> userIds) {
+    Map<UUID, List<PerxUserGroup>> result = new HashMap<>(userIds.size());
+    List<UUID> uncached = new ArrayList<>(userIds.size());
+    for (UUID userId : userIds) {
+      if (repository.hasUser(userId))
+        result.put(userId, repository.findByUser(userId));
+      else uncached.add(userId);
+    }
+    if (uncached.isEmpty())
+      return CompletableFuture.completedFuture(result);
+    return getDao().getUserGroupsByUsers(database, uncached).thenApply((models) -> {
+      models.forEach((userId, list) -> result.put(userId, cacheModels(list)));
+      return result;
+    });
+  }
+
+  private List<PerxUserGroup> cacheModels(List<UserGroupModel> models) {
+    PerxGroupRepository groupRepository = Perx.getInstance().getGroupService().getRepository();
+    List<PerxUserGroup> list = models.stream()
+        .map((model) -> {
+          @Nullable PerxGroup group = groupRepository.get(model.getGroup().getId());
+          return (group != null ? PerxUserGroup.of(model, group) : null);
+        })
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList());
+    list.forEach(repository::put);
+    return list;
   }
 
   @Override
@@ -122,13 +172,52 @@ public class PerxUserGroupManager implements PerxUserGroupService {
     return fetchGroupModelsByUser(user.getId()); // TODO potentially cache in `user`?
   }
 
+  @Override
+  public CompletableFuture<Long> forEachUserInGroup(
+      String groupName, Database.ThrowingConsumer<List<UserGroupModel>> consumer) {
+    Preconditions.checkNotNull(groupName, "Group must not be null");
+    Preconditions.checkNotNull(consumer, "Consumer must not be null");
+    return forEachPage(getDao().iterateUsersByGroup(groupName, pageSize), consumer, false, 0);
+  }
+
+  /**
+   * Fetches and consumes the pages of {@code cursor} one after another, each within its own
+   * database operation, so that neither a single operation runs for too long nor other
+   * operations are blocked until the whole group was traversed. If {@code transactional} is
+   * true, every page is fetched and consumed within one transaction on the primary.
+   */
+  private CompletableFuture<Long> forEachPage(
+      UserGroupMemberCursor cursor,
+      Database.ThrowingConsumer<List<UserGroupModel>> consumer,
+      boolean transactional,
+      long consumed) {
+    Database.ThrowingSupplier<Integer> operation = () -> {
+      List<UserGroupModel> page = cursor.nextPage();
+      if (!page.isEmpty()) consumer.accept(page);
+      return page.size();
+    };
+    return (transactional
+        ? database.executeInTransaction("user_group.page_by_group", operation)
+        : database.executeAsync("user_group.page_by_group", operation))
+        .thenCompose((size) -> (cursor.isExhausted()
+            ? CompletableFuture.completedFuture(consumed + size)
+            : forEachPage(cursor, consumer, transactional, consumed + size)));
+  }
+
   @Override
   public CompletableFuture<Boolean> deleteByGroup(String groupName) {
     final String groupId = PerxGroup.transformKey(groupName);
-    return getDao().deleteByGroup(database, groupName).thenApply((res) -> {
-      if (res) repository.removeByGroup(groupId);
-      return res;
-    });
+    UserGroupDao dao = getDao();
+    LongAdder deleted = new LongAdder();
+    // deleted page by page, as deleting a large group at once may exceed the operation timeout
+    return forEachPage(dao.iterateUsersByGroup(groupName, pageSize), (page) -> deleted.add(
+        dao.deleteAllIds(page.stream().map(UserGroupModel::getId).toList())), true, 0)
+        .whenComplete((__, ex) -> counter.invalidate(groupId))
+        .thenApply((__) -> {
+          boolean res = deleted.sum() > 0;
+          if (res) repository.removeByGroup(groupId);
+          return res;
+        });
   }
 
   @Override
@@ -138,9 +227,21 @@ public class PerxUserGroupManager implements PerxUserGroupService {
 
   @Override
   public CompletableFuture<Boolean> deleteByUser(UUID userId) {
-    return getDao().deleteByUser(database, userId).thenApply((res) -> {
-      if (res) repository.removeByUser(userId);
-      return res;
+    UserGroupDao dao = getDao();
+    return database.executeInTransaction("user_group.delete_by_user", () -> {
+      // the groups are looked up first, as their member counts are adjusted afterwards
+      List<UserGroupModel> models = dao.findByUsers(List.of(userId));
+      if (models.isEmpty()) return List.<UserGroupModel>of();
+      dao.deleteByUser(userId);
+      return models;
+    }).thenApply((deleted) -> {
+      database.markWritten(userId);
+      if (deleted.isEmpty()) return false;
+      deleted.forEach((model) -> counter.adjust(model.getGroup().getId(), -1));
+      repository.removeByUser(userId);
+      // other servers reload the memberships of the user
+      Perx.getInstance().getChangeLog().record(ChangeType.MEMBERSHIP, userId.toString());
+      return true;
     });
   }
 
@@ -151,16 +252,18 @@ public class PerxUserGroupManager implements PerxUserGroupService {
 
   @Override
   public CompletableFuture<Boolean> deleteById(long id) {
-    return database.executeAsync(() -> getDao().deleteById(id)).thenApply((x) -> {
-      if (x < 1) return false;
-      repository.removeById(id);
-      return true;
-    });
+    return database.executeAsync("user_group.delete_by_id", () -> getDao().deleteById(id))
+        .thenApply((x) -> {
+          if (x < 1) return false;
+          repository.removeById(id);
+          return true;
+        });
   }
 
   @Override
   public CompletableFuture<Dao.CreateOrUpdateStatus> upsert(UserGroupModel userGroupModel) {
-    return database.executeAsync(() -> getDao().createOrUpdate(userGroupModel));
+    return database.executeAsync("user_group.upsert",
+        () -> getDao().upsert(database.getDialect(), userGroupModel));
   }
 
   @Override
@@ -170,7 +273,7 @@ public class PerxUserGroupManager implements PerxUserGroupService {
 
   @Override
   public CompletableFuture<Integer> update(UserGroupModel userGroupModel) {
-    return database.executeAsync(() -> getDao().update(userGroupModel));
+    return database.executeAsync("user_group.update", () -> getDao().update(userGroupModel));
   }
 
   @Override
@@ -180,7 +283,7 @@ public class PerxUserGroupManager implements PerxUserGroupService {
 
   @Override
   public CompletableFuture<Integer> create(UserGroupModel userGroupModel) {
-    return database.executeAsync(() -> getDao().create(userGroupModel));
+    return database.executeAsync("user_group.create", () -> getDao().create(userGroupModel));
   }
 
   @Override
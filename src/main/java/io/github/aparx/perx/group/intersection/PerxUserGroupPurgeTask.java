@@ -0,0 +1,153 @@
+package io.github.aparx.perx.group.intersection;
+
+import com.google.common.base.Preconditions;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import com.j256.ormlite.dao.DaoManager;
+import io.github.aparx.perx.Perx;
+import io.github.aparx.perx.database.Database;
+import io.github.aparx.perx.database.data.many.UserGroupDao;
+import io.github.aparx.perx.database.data.many.UserGroupHistoryDao;
+import io.github.aparx.perx.database.data.many.UserGroupHistoryModel;
+import io.github.aparx.perx.database.data.many.UserGroupModel;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * Background job that deletes expired memberships from the database, regardless of whether
+ * their users are online.
+ * <p>Expired memberships are paged by their ID and every page is fetched and deleted (and
+ * optionally archived) within its own transaction and database operation. Thus no run holds
+ * locks on more rows, or a connection for longer, than a single batch takes, and a large
+ * backlog never runs into the timeout of an operation.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 17:26
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public class PerxUserGroupPurgeTask {
+
+  private final AtomicBoolean running = new AtomicBoolean();
+  private final LongAdder totalPurged = new LongAdder();
+
+  private final Database database;
+  private final PerxUserGroupService userGroupService;
+  private final PurgeSettings settings;
+
+  private @Nullable BukkitTask task;
+  private @Nullable UserGroupHistoryDao historyDao;
+  private volatile boolean initialized;
+
+  private volatile int lastPurged;
+
+  public PerxUserGroupPurgeTask(
+      Database database,
+      PerxUserGroupService userGroupService,
+      PurgeSettings settings) {
+    Preconditions.checkNotNull(database, "Database must not be null");
+    Preconditions.checkNotNull(userGroupService, "Service must not be null");
+    Preconditions.checkNotNull(settings, "Settings must not be null");
+    this.database = database;
+    this.userGroupService = userGroupService;
+    this.settings = settings;
+  }
+
+  public PurgeSettings getSettings() {
+    return settings;
+  }
+
+  /** Returns the amount of memberships purged by the last run. */
+  public int getLastPurged() {
+    return lastPurged;
+  }
+
+  /** Returns the amount of memberships purged since this task was created. */
+  public long getTotalPurged() {
+    return totalPurged.sum();
+  }
+
+  public void start(Plugin plugin) {
+    if (!settings.enabled()) return;
+    if (task != null) task.cancel();
+    long ticks = Math.max(1, settings.interval() / 50);
+    task = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::purge, ticks, ticks);
+  }
+
+  public void stop() {
+    if (task != null) task.cancel();
+    task = null;
+  }
+
+  /**
+   * Deletes all memberships that are expired at the time of calling. Runs do not overlap, thus
+   * a run is skipped while another is in progress.
+   *
+   * @return a future of the amount of memberships purged
+   */
+  @CanIgnoreReturnValue
+  public CompletableFuture<Integer> purge() {
+    if (!running.compareAndSet(false, true))
+      return CompletableFuture.completedFuture(0);
+    Date now = new Date();
+    return initialize()
+        .thenCompose((__) -> purgeExpired(now, 0, 0))
+        .whenComplete((purged, ex) -> {
+          running.set(false);
+          if (ex != null) {
+            Perx.getLogger().log(Level.WARNING, "Could not purge expired memberships", ex);
+            return;
+          }
+          lastPurged = purged;
+          totalPurged.add(purged);
+          if (purged > 0) {
+            userGroupService.getCounter().invalidateAll();
+            Perx.getInstance().getUserService().invalidateAllInactive();
+            Perx.getLogger().log(Level.INFO, "Purged {0} expired membership(s)", purged);
+          }
+        });
+  }
+
+  private CompletableFuture<@Nullable Void> initialize() {
+    if (initialized) return CompletableFuture.completedFuture(null);
+    return database.executeAsync("user_group.purge_init", () -> {
+      if (settings.archive())
+        this.historyDao =
+            DaoManager.createDao(database.getSourceLoudly(), UserGroupHistoryModel.class);
+      initialized = true;
+    });
+  }
+
+  /**
+   * Purges the batches following {@code afterId} one after another, each within its own
+   * database operation, and completes with {@code purged} plus the amount of memberships purged
+   * by those batches.
+   */
+  private CompletableFuture<Integer> purgeExpired(Date now, long afterId, int purged) {
+    UserGroupDao dao = userGroupService.getDao();
+    @Nullable UserGroupHistoryDao historyDao = this.historyDao;
+    return database.executeInTransaction("user_group.purge", () -> {
+      List<UserGroupModel> batch = dao.findExpired(now, afterId, settings.batchSize());
+      if (batch.isEmpty()) return new Batch(afterId, 0, 0);
+      if (historyDao != null) historyDao.archive(batch, now);
+      int deleted = dao.deleteIds(batch.stream().map(UserGroupModel::getId).toList());
+      return new Batch(batch.get(batch.size() - 1).getId(), batch.size(), deleted);
+    }).thenCompose((batch) -> (batch.size() < settings.batchSize()
+        ? CompletableFuture.completedFuture(purged + batch.deleted())
+        : purgeExpired(now, batch.lastId(), purged + batch.deleted())));
+  }
+
+  /** A purged batch, its last ID and the amount of memberships fetched and deleted */
+  private record Batch(long lastId, int size, int deleted) {}
+
+}
@@ -30,6 +30,14 @@ public interface PerxUserGroupRepository {
 
   void removeById(long userGroupId);
 
+  /**
+   * Removes exactly given {@code userGroup} instance from the cache, leaving other user groups
+   * of the same user or group untouched.
+   *
+   * @param userGroup the user group to remove
+   */
+  void remove(PerxUserGroup userGroup);
+
   /**
    * Registers and potentially overrides any already similarly registered group in the cache.
    * <p>This method only accesses the cache. Thus, it has no effect on long term storage.
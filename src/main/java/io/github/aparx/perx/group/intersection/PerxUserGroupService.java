@@ -3,6 +3,7 @@ package io.github.aparx.perx.group.intersection;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import com.google.errorprone.annotations.CheckReturnValue;
 import com.j256.ormlite.dao.Dao;
+import io.github.aparx.perx.database.Database;
 import io.github.aparx.perx.database.PerxModelService;
 import io.github.aparx.perx.database.data.group.GroupModel;
 import io.github.aparx.perx.database.data.many.UserGroupDao;
@@ -12,7 +13,9 @@ import io.github.aparx.perx.user.PerxUser;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.framework.qual.DefaultQualifier;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
@@ -28,10 +31,33 @@ public interface PerxUserGroupService extends PerxModelService<UserGroupDao> {
   @CheckReturnValue
   PerxUserGroupRepository getRepository();
 
+  /** Returns the cache of member counts, which must be adjusted whenever members change. */
+  @CheckReturnValue
+  PerxUserGroupCounter getCounter();
+
+  /** Returns the cached amount of members of given group, or counts them in the database. */
+  @CheckReturnValue
+  CompletableFuture<Long> countByGroup(String groupName);
+
+  /**
+   * Returns the cached amount of members of all groups, or counts them in the database using a
+   * single aggregate query. Groups without members may not be contained.
+   */
+  @CheckReturnValue
+  CompletableFuture<Map<String, Long>> countAllGroups();
+
   /** Returns the already cached groups for given user, or fetches & caches them */
   @CheckReturnValue
   CompletableFuture<List<PerxUserGroup>> getUserGroupsByUser(UUID userId);
 
+  /**
+   * Returns the already cached groups for all given users, while fetching and caching the
+   * groups of all uncached users within a single query.
+   */
+  @CheckReturnValue
+  CompletableFuture<Map<UUID, List<PerxUserGroup>>> getUserGroupsByUsers(
+      Collection<UUID> userIds);
+
   /** Returns the already cached groups for given user, or fetches & caches them */
   @CheckReturnValue
   CompletableFuture<List<PerxGroup>> getGroupsByUser(UUID userId);
@@ -45,6 +71,24 @@ public interface PerxUserGroupService extends PerxModelService<UserGroupDao> {
   @CheckReturnValue
   CompletableFuture<List<GroupModel>> fetchGroupModelsByUser(PerxUser user);
 
+  /**
+   * Traverses all users of the group named {@code groupName}, passing them to {@code consumer}
+   * one page at a time, such that memory stays constant regardless of the size of the group.
+   * <p>The consumer is called on the database executor and may thus execute blocking queries.
+   * Of the memberships passed, only the ID and user are populated.
+   *
+   * @param groupName the group whose users to traverse
+   * @param consumer  the consumer of every page of memberships
+   * @return a future of the amount of memberships traversed, failing if a page failed
+   */
+  CompletableFuture<Long> forEachUserInGroup(
+      String groupName, Database.ThrowingConsumer<List<UserGroupModel>> consumer);
+
+  /**
+   * Deletes all memberships of the group named {@code groupName} page by page.
+   *
+   * @return a future of true if any membership was deleted
+   */
   CompletableFuture<Boolean> deleteByGroup(String groupName);
 
   CompletableFuture<Boolean> deleteByGroup(PerxGroup group);
@@ -0,0 +1,306 @@
+package io.github.aparx.perx.group.intersection;
+
+import com.google.common.base.Preconditions;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import com.j256.ormlite.misc.TransactionManager;
+import io.github.aparx.perx.Perx;
+import io.github.aparx.perx.database.Database;
+import io.github.aparx.perx.database.data.many.UserGroupDao;
+import io.github.aparx.perx.database.data.many.UserGroupModel;
+import io.github.aparx.perx.group.PerxGroup;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind queue that collects user group inserts and deletes over a flush window and
+ * writes them in batches, each within a single transaction using multi-row statements.
+ * <p>Writes are coalesced per user and group: a later insert replaces a pending insert, a
+ * delete supersedes a pending insert, and an insert following a pending delete results in
+ * both being executed (delete first). Futures complete once the batch is committed, with true
+ * only if their write actually changed a row. Of coalesced writes, only the last insert and the
+ * first delete of a key complete with true, as a key changes at most one row per batch.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 16:52
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public class PerxUserGroupWriteQueue {
+
+  private final Object lock = new Object();
+
+  private final Database database;
+  private final PerxUserGroupService userGroupService;
+  private final WriteBehindSettings settings;
+
+  private Map<Key, PendingWrite> pending = new LinkedHashMap<>();
+  private @Nullable BukkitTask flushTask;
+
+  public PerxUserGroupWriteQueue(
+      Database database,
+      PerxUserGroupService userGroupService,
+      WriteBehindSettings settings) {
+    Preconditions.checkNotNull(database, "Database must not be null");
+    Preconditions.checkNotNull(userGroupService, "Service must not be null");
+    Preconditions.checkNotNull(settings, "Settings must not be null");
+    this.database = database;
+    this.userGroupService = userGroupService;
+    this.settings = settings;
+  }
+
+  public WriteBehindSettings getSettings() {
+    return settings;
+  }
+
+  /**
+   * Queues the insertion of {@code model}, whose ID is set once the batch is committed.
+   *
+   * @param model the model to insert
+   * @return a future completing with true if the model was inserted, or false if the insert
+   * was superseded by another write before it was flushed or the membership already existed
+   */
+  public CompletableFuture<Boolean> insert(UserGroupModel model) {
+    Preconditions.checkNotNull(model, "Model must not be null");
+    CompletableFuture<Boolean> future = new CompletableFuture<>();
+    Key key = new Key(model.getUserId(), model.getGroup().getId());
+    synchronized (lock) {
+      PendingWrite write = pending.computeIfAbsent(key, (__) -> new PendingWrite());
+      if (write.insert != null)
+        // the last insert wins, while earlier ones share its result
+        write.superseded.add(write.insert);
+      write.insert = model;
+      write.insertFutures.add(future);
+    }
+    scheduleFlush();
+    return future;
+  }
+
+  /**
+   * Queues the deletion of the membership of {@code userId} in the group {@code groupName}.
+   *
+   * @param userId    the user to remove from the group
+   * @param groupName the group to remove the user from
+   * @return a future completing once the membership is guaranteed to be removed, with true if
+   * a membership was deleted, or false if there was none or an earlier pending delete of the
+   * same membership deleted it
+   */
+  public CompletableFuture<Boolean> delete(UUID userId, String groupName) {
+    Preconditions.checkNotNull(userId, "User must not be null");
+    Preconditions.checkNotNull(groupName, "Group must not be null");
+    CompletableFuture<Boolean> future = new CompletableFuture<>();
+    List<CompletableFuture<Boolean>> cancelled;
+    synchronized (lock) {
+      PendingWrite write = pending.computeIfAbsent(
+          new Key(userId, groupName), (__) -> new PendingWrite());
+      cancelled = new ArrayList<>(write.insertFutures);
+      write.insert = null;
+      write.insertFutures.clear();
+      write.superseded.clear();
+      write.delete = true;
+      write.deleteFutures.add(future);
+    }
+    // completed outside the lock, as dependent actions may enqueue further writes
+    cancelled.forEach((x) -> x.complete(false));
+    scheduleFlush();
+    return future;
+  }
+
+  /** Returns true if a write for given user and group has not been flushed yet. */
+  public boolean isPending(UUID userId, String groupName) {
+    synchronized (lock) {
+      return pending.containsKey(new Key(userId, groupName));
+    }
+  }
+
+  /**
+   * Writes all pending writes to the database within a single transaction.
+   *
+   * @return a future completing when the batch is written
+   */
+  @CanIgnoreReturnValue
+  public CompletableFuture<@Nullable Void> flush() {
+    Map<Key, PendingWrite> batch;
+    synchronized (lock) {
+      if (flushTask != null) {
+        flushTask.cancel();
+        flushTask = null;
+      }
+      if (pending.isEmpty())
+        return CompletableFuture.completedFuture(null);
+      batch = pending;
+      pending = new LinkedHashMap<>();
+    }
+    return database.executeAsync("user_group.write_batch", () -> write(batch))
+        .whenComplete((v, ex) -> {
+          if (ex != null)
+            // the executor rejected the batch, so no write was attempted
+            batch.values().forEach((write) -> write.fail(ex));
+        });
+  }
+
+  private void scheduleFlush() {
+    boolean flushNow;
+    synchronized (lock) {
+      flushNow = pending.size() >= settings.maximumBatchSize();
+      if (!flushNow && flushTask == null) {
+        long ticks = Math.max(1, (settings.window() + 49) / 50);
+        flushTask = Bukkit.getScheduler().runTaskLaterAsynchronously(
+            Perx.getPlugin(), this::flush, ticks);
+      }
+    }
+    if (flushNow) flush();
+  }
+
+  private void write(Map<Key, PendingWrite> batch) {
+    UserGroupDao dao = userGroupService.getDao();
+    Map<Key, Affected> affected;
+    try {
+      affected = TransactionManager.callInTransaction(
+          database.getSourceLoudly(), () -> writeBatch(dao, batch));
+    } catch (SQLException e) {
+      Perx.getLogger().log(Level.WARNING, "Batch write failed, retrying writes separately", e);
+      batch.forEach((key, write) -> writeSeparately(dao, key, write));
+      return;
+    }
+    batch.forEach((key, write) -> complete(key, write, affected.get(key)));
+  }
+
+  private void writeSeparately(UserGroupDao dao, Key key, PendingWrite write) {
+    try {
+      Map<Key, Affected> affected = TransactionManager.callInTransaction(
+          database.getSourceLoudly(), () -> writeBatch(dao, Map.of(key, write)));
+      complete(key, write, affected.get(key));
+    } catch (SQLException e) {
+      write.fail(e);
+    }
+  }
+
+  /**
+   * Adjusts the member count of the group of {@code key} by the rows its writes changed, once
+   * per key rather than once per caller, then completes the futures of {@code write}.
+   */
+  private void complete(Key key, PendingWrite write, Affected affected) {
+    long delta = affected.inserted() - affected.deleted();
+    userGroupService.getCounter().adjust(key.groupName(), delta);
+    write.complete(affected);
+  }
+
+  /**
+   * Writes {@code batch}, executing all deletes before all inserts, and returns the amount of
+   * rows affected by the writes of every key. Memberships that already exist are not inserted
+   * again, such that a single conflicting insert does not fail the entire batch. This method
+   * is blocking and must be called within a transaction.
+   */
+  private Map<Key, Affected> writeBatch(UserGroupDao dao, Map<Key, PendingWrite> batch)
+      throws SQLException {
+    Set<Key> deleted = new HashSet<>();
+    for (Map.Entry<String, List<UUID>> entry : groupUsers(batch, (x) -> x.delete).entrySet()) {
+      String groupName = entry.getKey();
+      List<UUID> existing = findExisting(dao, groupName, entry.getValue());
+      if (existing.isEmpty()) continue;
+      dao.deleteUsersFromGroup(groupName, existing);
+      existing.forEach((userId) -> deleted.add(new Key(userId, groupName)));
+    }
+    Map<String, List<UUID>> inserts = new HashMap<>();
+    List<UserGroupModel> models = new ArrayList<>();
+    for (Map.Entry<String, List<UUID>> entry : groupUsers(batch, (x) -> x.insert != null)
+        .entrySet()) {
+      String groupName = entry.getKey();
+      Set<UUID> existing = new HashSet<>(findExisting(dao, groupName, entry.getValue()));
+      for (UUID userId : entry.getValue()) {
+        if (existing.contains(userId)) continue;
+        inserts.computeIfAbsent(groupName, (__) -> new ArrayList<>()).add(userId);
+        models.add(Objects.requireNonNull(batch.get(new Key(userId, groupName)).insert));
+      }
+    }
+    dao.insertAll(models);
+    Set<Key> inserted = new HashSet<>();
+    for (Map.Entry<String, List<UUID>> entry : inserts.entrySet()) {
+      // read the inserted rows back, as multi-row inserts do not return their IDs
+      for (UserGroupModel model : dao.findByGroupAndUsers(entry.getKey(), entry.getValue())) {
+        Key key = new Key(model.getUserId(), entry.getKey());
+        Objects.requireNonNull(batch.get(key).insert).setId(model.getId());
+        inserted.add(key);
+      }
+    }
+    Map<Key, Affected> affected = new HashMap<>(batch.size());
+    batch.keySet().forEach((key) -> affected.put(key, new Affected(
+        deleted.contains(key) ? 1 : 0, inserted.contains(key) ? 1 : 0)));
+    return affected;
+  }
+
+  private static List<UUID> findExisting(
+      UserGroupDao dao, String groupName, Collection<UUID> userIds) throws SQLException {
+    return dao.findByGroupAndUsers(groupName, userIds).stream()
+        .map(UserGroupModel::getUserId)
+        .toList();
+  }
+
+  private static Map<String, List<UUID>> groupUsers(
+      Map<Key, PendingWrite> batch, Predicate<PendingWrite> filter) {
+    return batch.entrySet().stream()
+        .filter((entry) -> filter.test(entry.getValue()))
+        .collect(Collectors.groupingBy((entry) -> entry.getKey().groupName(),
+            Collectors.mapping((entry) -> entry.getKey().userId(), Collectors.toList())));
+  }
+
+  private record Key(UUID userId, String groupName) {
+
+    private Key {
+      groupName = PerxGroup.transformKey(groupName);
+    }
+
+  }
+
+  /** The amount of rows deleted and inserted by the writes of a single key */
+  private record Affected(int deleted, int inserted) {}
+
+  private static final class PendingWrite {
+
+    private final List<CompletableFuture<Boolean>> insertFutures = new ArrayList<>(1);
+    private final List<CompletableFuture<Boolean>> deleteFutures = new ArrayList<>(1);
+    private final Collection<UserGroupModel> superseded = new ArrayList<>(0);
+
+    private @Nullable UserGroupModel insert;
+    private boolean delete;
+
+    void complete(Affected affected) {
+      if (insert != null && affected.inserted() > 0)
+        for (UserGroupModel model : superseded)
+          model.setId(insert.getId());
+      // a key changes at most one row per flush, thus only one caller is told of each change,
+      // so that the change is recorded and counted once
+      for (int i = 0; i < deleteFutures.size(); ++i)
+        deleteFutures.get(i).complete(i == 0 && affected.deleted() > 0);
+      int winner = insertFutures.size() - 1;
+      for (int i = 0; i <= winner; ++i)
+        insertFutures.get(i).complete(i == winner && affected.inserted() > 0);
+    }
+
+    void fail(Throwable throwable) {
+      deleteFutures.forEach((x) -> x.completeExceptionally(throwable));
+      insertFutures.forEach((x) -> x.completeExceptionally(throwable));
+    }
+
+  }
+
+}
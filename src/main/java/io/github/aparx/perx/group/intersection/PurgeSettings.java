@@ -0,0 +1,25 @@
+package io.github.aparx.perx.group.intersection;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Settings of the background job purging expired memberships from the database.
+ *
+ * @param enabled   true if expired memberships are purged
+ * @param interval  the milliseconds between two purge runs
+ * @param batchSize the maximum amount of memberships deleted per statement
+ * @param archive   true if purged memberships are archived to a history table
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-22 14:02
+ * @since 1.0
+ */
+public record PurgeSettings(boolean enabled, long interval, int batchSize, boolean archive) {
+
+  public static final PurgeSettings DEFAULT = new PurgeSettings(true, 600000, 500, false);
+
+  public PurgeSettings {
+    Preconditions.checkArgument(interval >= 50, "Interval must be at least one tick");
+    Preconditions.checkArgument(batchSize >= 1, "Batch size must be at least one");
+  }
+
+}
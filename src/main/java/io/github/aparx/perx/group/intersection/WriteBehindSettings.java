@@ -0,0 +1,24 @@
+package io.github.aparx.perx.group.intersection;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Settings of the write-behind queue for user group subscriptions.
+ *
+ * @param enabled          true if subscriptions are written in batches
+ * @param window           the milliseconds writes are collected before they are flushed
+ * @param maximumBatchSize the amount of pending writes that forces an early flush
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-21 10:04
+ * @since 1.0
+ */
+public record WriteBehindSettings(boolean enabled, long window, int maximumBatchSize) {
+
+  public static final WriteBehindSettings DEFAULT = new WriteBehindSettings(false, 250, 500);
+
+  public WriteBehindSettings {
+    Preconditions.checkArgument(window >= 0, "Window must not be negative");
+    Preconditions.checkArgument(maximumBatchSize >= 1, "Batch size must be at least one");
+  }
+
+}
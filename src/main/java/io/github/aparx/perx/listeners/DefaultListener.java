@@ -16,8 +16,6 @@ import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 
-import java.util.UUID;
-
 /**
  * @author aparx (Vinzent Z.)
  * @version 2024-01-04 11:42
@@ -27,6 +25,8 @@ public final class DefaultListener implements Listener {
 
   @EventHandler
   public void onLoad(GroupsFetchedEvent ignored) {
+    // memberships restored from the snapshot are fetched again, now that groups are complete
+    Perx.getInstance().getWarmStart().reconcile();
     // we just may want to ensure we run on the primary thread, due to the event's call source
     BukkitThreads.runOnPrimaryThread(() -> Bukkit.getOnlinePlayers().forEach((player) -> {
       Perx.getInstance().getGroupHandler().reinitializePlayer(player);
@@ -63,10 +63,8 @@ public final class DefaultListener implements Listener {
       event.setQuitMessage(Message.QUIT.get().substitute(new LookupPopulator()
           .put(ArrayPath.of("player"), event.getPlayer())
           .getLookup()));
-    // remove the quitting player from cache
-    UUID uuid = event.getPlayer().getUniqueId();
-    Perx.getInstance().getUserService().getRepository().remove(uuid);
-    Perx.getInstance().getUserGroupService().getRepository().removeByUser(uuid);
+    // remove the quitting player from cache, keeping them for a quick reconnect
+    Perx.getInstance().getUserService().release(event.getPlayer().getUniqueId());
   }
 
 
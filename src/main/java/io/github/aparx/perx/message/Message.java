@@ -73,6 +73,8 @@ public enum Message {
   GROUP_PERM_UNSET_NOT_FOUND("commands.group.perm.unset.error not found"),
   GROUP_PERM_UNSET_FAIL("commands.group.perm.unset.error fail"),
   GROUP_PERM_UNSET_SUCCESS("commands.group.perm.unset.success"),
+  /* +----- command: stats db -----+ */
+  STATS_DB_EMPTY("commands.stats.db.error empty"),
   ;
 
   private static final ImmutableMap<ArrayPath, Message> byPath;
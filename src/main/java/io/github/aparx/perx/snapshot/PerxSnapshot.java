@@ -0,0 +1,79 @@
+package io.github.aparx.perx.snapshot;
+
+import com.google.common.base.Preconditions;
+import io.github.aparx.perx.database.data.group.GroupModel;
+import io.github.aparx.perx.database.data.many.UserGroupModel;
+import io.github.aparx.perx.group.PerxGroup;
+import io.github.aparx.perx.group.PerxGroupRepository;
+import io.github.aparx.perx.group.intersection.PerxUserGroup;
+import io.github.aparx.perx.user.PerxUser;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Point-in-time copy of all groups and the memberships of recently seen users.
+ *
+ * @param createdAt   the milliseconds since epoch this snapshot was captured at
+ * @param groups      the models of all groups
+ * @param permissions the permissions of each group, mapped by group name
+ * @param memberships the memberships that are stored in the database, mapped by user
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-22 21:09
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public record PerxSnapshot(
+    long createdAt,
+    List<GroupModel> groups,
+    Map<String, Map<String, Boolean>> permissions,
+    Map<UUID, List<UserGroupModel>> memberships
+) {
+
+  public PerxSnapshot {
+    Preconditions.checkNotNull(groups, "Groups must not be null");
+    Preconditions.checkNotNull(permissions, "Permissions must not be null");
+    Preconditions.checkNotNull(memberships, "Memberships must not be null");
+  }
+
+  /**
+   * Captures all groups in {@code groups} and the memberships of at most {@code maximumUsers}
+   * of {@code users}. Memberships that only live in cache (for example defaults) are skipped.
+   *
+   * @param groups       the groups to capture
+   * @param users        the users whose memberships to capture
+   * @param maximumUsers the maximum amount of users to capture
+   * @return the new snapshot
+   */
+  public static PerxSnapshot capture(
+      PerxGroupRepository groups, Iterable<PerxUser> users, int maximumUsers) {
+    Preconditions.checkNotNull(groups, "Groups must not be null");
+    Preconditions.checkNotNull(users, "Users must not be null");
+    List<GroupModel> models = new ArrayList<>(groups.size());
+    Map<String, Map<String, Boolean>> permissions = new HashMap<>(groups.size());
+    for (PerxGroup group : groups) {
+      models.add(group.toModel());
+      permissions.put(group.getName(), group.getPermissionRepository().toPermissionMap());
+    }
+    Map<UUID, List<UserGroupModel>> memberships = new HashMap<>();
+    for (PerxUser user : users) {
+      if (memberships.size() >= maximumUsers) break;
+      List<UserGroupModel> list = new ArrayList<>();
+      for (PerxUserGroup userGroup : user.getSubscribed()) {
+        if (!userGroup.isModelInDatabase() || !userGroup.isGroupValid()) continue;
+        UserGroupModel model = new UserGroupModel(user.getId(),
+            new GroupModel(userGroup.getGroupName()), userGroup.getEndingDate());
+        model.setId(userGroup.getId());
+        list.add(model);
+      }
+      memberships.put(user.getId(), list);
+    }
+    return new PerxSnapshot(System.currentTimeMillis(), models, permissions, memberships);
+  }
+
+}
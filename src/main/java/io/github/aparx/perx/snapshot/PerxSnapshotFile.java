@@ -0,0 +1,227 @@
+package io.github.aparx.perx.snapshot;
+
+import com.google.common.base.Preconditions;
+import io.github.aparx.perx.database.data.group.GroupModel;
+import io.github.aparx.perx.database.data.many.UserGroupModel;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Binary file that a {@code PerxSnapshot} is written to and read from through a memory
+ * mapping.
+ * <p>The file starts with a header of magic number, format version, payload length and the
+ * CRC32 checksum of the payload. A file whose header does not match is rejected as a whole.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-22 21:17
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public final class PerxSnapshotFile {
+
+  /** {@code PERX} in ASCII */
+  static final int MAGIC = 0x50455258;
+
+  /** Must be increased whenever the layout of the payload changes */
+  static final int VERSION = 1;
+
+  /** Magic number, version, payload length and checksum */
+  static final int HEADER_SIZE = 4 + 4 + 4 + 8;
+
+  private static final long NO_END_DATE = -1;
+
+  private final File file;
+
+  public PerxSnapshotFile(File file) {
+    Preconditions.checkNotNull(file, "File must not be null");
+    this.file = file;
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * Writes {@code snapshot} to the file, replacing any previous snapshot.
+   *
+   * @param snapshot the snapshot to write
+   * @throws IOException if the file could not be written
+   */
+  public void write(PerxSnapshot snapshot) throws IOException {
+    Preconditions.checkNotNull(snapshot, "Snapshot must not be null");
+    byte[] payload = encode(snapshot);
+    CRC32 checksum = new CRC32();
+    checksum.update(payload);
+    @Nullable File parent = file.getParentFile();
+    if (parent != null && !parent.exists() && !parent.mkdirs())
+      throw new IOException("Could not create parent dirs");
+    // the file is not truncated, as a previous mapping may still be alive. Trailing bytes of a
+    // larger previous snapshot are ignored, since the header states the payload length
+    try (FileChannel channel = FileChannel.open(file.toPath(),
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      MappedByteBuffer buffer =
+          channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + payload.length);
+      buffer.putInt(MAGIC)
+          .putInt(VERSION)
+          .putInt(payload.length)
+          .putLong(checksum.getValue())
+          .put(payload);
+      buffer.force();
+    }
+  }
+
+  /**
+   * Reads the snapshot from the file.
+   *
+   * @return the snapshot, or null if the file does not exist
+   * @throws IOException if the file could not be read, or is of another version or corrupt
+   */
+  public @Nullable PerxSnapshot read() throws IOException {
+    if (!file.exists()) return null;
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < HEADER_SIZE)
+        throw new IOException("Snapshot is truncated");
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      if (buffer.getInt() != MAGIC)
+        throw new IOException("Snapshot has an unknown format");
+      int version = buffer.getInt();
+      if (version != VERSION)
+        throw new IOException("Snapshot has version " + version + ", expected " + VERSION);
+      int length = buffer.getInt();
+      long expectedChecksum = buffer.getLong();
+      if (length < 0 || length > size - HEADER_SIZE)
+        throw new IOException("Snapshot is truncated");
+      ByteBuffer payload = buffer.slice(HEADER_SIZE, length);
+      CRC32 checksum = new CRC32();
+      checksum.update(payload.duplicate());
+      if (checksum.getValue() != expectedChecksum)
+        throw new IOException("Snapshot checksum mismatch");
+      try {
+        return decode(payload);
+      } catch (BufferUnderflowException | IllegalArgumentException e) {
+        throw new IOException("Snapshot payload is malformed", e);
+      }
+    }
+  }
+
+  private static byte[] encode(PerxSnapshot snapshot) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream output = new DataOutputStream(bytes)) {
+      output.writeLong(snapshot.createdAt());
+      output.writeInt(snapshot.groups().size());
+      for (GroupModel group : snapshot.groups()) {
+        writeString(output, group.getId());
+        output.writeInt(group.getPriority());
+        output.writeBoolean(group.isDefault());
+        writeString(output, group.getPrefix());
+        writeString(output, group.getSuffix());
+        Map<String, Boolean> permissions =
+            snapshot.permissions().getOrDefault(group.getId(), Map.of());
+        output.writeInt(permissions.size());
+        for (Map.Entry<String, Boolean> entry : permissions.entrySet()) {
+          writeString(output, entry.getKey());
+          output.writeBoolean(entry.getValue());
+        }
+      }
+      output.writeInt(snapshot.memberships().size());
+      for (Map.Entry<UUID, List<UserGroupModel>> entry : snapshot.memberships().entrySet()) {
+        output.writeLong(entry.getKey().getMostSignificantBits());
+        output.writeLong(entry.getKey().getLeastSignificantBits());
+        output.writeInt(entry.getValue().size());
+        for (UserGroupModel model : entry.getValue()) {
+          output.writeLong(model.getId());
+          writeString(output, model.getGroup().getId());
+          @Nullable Date endDate = model.getEndDate();
+          output.writeLong(endDate != null ? endDate.getTime() : NO_END_DATE);
+        }
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  private static PerxSnapshot decode(ByteBuffer buffer) {
+    long createdAt = buffer.getLong();
+    int groupCount = buffer.getInt();
+    List<GroupModel> groups = new ArrayList<>(groupCount);
+    Map<String, Map<String, Boolean>> permissions = new HashMap<>(groupCount);
+    for (int i = 0; i < groupCount; ++i) {
+      GroupModel group = new GroupModel(readRequiredString(buffer));
+      group.setPriority(buffer.getInt());
+      group.setDefault(buffer.get() != 0);
+      group.setPrefix(readString(buffer));
+      group.setSuffix(readString(buffer));
+      int permissionCount = buffer.getInt();
+      Map<String, Boolean> map = new HashMap<>(permissionCount);
+      for (int j = 0; j < permissionCount; ++j)
+        map.put(readRequiredString(buffer), buffer.get() != 0);
+      groups.add(group);
+      permissions.put(group.getId(), map);
+    }
+    int userCount = buffer.getInt();
+    Map<UUID, List<UserGroupModel>> memberships = new HashMap<>(userCount);
+    for (int i = 0; i < userCount; ++i) {
+      UUID userId = new UUID(buffer.getLong(), buffer.getLong());
+      int count = buffer.getInt();
+      List<UserGroupModel> list = new ArrayList<>(count);
+      for (int j = 0; j < count; ++j) {
+        long id = buffer.getLong();
+        GroupModel group = new GroupModel(readRequiredString(buffer));
+        long endDate = buffer.getLong();
+        UserGroupModel model = new UserGroupModel(userId, group,
+            endDate != NO_END_DATE ? new Date(endDate) : null);
+        model.setId(id);
+        list.add(model);
+      }
+      memberships.put(userId, list);
+    }
+    return new PerxSnapshot(createdAt, groups, permissions, memberships);
+  }
+
+  private static void writeString(DataOutputStream output, @Nullable String string)
+      throws IOException {
+    if (string == null) {
+      output.writeInt(-1);
+      return;
+    }
+    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  private static @Nullable String readString(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length == -1) return null;
+    if (length < 0 || length > buffer.remaining())
+      throw new IllegalArgumentException("Invalid string length " + length);
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static String readRequiredString(ByteBuffer buffer) {
+    @Nullable String string = readString(buffer);
+    if (string == null) throw new IllegalArgumentException("Missing string");
+    return string;
+  }
+
+}
@@ -0,0 +1,138 @@
+package io.github.aparx.perx.snapshot;
+
+import com.google.common.base.Preconditions;
+import io.github.aparx.perx.Perx;
+import io.github.aparx.perx.database.Database;
+import io.github.aparx.perx.database.data.group.GroupModel;
+import io.github.aparx.perx.database.data.many.UserGroupModel;
+import io.github.aparx.perx.group.PerxGroup;
+import io.github.aparx.perx.group.PerxGroupRepository;
+import io.github.aparx.perx.group.intersection.PerxUserGroup;
+import io.github.aparx.perx.group.intersection.PerxUserGroupRepository;
+import io.github.aparx.perx.user.PerxUserRepository;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Level;
+
+/**
+ * Serves groups and memberships from a snapshot on startup, so that players have their
+ * permissions right away, while the database is still loading.
+ * <p>Once the groups are fetched from the database, they replace the restored groups in place
+ * and the memberships of all restored users are fetched again in the background.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-22 21:41
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public class PerxWarmStart {
+
+  private final Database database;
+  private final PerxSnapshotFile file;
+  private final SnapshotSettings settings;
+
+  /** Users whose memberships were restored and not yet reconciled with the database */
+  private final Set<UUID> restoredUsers = new HashSet<>();
+
+  public PerxWarmStart(Database database, PerxSnapshotFile file, SnapshotSettings settings) {
+    Preconditions.checkNotNull(database, "Database must not be null");
+    Preconditions.checkNotNull(file, "File must not be null");
+    Preconditions.checkNotNull(settings, "Settings must not be null");
+    this.database = database;
+    this.file = file;
+    this.settings = settings;
+  }
+
+  public SnapshotSettings getSettings() {
+    return settings;
+  }
+
+  /**
+   * Registers the groups and memberships of the snapshot in the given repositories. A snapshot
+   * that is stale, of another version or corrupt is discarded.
+   *
+   * @param groups     the repository to register the restored groups in
+   * @param userGroups the repository to register the restored memberships in
+   * @return true if a snapshot was restored
+   */
+  public boolean restore(PerxGroupRepository groups, PerxUserGroupRepository userGroups) {
+    if (!settings.enabled()) return false;
+    @Nullable PerxSnapshot snapshot;
+    try {
+      snapshot = file.read();
+    } catch (IOException e) {
+      Perx.getLogger().log(Level.WARNING, "Discarding snapshot: {0}", e.getMessage());
+      return false;
+    }
+    if (snapshot == null) return false;
+    long now = System.currentTimeMillis();
+    if (now - snapshot.createdAt() > settings.maximumAge()) {
+      Perx.getLogger().info("Discarding snapshot, as it exceeds the maximum age");
+      return false;
+    }
+    Map<String, Map<String, Boolean>> permissions = snapshot.permissions();
+    for (GroupModel model : snapshot.groups())
+      groups.register(PerxGroup.of(model, permissions.getOrDefault(model.getId(), Map.of())));
+    int memberships = 0;
+    for (Map.Entry<UUID, List<UserGroupModel>> entry : snapshot.memberships().entrySet()) {
+      for (UserGroupModel model : entry.getValue()) {
+        @Nullable PerxGroup group = groups.get(model.getGroup().getId());
+        @Nullable Date endDate = model.getEndDate();
+        if (group == null || (endDate != null && endDate.getTime() < now)) continue;
+        userGroups.put(PerxUserGroup.of(model, group));
+        ++memberships;
+      }
+      synchronized (restoredUsers) {
+        restoredUsers.add(entry.getKey());
+      }
+    }
+    Perx.getLogger().log(Level.INFO, "Restored {0} group(s) and {1} membership(s) from snapshot",
+        new Object[]{snapshot.groups().size(), memberships});
+    return true;
+  }
+
+  /**
+   * Fetches the memberships of all restored users from the database and replaces the restored
+   * ones. Must be called after the groups have been fetched from the database.
+   */
+  public void reconcile() {
+    Set<UUID> users;
+    synchronized (restoredUsers) {
+      if (restoredUsers.isEmpty()) return;
+      users = Set.copyOf(restoredUsers);
+      restoredUsers.clear();
+    }
+    database.executeAsync("snapshot.reconcile",
+            () -> Perx.getInstance().getChangeLog().reload(Set.of(), users))
+        .exceptionally((ex) -> {
+          Perx.getLogger().log(Level.WARNING, "Could not reconcile restored memberships", ex);
+          return null;
+        });
+  }
+
+  /**
+   * Writes all groups and the memberships of the cached users to the snapshot. This method is
+   * blocking and meant to be called on unload.
+   *
+   * @param groups the groups to write
+   * @param users  the users whose memberships to write
+   */
+  public void save(PerxGroupRepository groups, PerxUserRepository users) {
+    if (!settings.enabled()) return;
+    try {
+      file.write(PerxSnapshot.capture(groups, users, settings.maximumUsers()));
+    } catch (IOException e) {
+      Perx.getLogger().log(Level.WARNING, "Could not write snapshot", e);
+    }
+  }
+
+}
@@ -0,0 +1,25 @@
+package io.github.aparx.perx.snapshot;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Settings of the warm-start snapshot, that groups and memberships are served from on startup
+ * until the database has been loaded.
+ *
+ * @param enabled      true if a snapshot is written on unload and restored on load
+ * @param maximumAge   the milliseconds after which a snapshot is too stale to be restored
+ * @param maximumUsers the maximum amount of users whose memberships are written
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-22 21:02
+ * @since 1.0
+ */
+public record SnapshotSettings(boolean enabled, long maximumAge, int maximumUsers) {
+
+  public static final SnapshotSettings DEFAULT = new SnapshotSettings(true, 86400000, 1000);
+
+  public SnapshotSettings {
+    Preconditions.checkArgument(maximumAge > 0, "Maximum age must be positive");
+    Preconditions.checkArgument(maximumUsers >= 0, "Maximum users must not be negative");
+  }
+
+}
@@ -0,0 +1,352 @@
+package io.github.aparx.perx.sync;
+
+import com.google.common.base.Preconditions;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import com.j256.ormlite.dao.DaoManager;
+import io.github.aparx.perx.Perx;
+import io.github.aparx.perx.database.Database;
+import io.github.aparx.perx.database.data.change.ChangeLogDao;
+import io.github.aparx.perx.database.data.change.ChangeLogModel;
+import io.github.aparx.perx.database.data.change.ChangeType;
+import io.github.aparx.perx.database.data.group.GroupModel;
+import io.github.aparx.perx.database.data.many.UserGroupModel;
+import io.github.aparx.perx.group.PerxGroup;
+import io.github.aparx.perx.group.PerxGroupHandler;
+import io.github.aparx.perx.group.PerxGroupRepository;
+import io.github.aparx.perx.group.PerxGroupService;
+import io.github.aparx.perx.group.intersection.PerxUserGroup;
+import io.github.aparx.perx.group.intersection.PerxUserGroupRepository;
+import io.github.aparx.perx.group.intersection.PerxUserGroupService;
+import io.github.aparx.perx.user.PerxUser;
+import io.github.aparx.perx.utils.BukkitThreads;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+
+/**
+ * Change log that synchronizes groups and memberships between servers sharing a database.
+ * <p>Every mutation is recorded with a monotonic revision. Each server polls the revisions it
+ * has not seen yet and reloads only the changed groups and the memberships of affected users
+ * that are cached, while its own changes are skipped.
+ * <p>Revisions are assigned on insert but may become visible out of order, as a transaction
+ * holding a lower revision can commit after one holding a higher revision. Revisions skipped
+ * by a poll are therefore looked up again until they appear or the gap timeout elapses.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 17:04
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public class PerxChangeLog {
+
+  /** The milliseconds between two deletions of changes exceeding the retention */
+  private static final long PRUNE_INTERVAL = 3600000;
+
+  /** The maximum amount of skipped revisions that are looked up again at once */
+  private static final int MAX_GAPS = 500;
+
+  /** Identifies this server instance, so that it skips its own changes */
+  private final String origin = UUID.randomUUID().toString();
+
+  private final AtomicBoolean polling = new AtomicBoolean();
+
+  private final Database database;
+  private final SyncSettings settings;
+
+  private @Nullable ChangeLogDao dao;
+  private @Nullable BukkitTask task;
+
+  /**
+   * Revisions skipped by previous polls, mapped to the epoch milliseconds until which they are
+   * looked up, in the order they were skipped. Only accessed by non-overlapping polls.
+   */
+  private final Map<Long, Long> gaps = new LinkedHashMap<>();
+
+  private volatile long revision;
+  private long nextPrune;
+
+  public PerxChangeLog(Database database, SyncSettings settings) {
+    Preconditions.checkNotNull(database, "Database must not be null");
+    Preconditions.checkNotNull(settings, "Settings must not be null");
+    this.database = database;
+    this.settings = settings;
+  }
+
+  public SyncSettings getSettings() {
+    return settings;
+  }
+
+  public boolean isEnabled() {
+    return settings.enabled();
+  }
+
+  /** Returns the latest revision this server has seen. */
+  public long getRevision() {
+    return revision;
+  }
+
+  /**
+   * Fetches the latest revision and starts polling on the given plugin, if enabled. Changes
+   * made before this call are not replayed, as all data is loaded initially anyway.
+   *
+   * @param plugin the plugin polling the change log
+   */
+  public void load(Plugin plugin) {
+    if (!settings.enabled()) return;
+    database.executeAsync("change_log.load", () -> {
+      ChangeLogDao dao = DaoManager.createDao(database.getSourceLoudly(), ChangeLogModel.class);
+      this.revision = dao.getLatestRevision();
+      this.dao = dao;
+      long ticks = Math.max(1, settings.interval() / 50);
+      BukkitThreads.runOnPrimaryThread(() -> {
+        if (task != null) task.cancel();
+        task = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::poll, ticks, ticks);
+      });
+    }).exceptionally((ex) -> {
+      Perx.getLogger().log(Level.SEVERE, "Could not load the change log", ex);
+      return null;
+    });
+  }
+
+  public void stop() {
+    if (task != null) task.cancel();
+    task = null;
+  }
+
+  /**
+   * Records a change of {@code type} for {@code target}, which must only be called after the
+   * change has been written to the database.
+   *
+   * @param type   the type of the change
+   * @param target the group name or user UUID that changed
+   * @return a future completing when the change is recorded
+   */
+  @CanIgnoreReturnValue
+  public CompletableFuture<@Nullable Void> record(ChangeType type, String target) {
+    return recordAll(type, List.of(target));
+  }
+
+  /**
+   * Records a change of {@code type} for each of {@code targets} using a single insert.
+   *
+   * @param type    the type of the changes
+   * @param targets the group names or user UUIDs that changed
+   * @return a future completing when the changes are recorded
+   */
+  @CanIgnoreReturnValue
+  public CompletableFuture<@Nullable Void> recordAll(ChangeType type, Collection<String> targets) {
+    Preconditions.checkNotNull(type, "Type must not be null");
+    Preconditions.checkNotNull(targets, "Targets must not be null");
+    @Nullable ChangeLogDao dao = this.dao;
+    if (dao == null || targets.isEmpty())
+      return CompletableFuture.completedFuture(null);
+    List<String> copy = List.copyOf(targets);
+    return database.executeAsync("change_log.append", () -> {
+      dao.append(type, copy, origin);
+    }).exceptionally((ex) -> {
+      Perx.getLogger().log(Level.WARNING, "Could not record change of " + copy, ex);
+      return null;
+    });
+  }
+
+  /**
+   * Fetches all changes following the last seen revision and reloads the affected groups and
+   * cached memberships. Polls do not overlap, thus a poll is skipped while another is running.
+   *
+   * @return a future of the amount of changes fetched
+   */
+  @CanIgnoreReturnValue
+  public CompletableFuture<Integer> poll() {
+    @Nullable ChangeLogDao dao = this.dao;
+    if (dao == null || !polling.compareAndSet(false, true))
+      return CompletableFuture.completedFuture(0);
+    return database.executeAsync("change_log.poll", () -> {
+      pruneIfNeeded(dao);
+      List<ChangeLogModel> changes = new ArrayList<>(findGaps(dao));
+      List<ChangeLogModel> following = dao.findAfter(revision, settings.batchSize());
+      trackGaps(following);
+      changes.addAll(following);
+      if (changes.isEmpty()) return 0;
+      Set<String> groups = new LinkedHashSet<>();
+      Set<UUID> users = new LinkedHashSet<>();
+      for (ChangeLogModel change : changes) {
+        if (origin.equals(change.getOrigin())) continue;
+        switch (change.getType()) {
+          case GROUP -> groups.add(PerxGroup.transformKey(change.getTarget()));
+          case MEMBERSHIP -> {
+            UUID userId = UUID.fromString(change.getTarget());
+            users.add(userId);
+            Perx.getInstance().getUserService().invalidateInactive(userId);
+          }
+          case GROUP_MEMBERSHIP -> {
+            users.addAll(findCachedMembers(change.getTarget()));
+            Perx.getInstance().getUserService().invalidateAllInactive();
+            Perx.getInstance().getUserGroupService().getCounter().invalidate(change.getTarget());
+          }
+        }
+      }
+      if (!groups.isEmpty() || !users.isEmpty())
+        reload(groups, users);
+      if (!following.isEmpty())
+        revision = following.get(following.size() - 1).getRevision();
+      return changes.size();
+    }).whenComplete((count, ex) -> {
+      polling.set(false);
+      if (ex != null)
+        Perx.getLogger().log(Level.WARNING, "Could not poll the change log", ex);
+    });
+  }
+
+  /**
+   * Returns the changes of previously skipped revisions that became visible since, while
+   * forgetting those skipped revisions whose timeout elapsed.
+   */
+  private List<ChangeLogModel> findGaps(ChangeLogDao dao) throws SQLException {
+    if (gaps.isEmpty()) return List.of();
+    long now = System.currentTimeMillis();
+    gaps.values().removeIf((deadline) -> deadline < now);
+    List<ChangeLogModel> found = dao.findRevisions(List.copyOf(gaps.keySet()));
+    found.forEach((change) -> gaps.remove(change.getRevision()));
+    return found;
+  }
+
+  /** Remembers the revisions between the last seen revision and {@code changes}. */
+  private void trackGaps(List<ChangeLogModel> changes) {
+    if (settings.gapTimeout() == 0) return;
+    long deadline = System.currentTimeMillis() + settings.gapTimeout();
+    long expected = revision + 1;
+    for (ChangeLogModel change : changes) {
+      // only the latest skipped revisions are tracked, should the revision jump
+      for (long gap = Math.max(expected, change.getRevision() - MAX_GAPS);
+           gap < change.getRevision(); ++gap)
+        gaps.put(gap, deadline);
+      expected = change.getRevision() + 1;
+    }
+    Iterator<Long> iterator = gaps.keySet().iterator();
+    for (int excess = gaps.size() - MAX_GAPS; excess > 0; --excess) {
+      iterator.next();
+      iterator.remove();
+    }
+  }
+
+  private void pruneIfNeeded(ChangeLogDao dao) throws SQLException {
+    long now = System.currentTimeMillis();
+    if (now < nextPrune) return;
+    nextPrune = now + PRUNE_INTERVAL;
+    int deleted = dao.deleteBefore(now - settings.retention());
+    if (deleted > 0)
+      Perx.getLogger().log(Level.FINE, "Pruned {0} change(s) from the change log", deleted);
+  }
+
+  private Set<UUID> findCachedMembers(String groupName) {
+    PerxUserGroupRepository repository = Perx.getInstance().getUserGroupService().getRepository();
+    return repository.findByGroup(PerxGroup.transformKey(groupName)).stream()
+        .map(PerxUserGroup::getUserId)
+        .collect(Collectors.toSet());
+  }
+
+  /**
+   * Fetches the given groups and the memberships of those given users that are cached, then
+   * applies them on the primary thread. Groups that no longer exist are removed from cache.
+   * This method is blocking and must be called asynchronously.
+   *
+   * @param groupNames the names of the groups to reload
+   * @param userIds    the users whose memberships to reload
+   * @throws SQLException if a query failed
+   */
+  public void reload(Set<String> groupNames, Set<UUID> userIds) throws SQLException {
+    PerxGroupService groupService = Perx.getInstance().getGroupService();
+    PerxUserGroupService userGroupService = Perx.getInstance().getUserGroupService();
+    Map<String, @Nullable GroupModel> groups = new HashMap<>(groupNames.size());
+    Map<String, Map<String, Boolean>> permissions = new HashMap<>(groupNames.size());
+    for (String name : groupNames) {
+      @Nullable GroupModel model = groupService.getDao().queryForId(name);
+      groups.put(name, model);
+      if (model != null)
+        permissions.put(name, groupService.getPermissionDao().findByGroup(name));
+    }
+    PerxUserGroupRepository userGroupRepository = userGroupService.getRepository();
+    List<UUID> cachedUsers = userIds.stream()
+        .filter((userId) -> userGroupRepository.hasUser(userId)
+            || Perx.getInstance().getUserService().getRepository().contains(userId))
+        .toList();
+    Map<UUID, List<UserGroupModel>> memberships = new HashMap<>(cachedUsers.size());
+    cachedUsers.forEach((userId) -> memberships.put(userId, new ArrayList<>()));
+    if (!cachedUsers.isEmpty())
+      for (UserGroupModel model : userGroupService.getDao().findByUsers(cachedUsers))
+        memberships.get(model.getUserId()).add(model);
+    BukkitThreads.runOnPrimaryThread(() -> {
+      groups.forEach((name, model) -> applyGroup(name, model, permissions.get(name)));
+      memberships.forEach(this::applyMemberships);
+      if (!groups.isEmpty())
+        Perx.getInstance().getGroupHandler().reinitializeAllPlayers();
+    });
+  }
+
+  private void applyGroup(
+      String name, @Nullable GroupModel model, @Nullable Map<String, Boolean> permissions) {
+    PerxGroupRepository repository = Perx.getInstance().getGroupService().getRepository();
+    @Nullable PerxGroup group = repository.get(name);
+    if (model == null || permissions == null) {
+      // the group was deleted on another server
+      if (group != null) Perx.getInstance().getGroupHandler().evictGroup(group);
+    } else if (group == null) {
+      repository.register(PerxGroup.of(model, permissions));
+    } else {
+      group.apply(model, permissions);
+    }
+  }
+
+  private void applyMemberships(UUID userId, List<UserGroupModel> models) {
+    PerxGroupRepository groupRepository = Perx.getInstance().getGroupService().getRepository();
+    PerxUserGroupRepository repository = Perx.getInstance().getUserGroupService().getRepository();
+    PerxGroupHandler groupHandler = Perx.getInstance().getGroupHandler();
+    @Nullable PerxUser user = Perx.getInstance().getUserService().getRepository().get(userId);
+    Set<String> previous = new HashSet<>();
+    repository.findByUser(userId).forEach((userGroup) -> previous.add(userGroup.getGroupName()));
+    repository.removeByUser(userId);
+    if (user != null)
+      for (PerxUserGroup userGroup : new ArrayList<>(user.getSubscribed())) {
+        previous.add(userGroup.getGroupName());
+        // groups that only live in cache (for example defaults) are kept
+        if (userGroup.isModelInDatabase()) user.removeGroup(userGroup);
+      }
+    for (UserGroupModel model : models) {
+      @Nullable PerxGroup group = groupRepository.get(model.getGroup().getId());
+      if (group == null) continue;
+      PerxUserGroup userGroup = PerxUserGroup.of(model, group);
+      repository.put(userGroup);
+      if (user != null) user.addGroup(userGroup);
+      previous.remove(group.getName());
+    }
+    @Nullable Player player = (user != null ? user.getPlayer() : null);
+    if (player == null) return;
+    for (String groupName : previous) {
+      @Nullable PerxGroup group = groupRepository.get(groupName);
+      if (group != null) groupHandler.resetGroupFromPlayer(player, group);
+    }
+    groupHandler.reinitializePlayer(player);
+  }
+
+}
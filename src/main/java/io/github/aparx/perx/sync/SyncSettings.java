@@ -0,0 +1,35 @@
+package io.github.aparx.perx.sync;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Settings of the change log, that synchronizes groups and memberships between servers.
+ *
+ * @param enabled    true if changes are recorded and polled
+ * @param interval   the milliseconds between two polls of the change log
+ * @param retention  the milliseconds changes are kept before they are deleted
+ * @param batchSize  the maximum amount of changes fetched per poll
+ * @param gapTimeout the milliseconds a skipped revision is looked up again, as it may belong
+ *                   to a transaction that commits later than one with a higher revision
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-22 09:31
+ * @since 1.0
+ */
+public record SyncSettings(
+    boolean enabled,
+    long interval,
+    long retention,
+    int batchSize,
+    long gapTimeout
+) {
+
+  public static final SyncSettings DEFAULT = new SyncSettings(false, 2000, 86400000, 500, 30000);
+
+  public SyncSettings {
+    Preconditions.checkArgument(interval >= 50, "Interval must be at least one tick");
+    Preconditions.checkArgument(retention > interval, "Retention must exceed the interval");
+    Preconditions.checkArgument(batchSize >= 1, "Batch size must be at least one");
+    Preconditions.checkArgument(gapTimeout >= 0, "Gap timeout must not be negative");
+  }
+
+}
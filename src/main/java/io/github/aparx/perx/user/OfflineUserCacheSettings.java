@@ -0,0 +1,27 @@
+package io.github.aparx.perx.user;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Settings of the cache tier that keeps users that are not online for a while.
+ *
+ * @param maximumSize the amount of offline users cached at most, or zero to disable the tier
+ * @param ttl         the milliseconds an offline user is cached after it was fetched
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 16:05
+ * @since 1.0
+ */
+public record OfflineUserCacheSettings(long maximumSize, long ttl) {
+
+  public static final OfflineUserCacheSettings DEFAULT = new OfflineUserCacheSettings(500, 60000);
+
+  public OfflineUserCacheSettings {
+    Preconditions.checkArgument(maximumSize >= 0, "Maximum size must not be negative");
+    Preconditions.checkArgument(ttl >= 0, "TTL must not be negative");
+  }
+
+  public boolean isEnabled() {
+    return maximumSize > 0 && ttl > 0;
+  }
+
+}
@@ -0,0 +1,83 @@
+package io.github.aparx.perx.user;
+
+import com.google.common.base.Preconditions;
+import org.bukkit.OfflinePlayer;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * User repository backed by a concurrent map, such that reads never block and writes only
+ * contend with writes to the same user. Adding and replacing a user are atomic.
+ * <p>Iterators are weakly consistent: they never throw a
+ * {@link java.util.ConcurrentModificationException} and reflect the users present at some
+ * point at or since their creation. They do not support removal.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 15:31
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public class PerxConcurrentUserCache implements PerxUserRepository {
+
+  private final ConcurrentMap<UUID, PerxUser> userMap = new ConcurrentHashMap<>();
+
+  @Override
+  public boolean add(PerxUser user) {
+    Preconditions.checkNotNull(user, "User must not be null");
+    return userMap.putIfAbsent(user.getId(), user) == null;
+  }
+
+  @Override
+  public @Nullable PerxUser replace(PerxUser user) {
+    Preconditions.checkNotNull(user, "User must not be null");
+    return userMap.replace(user.getId(), user);
+  }
+
+  @Override
+  public @Nullable PerxUser get(UUID userId) {
+    return userMap.get(userId);
+  }
+
+  @Override
+  public @Nullable PerxUser get(OfflinePlayer player) {
+    return userMap.get(player.getUniqueId());
+  }
+
+  @Override
+  public boolean contains(UUID uuid) {
+    return userMap.containsKey(uuid);
+  }
+
+  @Override
+  public boolean contains(OfflinePlayer player) {
+    return userMap.containsKey(player.getUniqueId());
+  }
+
+  @Override
+  public boolean remove(PerxUser user) {
+    return userMap.remove(user.getId(), user);
+  }
+
+  @Override
+  public boolean remove(UUID uuid) {
+    return userMap.remove(uuid) != null;
+  }
+
+  @Override
+  public boolean remove(OfflinePlayer player) {
+    return userMap.remove(player.getUniqueId()) != null;
+  }
+
+  @Override
+  public Iterator<PerxUser> iterator() {
+    return Collections.unmodifiableCollection(userMap.values()).iterator();
+  }
+
+}
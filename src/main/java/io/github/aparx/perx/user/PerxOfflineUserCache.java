@@ -0,0 +1,80 @@
+package io.github.aparx.perx.user;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache tier of users that are not online, such that repeatedly looking up the same
+ * offline user does not query the database every time.
+ * <p>Users are evicted once the TTL elapsed since they were fetched, or once the cache is full,
+ * whereas the least recently used users are evicted first. As a user is only fetched again
+ * after being evicted, changes to their memberships must invalidate them.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 16:05
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public class PerxOfflineUserCache {
+
+  private final OfflineUserCacheSettings settings;
+
+  /** The cached users, or null if this tier is disabled */
+  private final @Nullable Cache<UUID, PerxUser> cache;
+
+  public PerxOfflineUserCache(OfflineUserCacheSettings settings) {
+    Preconditions.checkNotNull(settings, "Settings must not be null");
+    this.settings = settings;
+    this.cache = (settings.isEnabled()
+        ? CacheBuilder.newBuilder()
+        .maximumSize(settings.maximumSize())
+        .expireAfterWrite(settings.ttl(), TimeUnit.MILLISECONDS)
+        .recordStats()
+        .build()
+        : null);
+  }
+
+  public OfflineUserCacheSettings getSettings() {
+    return settings;
+  }
+
+  public boolean isEnabled() {
+    return cache != null;
+  }
+
+  public @Nullable PerxUser get(UUID userId) {
+    return (cache != null ? cache.getIfPresent(userId) : null);
+  }
+
+  public void put(PerxUser user) {
+    Preconditions.checkNotNull(user, "User must not be null");
+    if (cache != null) cache.put(user.getId(), user);
+  }
+
+  public void invalidate(UUID userId) {
+    if (cache != null) cache.invalidate(userId);
+  }
+
+  public void invalidateAll() {
+    if (cache != null) cache.invalidateAll();
+  }
+
+  /** Returns the approximate amount of users cached. */
+  public long size() {
+    return (cache != null ? cache.size() : 0);
+  }
+
+  /** Returns the hit, miss and eviction counters of this tier. */
+  public CacheStats getStats() {
+    return (cache != null ? cache.stats() : new CacheStats(0, 0, 0, 0, 0, 0));
+  }
+
+}
@@ -56,17 +56,33 @@ public class PerxUser implements Iterable<PerxUserGroup> {
   @CanIgnoreReturnValue
   public @Nullable PerxUserGroup addGroup(PerxUserGroup group) {
     Preconditions.checkArgument(Objects.equals(getId(), group.getUserId()), "User ID mismatch");
-    return subscribed.put(group.getGroup().getName(), group);
+    @Nullable PerxUserGroup previous = subscribed.put(group.getGroup().getName(), group);
+    if (previous != null && previous != group) unschedule(previous);
+    Perx perx = Perx.getInstance();
+    if (perx.isLoaded() && group.getEndingDate() != null)
+      // only scheduled if this user is cached for runtime
+      perx.getGroupUpdateTask().schedule(group);
+    return previous;
   }
 
   @CanIgnoreReturnValue
   public boolean removeGroup(PerxUserGroup group) {
-    return subscribed.remove(group.getGroup().getName(), group);
+    if (!subscribed.remove(group.getGroup().getName(), group)) return false;
+    unschedule(group);
+    return true;
   }
 
   @CanIgnoreReturnValue
   public @Nullable PerxUserGroup removeGroup(String groupName) {
-    return subscribed.remove(groupName);
+    @Nullable PerxUserGroup removed = subscribed.remove(groupName);
+    if (removed != null) unschedule(removed);
+    return removed;
+  }
+
+  private static void unschedule(PerxUserGroup group) {
+    Perx perx = Perx.getInstance();
+    if (perx.isLoaded() && group.getEndingDate() != null)
+      perx.getGroupUpdateTask().unschedule(group);
   }
 
   public boolean hasGroup(String groupName) {
@@ -109,6 +125,7 @@ public class PerxUser implements Iterable<PerxUserGroup> {
         PerxUserGroupService service = Perx.getInstance().getUserGroupService();
         service.getRepository().removeById(next.getId());
         iterator.remove();
+        unschedule(next);
         return computeNext();
       }
     };
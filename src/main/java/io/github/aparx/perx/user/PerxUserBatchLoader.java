@@ -0,0 +1,102 @@
+package io.github.aparx.perx.user;
+
+import com.google.common.base.Preconditions;
+import io.github.aparx.perx.group.intersection.PerxUserGroup;
+import io.github.aparx.perx.group.intersection.PerxUserGroupService;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loader that gathers the users requested within a short window and fetches their groups
+ * using a single query, after which the results are fanned out to every waiting future.
+ * <p>This reduces the amount of queries when many users are loaded at once, for example when
+ * players reconnect after a restart of a proxy.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-21 14:52
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public class PerxUserBatchLoader {
+
+  private final Object lock = new Object();
+
+  private final PerxUserGroupService userGroupService;
+  private final UserLoaderSettings settings;
+  private final Executor delayedExecutor;
+
+  private Map<UUID, CompletableFuture<List<PerxUserGroup>>> pending = new LinkedHashMap<>();
+  private boolean scheduled;
+
+  public PerxUserBatchLoader(PerxUserGroupService userGroupService, UserLoaderSettings settings) {
+    Preconditions.checkNotNull(userGroupService, "Service must not be null");
+    Preconditions.checkNotNull(settings, "Settings must not be null");
+    this.userGroupService = userGroupService;
+    this.settings = settings;
+    this.delayedExecutor = CompletableFuture.delayedExecutor(
+        settings.window(), TimeUnit.MILLISECONDS);
+  }
+
+  public UserLoaderSettings getSettings() {
+    return settings;
+  }
+
+  /**
+   * Requests the user groups of {@code userId} to be loaded with the next batch.
+   *
+   * @param userId the user whose groups to load
+   * @return a future completing with the user groups, once the batch is loaded
+   */
+  public CompletableFuture<List<PerxUserGroup>> load(UUID userId) {
+    Preconditions.checkNotNull(userId, "ID must not be null");
+    @Nullable Map<UUID, CompletableFuture<List<PerxUserGroup>>> batch = null;
+    CompletableFuture<List<PerxUserGroup>> future;
+    synchronized (lock) {
+      future = pending.computeIfAbsent(userId, (__) -> new CompletableFuture<>());
+      if (pending.size() >= settings.maximumBatchSize()) {
+        batch = pending;
+        pending = new LinkedHashMap<>();
+      } else if (!scheduled) {
+        scheduled = true;
+        delayedExecutor.execute(this::dispatch);
+      }
+    }
+    if (batch != null) dispatch(batch);
+    return future;
+  }
+
+  private void dispatch() {
+    Map<UUID, CompletableFuture<List<PerxUserGroup>>> batch;
+    synchronized (lock) {
+      scheduled = false;
+      if (pending.isEmpty()) return;
+      batch = pending;
+      pending = new LinkedHashMap<>();
+    }
+    dispatch(batch);
+  }
+
+  private void dispatch(Map<UUID, CompletableFuture<List<PerxUserGroup>>> batch) {
+    userGroupService.getUserGroupsByUsers(batch.keySet()).whenComplete((result, ex) -> {
+      batch.forEach((userId, future) -> {
+        if (ex != null) {
+          future.completeExceptionally(ex);
+          return;
+        }
+        @Nullable List<PerxUserGroup> userGroups = result.get(userId);
+        future.complete(userGroups != null ? userGroups : new ArrayList<>());
+      });
+    });
+  }
+
+}
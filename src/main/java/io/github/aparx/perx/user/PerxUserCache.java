@@ -10,8 +10,12 @@ import org.checkerframework.framework.qual.DefaultQualifier;
 import java.util.*;
 
 /**
+ * User repository guarding a plain map with a single mutex, which is shared with the owner.
+ * <p>Every access contends for that mutex, thus {@link PerxConcurrentUserCache} should be
+ * preferred for repositories that are accessed from multiple threads.
+ *
  * @author aparx (Vinzent Z.)
- * @version 2024-01-18 00:18
+ * @version 2024-01-23 15:31
  * @since 1.0
  */
 @DefaultQualifier(NonNull.class)
@@ -33,12 +37,16 @@ public class PerxUserCache implements PerxUserRepository {
 
   @Override
   public boolean add(PerxUser user) {
-    return userMap.putIfAbsent(user.getId(), user) == null;
+    synchronized (mutex) {
+      return userMap.putIfAbsent(user.getId(), user) == null;
+    }
   }
 
   @Override
   public @Nullable PerxUser replace(PerxUser user) {
-    return userMap.replace(user.getId(), user);
+    synchronized (mutex) {
+      return userMap.replace(user.getId(), user);
+    }
   }
 
   @Override
@@ -93,7 +101,8 @@ public class PerxUserCache implements PerxUserRepository {
   @Override
   public Iterator<PerxUser> iterator() {
     synchronized (mutex) {
-      Iterator<PerxUser> iterator = userMap.values().iterator();
+      // iterates a snapshot, as the map may be modified once the mutex is released
+      Iterator<PerxUser> iterator = List.copyOf(userMap.values()).iterator();
       return new AbstractIterator<>() {
         @Nullable
         @Override
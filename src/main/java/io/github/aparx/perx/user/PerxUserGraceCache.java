@@ -0,0 +1,92 @@
+package io.github.aparx.perx.user;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of users that recently quit, such that a user reconnecting within the grace period,
+ * for example after a crash or a server switch, is restored without fetching them again.
+ * <p>The cache is bounded by the weight of its users, which approximates their memory, as a
+ * user weighs one plus the amount of their memberships. As users are not fetched again once
+ * restored, changes to their memberships must invalidate them.
+ *
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 16:24
+ * @since 1.0
+ */
+@DefaultQualifier(NonNull.class)
+public class PerxUserGraceCache {
+
+  private final UserGraceSettings settings;
+
+  /** The users that quit, or null if this cache is disabled */
+  private final @Nullable Cache<UUID, PerxUser> cache;
+
+  public PerxUserGraceCache(UserGraceSettings settings) {
+    Preconditions.checkNotNull(settings, "Settings must not be null");
+    this.settings = settings;
+    this.cache = (settings.isEnabled()
+        ? CacheBuilder.newBuilder()
+        .maximumWeight(settings.maximumWeight())
+        .<UUID, PerxUser>weigher((userId, user) -> 1 + user.getSubscribed().size())
+        .expireAfterWrite(settings.period(), TimeUnit.MILLISECONDS)
+        .recordStats()
+        .build()
+        : null);
+  }
+
+  public UserGraceSettings getSettings() {
+    return settings;
+  }
+
+  public boolean isEnabled() {
+    return cache != null;
+  }
+
+  /** Returns the user of {@code userId} if they quit within the grace period, or null. */
+  public @Nullable PerxUser get(UUID userId) {
+    return (cache != null ? cache.getIfPresent(userId) : null);
+  }
+
+  /** Keeps {@code user}, who just quit, for the grace period. */
+  public void put(PerxUser user) {
+    Preconditions.checkNotNull(user, "User must not be null");
+    if (cache != null) cache.put(user.getId(), user);
+  }
+
+  /**
+   * Removes exactly {@code user} from this cache, for them to be restored.
+   *
+   * @return true if the user was still kept and is now removed
+   */
+  public boolean remove(PerxUser user) {
+    return cache != null && cache.asMap().remove(user.getId(), user);
+  }
+
+  public void invalidate(UUID userId) {
+    if (cache != null) cache.invalidate(userId);
+  }
+
+  public void invalidateAll() {
+    if (cache != null) cache.invalidateAll();
+  }
+
+  /** Returns the approximate amount of users kept. */
+  public long size() {
+    return (cache != null ? cache.size() : 0);
+  }
+
+  /** Returns the hit, miss and eviction counters of this cache. */
+  public CacheStats getStats() {
+    return (cache != null ? cache.stats() : new CacheStats(0, 0, 0, 0, 0, 0));
+  }
+
+}
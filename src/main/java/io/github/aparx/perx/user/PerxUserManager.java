@@ -1,15 +1,24 @@
 package io.github.aparx.perx.user;
 
 import com.google.common.base.Preconditions;
+import io.github.aparx.perx.Perx;
 import io.github.aparx.perx.database.Database;
+import io.github.aparx.perx.group.intersection.PerxUserGroup;
+import io.github.aparx.perx.group.intersection.PerxUserGroupRepository;
 import io.github.aparx.perx.group.intersection.PerxUserGroupService;
 import org.bukkit.OfflinePlayer;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.framework.qual.DefaultQualifier;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
 
 /**
  * @author aparx (Vinzent Z.)
@@ -19,23 +28,59 @@ import java.util.concurrent.CompletableFuture;
 @DefaultQualifier(NonNull.class)
 public class PerxUserManager implements PerxUserService {
 
-  protected transient final Object mutex = new Object();
+  /** The fetches currently in flight, shared by all concurrent callers for the same user */
+  private final Map<UUID, CompletableFuture<List<PerxUserGroup>>> inFlight =
+      new ConcurrentHashMap<>();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder coalesced = new LongAdder();
 
   private final PerxUserRepository repository;
   private final Database database;
   private final PerxUserGroupService userGroupService;
+  private final UserLoaderSettings loaderSettings;
+  private final PerxOfflineUserCache offlineCache;
+  private final PerxUserGraceCache graceCache;
+  private final @Nullable PerxUserBatchLoader batchLoader;
 
   public PerxUserManager(Database database, PerxUserGroupService userGroupService) {
+    this(database, userGroupService, UserLoaderSettings.DEFAULT);
+  }
+
+  public PerxUserManager(
+      Database database,
+      PerxUserGroupService userGroupService,
+      UserLoaderSettings loaderSettings) {
+    this(database, userGroupService, loaderSettings, OfflineUserCacheSettings.DEFAULT,
+        UserGraceSettings.DEFAULT);
+  }
+
+  public PerxUserManager(
+      Database database,
+      PerxUserGroupService userGroupService,
+      UserLoaderSettings loaderSettings,
+      OfflineUserCacheSettings offlineCacheSettings,
+      UserGraceSettings graceSettings) {
     Preconditions.checkNotNull(database, "Database must not be null");
     Preconditions.checkNotNull(userGroupService, "Service must not be null");
+    Preconditions.checkNotNull(loaderSettings, "Settings must not be null");
     this.database = database;
     this.userGroupService = userGroupService;
-    this.repository = new PerxUserCache(mutex);
+    this.loaderSettings = loaderSettings;
+    this.batchLoader = (loaderSettings.isBatching()
+        ? new PerxUserBatchLoader(userGroupService, loaderSettings)
+        : null);
+    this.repository = new PerxConcurrentUserCache();
+    this.offlineCache = new PerxOfflineUserCache(offlineCacheSettings);
+    this.graceCache = new PerxUserGraceCache(graceSettings);
   }
 
   @Override
   public PerxUserManager copy() {
-    PerxUserManager manager = new PerxUserManager(database, userGroupService);
+    PerxUserManager manager = new PerxUserManager(
+        database, userGroupService, loaderSettings, offlineCache.getSettings(),
+        graceCache.getSettings());
     repository.forEach(manager.repository::add);
     return manager;
   }
@@ -45,37 +90,157 @@ public class PerxUserManager implements PerxUserService {
     return repository;
   }
 
+  @Override
+  public PerxOfflineUserCache getOfflineCache() {
+    return offlineCache;
+  }
+
+  @Override
+  public PerxUserGraceCache getGraceCache() {
+    return graceCache;
+  }
+
+  @Override
+  public void release(UUID userId) {
+    @Nullable PerxUser user = repository.get(userId);
+    repository.remove(userId);
+    userGroupService.getRepository().removeByUser(userId);
+    if (user == null) return;
+    unscheduleExpiries(user);
+    // groups only living in cache, such as default groups, are added again on reconnect
+    user.getSubscribed().stream()
+        .filter(Predicate.not(PerxUserGroup::isModelInDatabase))
+        .toList()
+        .forEach(user::removeGroup);
+    graceCache.put(user);
+  }
+
   @Override
   public CompletableFuture<PerxUser> getOrFetch(UUID uuid, UserCacheStrategy strategy) {
-    if (repository.contains(uuid))
-      return CompletableFuture.completedFuture(repository.get(uuid));
-    synchronized (mutex) {
-      if (repository.contains(uuid))
-        return CompletableFuture.completedFuture(repository.get(uuid));
-      return userGroupService.getUserGroupsByUser(uuid).thenApply((userGroups) -> {
-        @Nullable PerxUser user = repository.get(uuid);
-        if (user == null) user = new PerxUser(uuid);
-        userGroups.forEach(user::addGroup);
-        UserCacheStrategy strat = strategy;
-        if (strat == UserCacheStrategy.AUTO && user.getOffline().isOnline())
-          strat = UserCacheStrategy.RUNTIME;
-        if (strat == UserCacheStrategy.RUNTIME)
-          repository.add(user);
-        else if (repository.contains(uuid))
-          repository.replace(user);
-        return user;
-      });
+    @Nullable PerxUser cached = repository.get(uuid);
+    if (cached == null)
+      cached = restoreFromGrace(uuid, strategy);
+    if (cached == null && strategy == UserCacheStrategy.BOUNDED)
+      cached = offlineCache.get(uuid);
+    if (cached != null) {
+      hits.increment();
+      return CompletableFuture.completedFuture(cached);
+    }
+    return fetchShared(uuid).thenApply((userGroups) -> {
+      @Nullable PerxUser user = repository.get(uuid);
+      if (user == null) user = new PerxUser(uuid);
+      userGroups.forEach(user::addGroup);
+      UserCacheStrategy strat = resolveStrategy(user, strategy);
+      if (strat == UserCacheStrategy.RUNTIME) {
+        invalidateInactive(uuid);
+        // another caller of the same fetch may have cached their instance already
+        if (!repository.add(user)) user = Objects.requireNonNullElse(repository.get(uuid), user);
+        else scheduleExpiries(user);
+      } else if (repository.contains(uuid)) {
+        @Nullable PerxUser previous = repository.replace(user);
+        if (previous != null && previous != user) unscheduleExpiries(previous);
+        scheduleExpiries(user);
+      }
+      else if (strat == UserCacheStrategy.BOUNDED)
+        offlineCache.put(user);
+      return user;
+    });
+  }
+
+  /**
+   * Returns the user of {@code uuid} if they quit within the grace period, or null. If
+   * {@code strategy} caches the user for runtime, they are restored into the cache along with
+   * their memberships.
+   */
+  private @Nullable PerxUser restoreFromGrace(UUID uuid, UserCacheStrategy strategy) {
+    @Nullable PerxUser user = graceCache.get(uuid);
+    if (user == null || resolveStrategy(user, strategy) != UserCacheStrategy.RUNTIME)
+      return user;
+    // the user may have been restored or invalidated concurrently
+    if (!graceCache.remove(user)) return repository.get(uuid);
+    if (!repository.add(user)) return repository.get(uuid);
+    PerxUserGroupRepository userGroupRepository = userGroupService.getRepository();
+    user.getSubscribed().forEach(userGroupRepository::put);
+    scheduleExpiries(user);
+    return user;
+  }
+
+  /** Schedules the expiry of the memberships of {@code user}, once cached for runtime. */
+  private static void scheduleExpiries(PerxUser user) {
+    Perx perx = Perx.getInstance();
+    if (perx.isLoaded()) perx.getGroupUpdateTask().scheduleAll(user);
+  }
+
+  /** Unschedules the expiry of the memberships of {@code user}, once no longer cached. */
+  private static void unscheduleExpiries(PerxUser user) {
+    Perx perx = Perx.getInstance();
+    if (perx.isLoaded()) perx.getGroupUpdateTask().unscheduleAll(user);
+  }
+
+  /** Returns the strategy {@code user} is effectively cached with, given {@code strategy}. */
+  private static UserCacheStrategy resolveStrategy(PerxUser user, UserCacheStrategy strategy) {
+    if ((strategy == UserCacheStrategy.AUTO || strategy == UserCacheStrategy.BOUNDED)
+        && user.getOffline().isOnline())
+      return UserCacheStrategy.RUNTIME;
+    return strategy;
+  }
+
+  /**
+   * Returns the fetch of the memberships of {@code uuid} that is already in flight, or starts
+   * it, such that concurrent callers for the same user share a single database fetch.
+   */
+  private CompletableFuture<List<PerxUserGroup>> fetchShared(UUID uuid) {
+    @Nullable CompletableFuture<List<PerxUserGroup>> existing = inFlight.get(uuid);
+    if (existing == null) {
+      CompletableFuture<List<PerxUserGroup>> future = new CompletableFuture<>();
+      existing = inFlight.putIfAbsent(uuid, future);
+      if (existing == null) {
+        misses.increment();
+        fetchUserGroups(uuid).whenComplete((userGroups, ex) -> {
+          // evicted before completing, such that failures are never handed to later callers
+          inFlight.remove(uuid, future);
+          if (ex != null) future.completeExceptionally(ex);
+          else future.complete(userGroups);
+        });
+        return future;
+      }
     }
+    coalesced.increment();
+    return existing;
+  }
+
+  private CompletableFuture<List<PerxUserGroup>> fetchUserGroups(UUID uuid) {
+    if (database.isDegraded())
+      // serve the cached (or warm-started) memberships while the database is unavailable
+      return CompletableFuture.completedFuture(userGroupService.getRepository().findByUser(uuid));
+    CompletableFuture<List<PerxUserGroup>> future;
+    if (batchLoader != null && !userGroupService.getRepository().hasUser(uuid))
+      // gather with other users requested at about the same time into a single query
+      future = batchLoader.load(uuid);
+    else future = userGroupService.getUserGroupsByUser(uuid);
+    return future.exceptionallyCompose((ex) -> {
+      if (!database.isDegraded()) return CompletableFuture.failedFuture(ex);
+      return CompletableFuture.completedFuture(userGroupService.getRepository().findByUser(uuid));
+    });
   }
 
   public CompletableFuture<PerxUser> getOrFetch(OfflinePlayer player, UserCacheStrategy strategy) {
     return getOrFetch(player.getUniqueId(), strategy);
   }
 
+  @Override
+  public UserFetchStatistics getFetchStatistics() {
+    return new UserFetchStatistics(
+        hits.sum(), misses.sum(), coalesced.sum(), inFlight.size());
+  }
+
   @Override
   public CompletableFuture<Void> delete(UUID uuid) {
     return userGroupService.deleteByUser(uuid).thenAccept((val) -> {
-      if (val) repository.remove(uuid);
+      invalidateInactive(uuid);
+      if (!val) return;
+      @Nullable PerxUser user = repository.get(uuid);
+      if (user != null && repository.remove(user)) unscheduleExpiries(user);
     });
   }
 
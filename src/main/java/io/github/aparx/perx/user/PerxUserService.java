@@ -20,12 +20,44 @@ public interface PerxUserService extends Copyable<PerxUserService> {
 
   PerxUserRepository getRepository();
 
+  /** Returns the cache tier of offline users, used by {@link UserCacheStrategy#BOUNDED}. */
+  PerxOfflineUserCache getOfflineCache();
+
+  /** Returns the cache of users that recently quit, for them to be restored on reconnect. */
+  PerxUserGraceCache getGraceCache();
+
+  /**
+   * Invalidates the user of {@code userId} in all caches of users that are not online, which
+   * must be done whenever their memberships changed.
+   */
+  default void invalidateInactive(UUID userId) {
+    getOfflineCache().invalidate(userId);
+    getGraceCache().invalidate(userId);
+  }
+
+  /** @see #invalidateInactive(UUID) */
+  default void invalidateAllInactive() {
+    getOfflineCache().invalidateAll();
+    getGraceCache().invalidateAll();
+  }
+
+  /**
+   * Removes the user of {@code userId} and their memberships from cache, as they quit. The
+   * user is kept in the grace cache, such that a quick reconnect does not fetch them again.
+   *
+   * @param userId the user that quit
+   */
+  void release(UUID userId);
+
   /** Returns the already cached user or fetches user with given identifier. */
   CompletableFuture<PerxUser> getOrFetch(UUID uuid, UserCacheStrategy strategy);
 
   /** Returns the already cached user or fetches given player's user profile. */
   CompletableFuture<PerxUser> getOrFetch(OfflinePlayer player, UserCacheStrategy strategy);
 
+  /** Returns the counters of how users were resolved by {@code getOrFetch}. */
+  UserFetchStatistics getFetchStatistics();
+
   CompletableFuture<Void> delete(UUID uuid);
 
   CompletableFuture<Void> delete(OfflinePlayer player);
@@ -2,7 +2,7 @@ package io.github.aparx.perx.user;
 
 /**
  * @author aparx (Vinzent Z.)
- * @version 2024-01-04 08:23
+ * @version 2024-01-23 16:05
  * @since 1.0
  */
 public enum UserCacheStrategy {
@@ -28,5 +28,16 @@ public enum UserCacheStrategy {
    * @see #TEMPORARY
    * @see #RUNTIME
    */
-  AUTO
+  AUTO,
+
+  /**
+   * Behaves like {@link #AUTO}, except that fetched users which are neither online nor cached
+   * are kept in the bounded offline cache, instead of being discarded.
+   * <p>Users looked up with this strategy are served from the offline cache if present, thus
+   * they may be stale for up to its TTL, if they were changed by other means than Perx.
+   *
+   * @see #AUTO
+   * @see PerxOfflineUserCache
+   */
+  BOUNDED
 }
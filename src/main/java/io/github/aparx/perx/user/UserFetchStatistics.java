@@ -0,0 +1,14 @@
+package io.github.aparx.perx.user;
+
+/**
+ * Snapshot of the counters of how users were resolved by {@code getOrFetch}.
+ *
+ * @param hits      the total amount of users that were served from the repository
+ * @param misses    the total amount of fetches that were started on the database
+ * @param coalesced the total amount of requests that joined a fetch already in flight
+ * @param inFlight  the amount of fetches currently in flight
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 15:52
+ * @since 1.0
+ */
+public record UserFetchStatistics(long hits, long misses, long coalesced, int inFlight) {}
@@ -0,0 +1,28 @@
+package io.github.aparx.perx.user;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Settings of the grace cache, that keeps quitting users for them to reconnect.
+ *
+ * @param period        the milliseconds a quitting user is kept, or zero to disable the cache
+ * @param maximumWeight the weight of all users kept at most, whereas a user weighs one plus
+ *                      the amount of their memberships
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 16:24
+ * @since 1.0
+ */
+public record UserGraceSettings(long period, long maximumWeight) {
+
+  public static final UserGraceSettings DEFAULT = new UserGraceSettings(60000, 20000);
+
+  public UserGraceSettings {
+    Preconditions.checkArgument(period >= 0, "Period must not be negative");
+    Preconditions.checkArgument(maximumWeight >= 0, "Maximum weight must not be negative");
+  }
+
+  public boolean isEnabled() {
+    return period > 0 && maximumWeight > 0;
+  }
+
+}
@@ -0,0 +1,28 @@
+package io.github.aparx.perx.user;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Settings of the batch loader that fetches the groups of multiple users at once.
+ *
+ * @param window           the milliseconds requested users are gathered before they are
+ *                         loaded, or zero to load every user separately
+ * @param maximumBatchSize the amount of gathered users that forces an early load
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-21 14:40
+ * @since 1.0
+ */
+public record UserLoaderSettings(long window, int maximumBatchSize) {
+
+  public static final UserLoaderSettings DEFAULT = new UserLoaderSettings(5, 500);
+
+  public UserLoaderSettings {
+    Preconditions.checkArgument(window >= 0, "Window must not be negative");
+    Preconditions.checkArgument(maximumBatchSize >= 1, "Batch size must be at least one");
+  }
+
+  public boolean isBatching() {
+    return window > 0;
+  }
+
+}
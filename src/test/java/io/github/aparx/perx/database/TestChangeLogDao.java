@@ -0,0 +1,90 @@
+package io.github.aparx.perx.database;
+
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.jdbc.JdbcConnectionSource;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.table.TableUtils;
+import io.github.aparx.perx.database.data.change.ChangeLogDao;
+import io.github.aparx.perx.database.data.change.ChangeLogModel;
+import io.github.aparx.perx.database.data.change.ChangeType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+/**
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-22 10:27
+ * @since 1.0
+ */
+public class TestChangeLogDao {
+
+  private ConnectionSource source;
+  private ChangeLogDao dao;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    source = new JdbcConnectionSource("jdbc:h2:mem:change_log;DB_CLOSE_DELAY=-1");
+    dao = DaoManager.createDao(source, ChangeLogModel.class);
+    TableUtils.createTableIfNotExists(source, ChangeLogModel.class);
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    TableUtils.dropTable(source, ChangeLogModel.class, true);
+    DaoManager.clearCache();
+    source.close();
+  }
+
+  @Test
+  public void getLatestRevision() throws Exception {
+    Assertions.assertEquals(0, dao.getLatestRevision());
+    dao.append(ChangeType.GROUP, List.of("admin", "member"), "a");
+    List<ChangeLogModel> changes = dao.queryForAll();
+    Assertions.assertEquals(changes.get(1).getRevision(), dao.getLatestRevision());
+    Assertions.assertTrue(changes.get(1).getRevision() > changes.get(0).getRevision());
+  }
+
+  @Test
+  public void findAfter() throws Exception {
+    dao.append(ChangeType.GROUP, List.of("admin"), "a");
+    long revision = dao.getLatestRevision();
+    dao.append(ChangeType.MEMBERSHIP, List.of("1", "2", "3"), "b");
+    List<ChangeLogModel> changes = dao.findAfter(revision, 10);
+    Assertions.assertEquals(3, changes.size());
+    Assertions.assertEquals(List.of("1", "2", "3"),
+        changes.stream().map(ChangeLogModel::getTarget).toList());
+    Assertions.assertTrue(changes.stream().allMatch((x) -> x.getType() == ChangeType.MEMBERSHIP));
+    Assertions.assertTrue(changes.stream().allMatch((x) -> "b".equals(x.getOrigin())));
+    Assertions.assertEquals(2, dao.findAfter(revision, 2).size());
+    Assertions.assertTrue(dao.findAfter(dao.getLatestRevision(), 10).isEmpty());
+  }
+
+  @Test
+  public void findRevisions() throws Exception {
+    dao.append(ChangeType.MEMBERSHIP, List.of("1", "2", "3"), "a");
+    List<ChangeLogModel> changes = dao.queryForAll();
+    long first = changes.get(0).getRevision();
+    long last = changes.get(2).getRevision();
+    Assertions.assertTrue(dao.findRevisions(List.of()).isEmpty());
+    Assertions.assertEquals(List.of("1", "3"),
+        dao.findRevisions(List.of(last, first, last + 1)).stream()
+            .map(ChangeLogModel::getTarget)
+            .toList());
+  }
+
+  @Test
+  public void deleteBefore() throws Exception {
+    dao.append(ChangeType.GROUP_MEMBERSHIP, List.of("admin", "member"), "a");
+    long revision = dao.getLatestRevision();
+    Assertions.assertEquals(0, dao.deleteBefore(0));
+    Assertions.assertEquals(2, dao.deleteBefore(System.currentTimeMillis() + 1));
+    Assertions.assertEquals(0, dao.countOf());
+    // revisions keep increasing after older changes are deleted
+    dao.append(ChangeType.GROUP, List.of("admin"), "a");
+    Assertions.assertTrue(dao.getLatestRevision() > revision);
+  }
+
+}
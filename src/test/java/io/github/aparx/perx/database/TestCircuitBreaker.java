@@ -0,0 +1,118 @@
+package io.github.aparx.perx.database;
+
+import io.github.aparx.perx.database.breaker.CircuitBreaker;
+import io.github.aparx.perx.database.breaker.CircuitBreakerSettings;
+import io.github.aparx.perx.database.breaker.CircuitState;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+/**
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 10:31
+ * @since 1.0
+ */
+public class TestCircuitBreaker {
+
+  private static final CircuitBreakerSettings SETTINGS =
+      new CircuitBreakerSettings(true, 10, 4, 50, 1000, 3000, 3, 100);
+
+  private final List<CircuitState> transitions = new ArrayList<>();
+  private long now;
+  private CircuitBreaker breaker;
+
+  @BeforeEach
+  public void setup() {
+    transitions.clear();
+    now = 0;
+    breaker = new CircuitBreaker(SETTINGS, transitions::add, () -> now);
+  }
+
+  private void fail(int times) {
+    for (int i = 0; i < times; ++i) {
+      Assertions.assertTrue(breaker.tryAcquire());
+      breaker.onFailure();
+    }
+  }
+
+  @Test
+  public void opensAtThreshold() {
+    Assertions.assertTrue(breaker.tryAcquire());
+    breaker.onSuccess();
+    Assertions.assertTrue(breaker.tryAcquire());
+    breaker.onSuccess();
+    fail(1);
+    Assertions.assertEquals(CircuitState.CLOSED, breaker.getState());
+    fail(1);
+    Assertions.assertEquals(CircuitState.OPEN, breaker.getState());
+    Assertions.assertFalse(breaker.tryAcquire());
+    Assertions.assertEquals(List.of(CircuitState.OPEN), transitions);
+  }
+
+  @Test
+  public void staysClosedBelowMinimumCalls() {
+    fail(3);
+    Assertions.assertEquals(CircuitState.CLOSED, breaker.getState());
+  }
+
+  @Test
+  public void probesAndCloses() {
+    fail(4);
+    now += 999;
+    Assertions.assertFalse(breaker.tryAcquire());
+    now += 1;
+    Assertions.assertTrue(breaker.tryAcquire());
+    Assertions.assertEquals(CircuitState.HALF_OPEN, breaker.getState());
+    // only a single probe is permitted at a time
+    Assertions.assertFalse(breaker.tryAcquire());
+    breaker.onSuccess();
+    Assertions.assertEquals(CircuitState.CLOSED, breaker.getState());
+    Assertions.assertTrue(breaker.tryAcquire());
+    Assertions.assertEquals(
+        List.of(CircuitState.OPEN, CircuitState.HALF_OPEN, CircuitState.CLOSED), transitions);
+  }
+
+  @Test
+  public void doublesOpenDurationOnFailedProbe() {
+    fail(4);
+    now += 1000;
+    fail(1);
+    Assertions.assertEquals(CircuitState.OPEN, breaker.getState());
+    now += 1999;
+    Assertions.assertFalse(breaker.tryAcquire());
+    now += 1;
+    fail(1);
+    // capped at the maximum open duration
+    now += 2999;
+    Assertions.assertFalse(breaker.tryAcquire());
+    now += 1;
+    Assertions.assertTrue(breaker.tryAcquire());
+  }
+
+  @Test
+  public void ignoredProbeReleasesPermit() {
+    fail(4);
+    now += 1000;
+    Assertions.assertTrue(breaker.tryAcquire());
+    breaker.onIgnored();
+    Assertions.assertTrue(breaker.tryAcquire());
+  }
+
+  @Test
+  public void classifiesFailures() {
+    Assertions.assertTrue(CircuitBreaker.isDatabaseFailure(new CompletionException(
+        new SQLException("wrapped", new SQLTransientConnectionException("refused")))));
+    Assertions.assertFalse(CircuitBreaker.isDatabaseFailure(new SQLException(
+        "wrapped", new SQLIntegrityConstraintViolationException("duplicate"))));
+    Assertions.assertFalse(CircuitBreaker.isDatabaseFailure(new SQLException("bad", "42000")));
+    Assertions.assertFalse(CircuitBreaker.isDatabaseFailure(new IllegalStateException()));
+  }
+
+}
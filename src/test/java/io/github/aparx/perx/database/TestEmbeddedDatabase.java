@@ -0,0 +1,198 @@
+package io.github.aparx.perx.database;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.jdbc.JdbcConnectionSource;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.table.TableUtils;
+import io.github.aparx.perx.database.data.ModelUpserter;
+import io.github.aparx.perx.database.data.group.GroupModel;
+import io.github.aparx.perx.database.data.group.GroupModelDao;
+import io.github.aparx.perx.database.data.many.UserGroupDao;
+import io.github.aparx.perx.database.data.many.UserGroupMemberCursor;
+import io.github.aparx.perx.database.data.many.UserGroupModel;
+import io.github.aparx.perx.database.executor.DatabaseOperation;
+import io.github.aparx.perx.database.pool.OperationBoundConnections;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-22 20:36
+ * @since 1.0
+ */
+public class TestEmbeddedDatabase {
+
+  @TempDir
+  File dataFolder;
+
+  private ConnectionSource source;
+  private UserGroupDao dao;
+  private GroupModel admin;
+  private GroupModel member;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    String url = DatabaseBackend.H2.createUrl(dataFolder);
+    Assertions.assertNotNull(url);
+    source = new JdbcConnectionSource(url);
+    TableUtils.createTableIfNotExists(source, GroupModel.class);
+    TableUtils.createTableIfNotExists(source, UserGroupModel.class);
+    Dao<GroupModel, String> groupDao = DaoManager.createDao(source, GroupModel.class);
+    groupDao.create(admin = new GroupModel("admin"));
+    groupDao.create(member = new GroupModel("member"));
+    dao = DaoManager.createDao(source, UserGroupModel.class);
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    DaoManager.clearCache();
+    source.close();
+  }
+
+  @Test
+  public void createUrl() {
+    Assertions.assertNull(DatabaseBackend.EXTERNAL.createUrl(dataFolder));
+    Assertions.assertEquals(DatabaseDialect.H2,
+        DatabaseDialect.of(DatabaseBackend.H2.createUrl(dataFolder)));
+    Assertions.assertEquals(DatabaseDialect.SQLITE,
+        DatabaseDialect.of(DatabaseBackend.SQLITE.createUrl(dataFolder)));
+    Assertions.assertTrue(new File(dataFolder, "perx.mv.db").exists());
+  }
+
+  @Test
+  public void dialectOf() {
+    Assertions.assertEquals(DatabaseDialect.MYSQL, DatabaseDialect.of("jdbc:mysql://host"));
+    Assertions.assertEquals(DatabaseDialect.MARIADB, DatabaseDialect.of("JDBC:MARIADB://host"));
+    Assertions.assertEquals(DatabaseDialect.POSTGRES, DatabaseDialect.of("jdbc:postgresql:x"));
+    Assertions.assertEquals(DatabaseDialect.OTHER, DatabaseDialect.of("jdbc:<type>://<host>"));
+    Assertions.assertEquals(1, DatabaseDialect.SQLITE.getMaximumConnections());
+    Assertions.assertFalse(DatabaseDialect.SQLITE.supportsDeleteLimit());
+  }
+
+  @Test
+  public void insertAllAndFindByUsers() throws Exception {
+    UUID first = UUID.randomUUID();
+    UUID second = UUID.randomUUID();
+    Assertions.assertEquals(3, dao.insertAll(List.of(
+        new UserGroupModel(first, admin),
+        new UserGroupModel(first, member),
+        new UserGroupModel(second, member))));
+    Assertions.assertEquals(2, dao.findByUsers(List.of(first)).size());
+    Assertions.assertEquals(3, dao.findByUsers(List.of(first, second)).size());
+    Assertions.assertEquals(2, dao.findByGroupAndUsers("member", List.of(first, second)).size());
+    Assertions.assertEquals(1, dao.deleteUsersFromGroup("member", List.of(second)));
+    Assertions.assertTrue(dao.findByUsers(List.of(second)).isEmpty());
+  }
+
+  @Test
+  public void findExpired() throws Exception {
+    long now = System.currentTimeMillis();
+    dao.insertAll(List.of(
+        new UserGroupModel(UUID.randomUUID(), admin, new Date(now - 2000)),
+        new UserGroupModel(UUID.randomUUID(), admin, new Date(now - 1000)),
+        new UserGroupModel(UUID.randomUUID(), admin, new Date(now + 60000)),
+        new UserGroupModel(UUID.randomUUID(), member)));
+    List<UserGroupModel> expired = dao.findExpired(new Date(now), 0, 10);
+    Assertions.assertEquals(2, expired.size());
+    List<UserGroupModel> page = dao.findExpired(new Date(now), expired.get(0).getId(), 10);
+    Assertions.assertEquals(List.of(expired.get(1).getId()),
+        page.stream().map(UserGroupModel::getId).toList());
+  }
+
+  @Test
+  public void iterateUsersByGroup() throws Exception {
+    List<UserGroupModel> models = new ArrayList<>();
+    for (int i = 0; i < 7; ++i)
+      models.add(new UserGroupModel(UUID.randomUUID(), member));
+    models.add(new UserGroupModel(UUID.randomUUID(), admin));
+    dao.insertAll(models);
+    UserGroupMemberCursor cursor = dao.iterateUsersByGroup("member", 3);
+    Assertions.assertEquals(3, cursor.nextPage().size());
+    Assertions.assertEquals(3, cursor.nextPage().size());
+    Assertions.assertFalse(cursor.isExhausted());
+    Assertions.assertEquals(1, cursor.nextPage().size());
+    Assertions.assertTrue(cursor.isExhausted());
+    Assertions.assertTrue(cursor.nextPage().isEmpty());
+    Set<UUID> userIds = new HashSet<>();
+    dao.iterateUsersByGroup("member", 2).forEachRemaining(userIds::add);
+    Assertions.assertEquals(models.stream().limit(7).map(UserGroupModel::getUserId)
+        .collect(Collectors.toSet()), userIds);
+    Assertions.assertFalse(dao.iterateUsersByGroup("none", 2).hasNext());
+  }
+
+  @Test
+  public void countGroups() throws Exception {
+    Assertions.assertEquals(0, dao.countByGroup("member"));
+    Assertions.assertTrue(dao.countAllGroups().isEmpty());
+    UUID first = UUID.randomUUID();
+    dao.insertAll(List.of(
+        new UserGroupModel(first, admin),
+        new UserGroupModel(first, member),
+        new UserGroupModel(UUID.randomUUID(), member)));
+    Assertions.assertEquals(2, dao.countByGroup("member"));
+    Assertions.assertEquals(Map.of("admin", 1L, "member", 2L), dao.countAllGroups());
+  }
+
+  @Test
+  public void upsert() throws Exception {
+    GroupModelDao groupDao = DaoManager.createDao(source, GroupModel.class);
+    GroupModel changed = new GroupModel("member");
+    changed.setPriority(3);
+    Assertions.assertEquals(1, new ModelUpserter<>(groupDao, GroupModel.ID_FIELD_NAME)
+        .upsert(DatabaseDialect.H2, changed).getNumLinesChanged());
+    Assertions.assertEquals(3, groupDao.queryForId("member").getPriority());
+    UUID userId = UUID.randomUUID();
+    Date end = new Date(System.currentTimeMillis() + 60000);
+    dao.upsert(DatabaseDialect.H2, new UserGroupModel(userId, member));
+    dao.upsert(DatabaseDialect.H2, new UserGroupModel(userId, member, end));
+    List<UserGroupModel> models = dao.findByGroupAndUsers("member", List.of(userId));
+    Assertions.assertEquals(1, models.size());
+    Assertions.assertEquals(end.getTime(), models.get(0).getEndDate().getTime());
+    // dialects without native upserts fall back to a lookup
+    dao.upsert(DatabaseDialect.OTHER, new UserGroupModel(UUID.randomUUID(), admin));
+    Assertions.assertEquals(1, dao.countByGroup("admin"));
+  }
+
+  @Test
+  public void boundStatements() throws Exception {
+    String url = DatabaseBackend.H2.createUrl(dataFolder);
+    Assertions.assertNotNull(url);
+    try (Connection connection = OperationBoundConnections.wrap(DriverManager.getConnection(url))) {
+      DatabaseOperation operation = DatabaseOperation.create(2500);
+      operation.bind();
+      try {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT 1")) {
+          Assertions.assertEquals(3, statement.getQueryTimeout());
+        }
+        Assertions.assertTrue(operation.cancel());
+        Assertions.assertFalse(operation.cancel());
+        Assertions.assertThrows(SQLException.class, () -> connection.prepareStatement("SELECT 1"));
+      } finally {
+        operation.unbind();
+      }
+      Assertions.assertNull(DatabaseOperation.current());
+      try (PreparedStatement statement = connection.prepareStatement("SELECT 1")) {
+        Assertions.assertEquals(0, statement.getQueryTimeout());
+      }
+    }
+  }
+
+}
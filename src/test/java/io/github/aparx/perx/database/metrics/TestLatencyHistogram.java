@@ -0,0 +1,90 @@
+package io.github.aparx.perx.database.metrics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+
+/**
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 13:06
+ * @since 1.0
+ */
+public class TestLatencyHistogram {
+
+  @TempDir
+  File folder;
+
+  private static void assertWithin(long expected, long actual, double relativeError) {
+    Assertions.assertTrue(Math.abs(expected - actual) <= expected * relativeError,
+        () -> "Expected " + expected + " but was " + actual);
+  }
+
+  @Test
+  public void empty() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    Assertions.assertEquals(0, histogram.getCount());
+    Assertions.assertEquals(0, histogram.getPercentile(50));
+    Assertions.assertEquals(0, histogram.getMax());
+  }
+
+  @Test
+  public void exactBelowSubBuckets() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 20; ++i) histogram.record(i);
+    Assertions.assertEquals(10, histogram.getPercentile(50));
+    Assertions.assertEquals(20, histogram.getPercentile(100));
+    Assertions.assertEquals(1, histogram.getPercentile(0));
+  }
+
+  @Test
+  public void percentilesWithinError() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 100_000; ++i) histogram.record(i);
+    Assertions.assertEquals(100_000, histogram.getCount());
+    Assertions.assertEquals(100_000, histogram.getMax());
+    Assertions.assertEquals(50_000, histogram.getMean());
+    assertWithin(50_000, histogram.getPercentile(50), 1d / 32);
+    assertWithin(99_000, histogram.getPercentile(99), 1d / 32);
+    Assertions.assertEquals(100_000, histogram.getPercentile(100));
+  }
+
+  @Test
+  public void bucketBounds() {
+    for (long value : new long[]{0, 31, 32, 33, 63, 64, 1000, 123_456_789L}) {
+      int index = LatencyHistogram.indexOf(value);
+      Assertions.assertTrue(LatencyHistogram.highestValueOf(index) >= value);
+      Assertions.assertTrue(index == 0 || LatencyHistogram.highestValueOf(index - 1) < value);
+    }
+    // values beyond the largest bucket are clamped instead of overflowing
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(Long.MAX_VALUE);
+    histogram.record(-5);
+    Assertions.assertEquals(Long.MAX_VALUE, histogram.getMax());
+    Assertions.assertEquals(0, histogram.getPercentile(50));
+  }
+
+  @Test
+  public void writeMetrics() throws Exception {
+    DatabaseMetrics metrics = new DatabaseMetrics();
+    metrics.record("user_group.find_by_user", 2_000_000, false);
+    metrics.record("user_group.find_by_user", 4_000_000, true);
+    metrics.record("group.load", 1_000, false);
+    Assertions.assertEquals(2, metrics.getStatistics().size());
+    DatabaseOperationStatistics stats = metrics.getStatistics().get(1);
+    Assertions.assertEquals("user_group.find_by_user", stats.operation());
+    Assertions.assertEquals(2, stats.count());
+    Assertions.assertEquals(1, stats.errors());
+    Assertions.assertEquals(4000, stats.max());
+    File file = new File(folder, "metrics.prom");
+    metrics.writeTo(file);
+    String content = Files.readString(file.toPath());
+    Assertions.assertTrue(content.contains(
+        "perx_db_operations_total{operation=\"user_group.find_by_user\"} 2"));
+    Assertions.assertTrue(content.contains(
+        "perx_db_operation_errors_total{operation=\"group.load\"} 0"));
+  }
+
+}
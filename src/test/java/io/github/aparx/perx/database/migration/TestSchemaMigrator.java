@@ -0,0 +1,96 @@
+package io.github.aparx.perx.database.migration;
+
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.jdbc.JdbcConnectionSource;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.table.TableUtils;
+import io.github.aparx.perx.database.DatabaseBackend;
+import io.github.aparx.perx.database.DatabaseDialect;
+import io.github.aparx.perx.database.data.change.ChangeLogModel;
+import io.github.aparx.perx.database.data.group.GroupModel;
+import io.github.aparx.perx.database.data.many.UserGroupHistoryModel;
+import io.github.aparx.perx.database.data.many.UserGroupModel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 14:02
+ * @since 1.0
+ */
+public class TestSchemaMigrator {
+
+  @TempDir
+  File dataFolder;
+
+  private ConnectionSource source;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    String url = DatabaseBackend.H2.createUrl(dataFolder);
+    Assertions.assertNotNull(url);
+    source = new JdbcConnectionSource(url);
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    DaoManager.clearCache();
+    source.close();
+  }
+
+  private boolean hasIndex(String column) throws Exception {
+    return new SchemaMigrationContext(source, DatabaseDialect.H2).hasIndex(
+        UserGroupModel.TABLE_NAME, SchemaMigrations.indexName(UserGroupModel.TABLE_NAME, column));
+  }
+
+  @Test
+  public void migrateOnce() throws Exception {
+    SchemaMigrator migrator = new SchemaMigrator();
+    Assertions.assertEquals(SchemaMigrations.ALL, migrator.migrate(source, DatabaseDialect.H2));
+    Assertions.assertEquals(migrator.getLatestVersion(), migrator.getVersion());
+    Assertions.assertTrue(hasIndex(UserGroupModel.USER_ID_FIELD_NAME));
+    Assertions.assertTrue(hasIndex(UserGroupModel.GROUP_ID_FIELD_NAME));
+    Assertions.assertTrue(hasIndex(UserGroupModel.END_DATE_FIELD_NAME));
+    Assertions.assertTrue(DaoManager.createDao(source, ChangeLogModel.class).isTableExists());
+    Assertions.assertTrue(
+        DaoManager.createDao(source, UserGroupHistoryModel.class).isTableExists());
+    Assertions.assertTrue(new SchemaMigrator().migrate(source, DatabaseDialect.H2).isEmpty());
+  }
+
+  @Test
+  public void migrateExistingTables() throws Exception {
+    // tables created before migrations existed
+    TableUtils.createTableIfNotExists(source, GroupModel.class);
+    TableUtils.createTableIfNotExists(source, UserGroupModel.class);
+    Assertions.assertEquals(SchemaMigrations.ALL.size(),
+        new SchemaMigrator().migrate(source, DatabaseDialect.H2).size());
+    Assertions.assertTrue(hasIndex(UserGroupModel.USER_ID_FIELD_NAME));
+  }
+
+  @Test
+  public void migrateInOrder() throws Exception {
+    List<Integer> steps = new ArrayList<>();
+    List<SchemaMigration> migrations = List.of(
+        new SchemaMigration(1, "first", (context) -> steps.add(1)),
+        new SchemaMigration(3, "third", (context) -> steps.add(3)));
+    Assertions.assertEquals(2, new SchemaMigrator(migrations).migrate(source,
+        DatabaseDialect.H2).size());
+    List<SchemaMigration> appended = new ArrayList<>(migrations);
+    appended.add(new SchemaMigration(4, "fourth", (context) -> steps.add(4)));
+    SchemaMigrator migrator = new SchemaMigrator(appended);
+    Assertions.assertEquals(List.of(appended.get(2)), migrator.migrate(source,
+        DatabaseDialect.H2));
+    Assertions.assertEquals(List.of(1, 3, 4), steps);
+    Assertions.assertEquals(4, migrator.getVersion());
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> new SchemaMigrator(List.of(appended.get(1), appended.get(0))));
+  }
+
+}
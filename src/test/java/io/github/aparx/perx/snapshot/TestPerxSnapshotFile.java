@@ -0,0 +1,112 @@
+package io.github.aparx.perx.snapshot;
+
+import io.github.aparx.perx.database.data.group.GroupModel;
+import io.github.aparx.perx.database.data.many.UserGroupModel;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-22 22:05
+ * @since 1.0
+ */
+public class TestPerxSnapshotFile {
+
+  @TempDir
+  File folder;
+
+  private static PerxSnapshot createSnapshot(int users) {
+    GroupModel admin = new GroupModel("admin");
+    admin.setPriority(10);
+    admin.setPrefix("&c[Admin] ");
+    GroupModel member = new GroupModel("member");
+    member.setDefault(true);
+    Map<UUID, List<UserGroupModel>> memberships = new HashMap<>();
+    for (int i = 0; i < users; ++i) {
+      UUID userId = UUID.randomUUID();
+      UserGroupModel model = new UserGroupModel(userId, admin, new Date(1705000000000L + i));
+      model.setId(i + 1);
+      memberships.put(userId, List.of(model));
+    }
+    return new PerxSnapshot(1705950000000L, List.of(admin, member),
+        Map.of("admin", Map.of("perx.*", true, "perx.sign", false)), memberships);
+  }
+
+  @Test
+  public void readMissing() throws IOException {
+    Assertions.assertNull(new PerxSnapshotFile(new File(folder, "missing.dat")).read());
+  }
+
+  @Test
+  public void writeAndRead() throws IOException {
+    PerxSnapshotFile file = new PerxSnapshotFile(new File(folder, "snapshot.dat"));
+    PerxSnapshot snapshot = createSnapshot(3);
+    file.write(snapshot);
+    PerxSnapshot read = file.read();
+    Assertions.assertNotNull(read);
+    Assertions.assertEquals(snapshot.createdAt(), read.createdAt());
+    Assertions.assertEquals(snapshot.groups(), read.groups());
+    Assertions.assertEquals(10, read.groups().get(0).getPriority());
+    Assertions.assertEquals("&c[Admin] ", read.groups().get(0).getPrefix());
+    Assertions.assertNull(read.groups().get(0).getSuffix());
+    Assertions.assertTrue(read.groups().get(1).isDefault());
+    Assertions.assertEquals(snapshot.permissions().get("admin"), read.permissions().get("admin"));
+    Assertions.assertEquals(Map.of(), read.permissions().get("member"));
+    Assertions.assertEquals(snapshot.memberships().keySet(), read.memberships().keySet());
+    snapshot.memberships().forEach((userId, models) -> {
+      UserGroupModel expected = models.get(0);
+      UserGroupModel actual = read.memberships().get(userId).get(0);
+      Assertions.assertEquals(expected.getId(), actual.getId());
+      Assertions.assertEquals(userId, actual.getUserId());
+      Assertions.assertEquals("admin", actual.getGroup().getId());
+      Assertions.assertEquals(expected.getEndDate(), actual.getEndDate());
+    });
+  }
+
+  @Test
+  public void overwriteWithSmaller() throws IOException {
+    PerxSnapshotFile file = new PerxSnapshotFile(new File(folder, "snapshot.dat"));
+    file.write(createSnapshot(50));
+    file.write(createSnapshot(1));
+    PerxSnapshot read = file.read();
+    Assertions.assertNotNull(read);
+    Assertions.assertEquals(1, read.memberships().size());
+  }
+
+  @Test
+  public void rejectCorrupt() throws IOException {
+    File target = new File(folder, "snapshot.dat");
+    PerxSnapshotFile file = new PerxSnapshotFile(target);
+    file.write(createSnapshot(3));
+    try (RandomAccessFile access = new RandomAccessFile(target, "rw")) {
+      access.seek(PerxSnapshotFile.HEADER_SIZE + 2);
+      int value = access.read();
+      access.seek(PerxSnapshotFile.HEADER_SIZE + 2);
+      access.write(value ^ 0xFF);
+    }
+    Assertions.assertThrows(IOException.class, file::read);
+  }
+
+  @Test
+  public void rejectOtherVersion() throws IOException {
+    File target = new File(folder, "snapshot.dat");
+    PerxSnapshotFile file = new PerxSnapshotFile(target);
+    file.write(createSnapshot(3));
+    try (RandomAccessFile access = new RandomAccessFile(target, "rw")) {
+      access.seek(4);
+      access.writeInt(PerxSnapshotFile.VERSION + 1);
+    }
+    Assertions.assertThrows(IOException.class, file::read);
+  }
+
+}
@@ -0,0 +1,157 @@
+package io.github.aparx.perx.user;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * @author aparx (Vinzent Z.)
+ * @version 2024-01-23 18:06
+ * @since 1.0
+ */
+public class TestPerxUserRepository {
+
+  private static final int THREADS = 8;
+  private static final int USERS = 1000;
+
+  private static List<PerxUser> createUsers() {
+    List<PerxUser> users = new ArrayList<>(USERS);
+    for (int i = 0; i < USERS; ++i)
+      users.add(new PerxUser(UUID.randomUUID()));
+    return users;
+  }
+
+  /**
+   * Runs {@code task} on all threads at once, returning the milliseconds it took for all of
+   * them to complete.
+   */
+  private static long runConcurrently(Runnable task) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < THREADS; ++i)
+        futures.add(executor.submit(() -> {
+          start.await();
+          task.run();
+          return null;
+        }));
+      long startTime = System.nanoTime();
+      start.countDown();
+      for (Future<?> future : futures)
+        future.get(30, TimeUnit.SECONDS);
+      return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static void assertAtomicAdd(PerxUserRepository repository) throws Exception {
+    List<PerxUser> users = createUsers();
+    AtomicInteger added = new AtomicInteger();
+    runConcurrently(() -> users.forEach((user) -> {
+      if (repository.add(user)) added.incrementAndGet();
+    }));
+    Assertions.assertEquals(USERS, added.get());
+    users.forEach((user) -> Assertions.assertSame(user, repository.get(user.getId())));
+  }
+
+  @Test
+  public void atomicAdd() throws Exception {
+    assertAtomicAdd(new PerxUserCache());
+    assertAtomicAdd(new PerxConcurrentUserCache());
+  }
+
+  @Test
+  public void iterateWhileModifying() throws Exception {
+    PerxUserRepository repository = new PerxConcurrentUserCache();
+    List<PerxUser> users = createUsers();
+    users.forEach(repository::add);
+    runConcurrently(() -> {
+      for (PerxUser user : repository) {
+        repository.remove(user);
+        repository.add(new PerxUser(UUID.randomUUID()));
+      }
+    });
+    Assertions.assertThrows(UnsupportedOperationException.class,
+        () -> repository.iterator().remove());
+  }
+
+  private static void assertAtomicReplaceAndRemove(PerxUserRepository repository)
+      throws Exception {
+    List<PerxUser> users = createUsers();
+    users.forEach(repository::add);
+    AtomicInteger missing = new AtomicInteger();
+    runConcurrently(() -> users.forEach((user) -> {
+      // every user stays present while being replaced concurrently
+      if (repository.replace(new PerxUser(user.getId())) == null) missing.incrementAndGet();
+    }));
+    Assertions.assertEquals(0, missing.get());
+    int size = 0;
+    for (PerxUser user : repository) {
+      Assertions.assertTrue(repository.contains(user.getId()));
+      ++size;
+    }
+    Assertions.assertEquals(USERS, size);
+    AtomicInteger removed = new AtomicInteger();
+    runConcurrently(() -> users.forEach((user) -> {
+      if (repository.remove(user.getId())) removed.incrementAndGet();
+    }));
+    Assertions.assertEquals(USERS, removed.get());
+    users.forEach((user) -> Assertions.assertFalse(repository.contains(user.getId())));
+  }
+
+  @Test
+  public void atomicReplaceAndRemove() throws Exception {
+    assertAtomicReplaceAndRemove(new PerxUserCache());
+    assertAtomicReplaceAndRemove(new PerxConcurrentUserCache());
+  }
+
+  /**
+   * Compares the throughput of both repositories under contention, using a read-mostly mix
+   * of lookups as done by the sign updater, tab completion and fetch callbacks. Excluded from
+   * the unit suite, as it asserts no timings and only reports them.
+   */
+  @Test
+  @Tag("benchmark")
+  @Disabled("Benchmark, run manually to compare the repositories")
+  public void contentionBenchmark() throws Exception {
+    List<Supplier<PerxUserRepository>> factories =
+        List.of(PerxUserCache::new, PerxConcurrentUserCache::new);
+    for (Supplier<PerxUserRepository> factory : factories) {
+      PerxUserRepository repository = factory.get();
+      List<PerxUser> users = createUsers();
+      users.forEach(repository::add);
+      int operations = 200_000;
+      long millis = runConcurrently(() -> {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < operations; ++i) {
+          PerxUser user = users.get(random.nextInt(USERS));
+          if (random.nextInt(100) < 90) {
+            Assertions.assertTrue(repository.contains(user.getId()));
+          } else {
+            repository.replace(user);
+          }
+        }
+      });
+      long total = (long) operations * THREADS;
+      System.out.printf("%s: %d operations on %d threads in %d ms (%d ops/ms)%n",
+          repository.getClass().getSimpleName(), total, THREADS, millis,
+          total / Math.max(1, millis));
+    }
+  }
+
+}